@@ -0,0 +1,135 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketColumns;
+import com.parkit.parkingsystem.model.TicketLookup;
+import com.parkit.parkingsystem.service.RepricingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DaoBenchmark class measures the SQL paths of TicketDAO and ParkingSpotDAO against an embedded H2 database,
+ * created from h2-schema.sql, migrated by the SchemaMigrator and seeded with a ticket history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBenchmark {
+
+    private static final int CAR_SPOTS = 100;
+    private static final int BIKE_SPOTS = 100;
+    private static final int TICKETS = 100000;
+    private static final int PLATES = 10000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final long START = Timestamp.valueOf("2023-01-01 00:00:00").getTime();
+    private static final long MINUTE = 60 * 1000L;
+
+    private H2DataBaseConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketColumns columns;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataBaseConfig = new H2DataBaseConfig();
+        dataBaseConfig.createSchema(CAR_SPOTS, BIKE_SPOTS);
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            for (int i = 0; i < TICKETS; i++) {
+                ps.setInt(1, i % (CAR_SPOTS + BIKE_SPOTS) + 1);
+                ps.setString(2, plate(i));
+                ps.setDouble(3, 1.5);
+                ps.setTimestamp(4, new Timestamp(START + i * MINUTE));
+                ps.setTimestamp(5, new Timestamp(START + (i + 60) * MINUTE));
+                ps.addBatch();
+                if (i % 1000 == 999) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        dataBaseConfig.closeConnection(con);
+        new SchemaMigrator(dataBaseConfig).migrate();
+
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.reloadCaches();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reloadAvailabilityIndex();
+        columns = new TicketColumns(CHUNK_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        dataBaseConfig.dropSchema();
+        DataBaseConfig.shutdownPools();
+    }
+
+    private static String plate(int i) {
+        return "V" + i % PLATES;
+    }
+
+    private int nextIndex() {
+        next = next + 1 == TICKETS ? 0 : next + 1;
+        return next;
+    }
+
+    /**
+     * Most recent ticket of a vehicle, sorted query on the ticket table.
+     */
+    @Benchmark
+    public Ticket getTicket() {
+        return ticketDAO.getTicket(plate(nextIndex()));
+    }
+
+    /**
+     * Exit lookup of a vehicle that is not parked: the open ticket index misses and the window function query runs.
+     */
+    @Benchmark
+    public TicketLookup exitLookupQuery() {
+        return ticketDAO.getExitLookup(plate(nextIndex()));
+    }
+
+    /**
+     * Claim of the next car spot with the conditional update, then its release.
+     */
+    @Benchmark
+    public boolean claimAndReleaseSpot() {
+        int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        return parkingSpotDAO.updateParking(new ParkingSpot(parkingNumber, ParkingType.CAR, true));
+    }
+
+    /**
+     * One chunk of closed tickets read into columns, as done by the repricing job.
+     */
+    @Benchmark
+    public int readClosedTickets() {
+        return ticketDAO.readClosedTickets(nextIndex() % (TICKETS - CHUNK_SIZE), 0, RepricingService.END_OF_TIME, columns);
+    }
+}
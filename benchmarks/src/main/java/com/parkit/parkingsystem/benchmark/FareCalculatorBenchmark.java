@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The FareCalculatorBenchmark class measures the fare of one stay, through a Ticket and through primitives,
+ * and the batch fare API over a day of settlement, with flat tariffs and with night bands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+    private static final int STAYS = 100000;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Param({"flat", "bands"})
+    public String tariffs;
+
+    private FareCalculatorService fareCalculatorService;
+    private Ticket[] tickets;
+    private long[] inTimes;
+    private long[] outTimes;
+    private int[] parkingTypes;
+    private boolean[] recurring;
+    private long[] cents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        if ("flat".equals(tariffs)) {
+            fareCalculatorService = new FareCalculatorService(TariffConfig.flat());
+        } else {
+            Properties properties = new Properties();
+            properties.setProperty("car.ratePerHourCents", "150");
+            properties.setProperty("car.bands", "20:00-08:00@50");
+            properties.setProperty("car.dailyCapCents", "1500");
+            properties.setProperty("bike.ratePerHourCents", "100");
+            properties.setProperty("bike.tiers", "180@50");
+            fareCalculatorService = new FareCalculatorService(TariffConfig.parse(properties));
+        }
+
+        Random random = new Random(42);
+        tickets = new Ticket[STAYS];
+        inTimes = new long[STAYS];
+        outTimes = new long[STAYS];
+        parkingTypes = new int[STAYS];
+        recurring = new boolean[STAYS];
+        cents = new long[STAYS];
+        for (int i = 0; i < STAYS; i++) {
+            inTimes[i] = 1700000000000L + (long) (random.nextDouble() * 365 * 24 * HOUR);
+            outTimes[i] = inTimes[i] + (long) (random.nextDouble() * 48 * HOUR);
+            parkingTypes[i] = random.nextInt(ParkingType.values().length);
+            recurring[i] = random.nextBoolean();
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.values()[parkingTypes[i]], false));
+            ticket.setInTime(new Date(inTimes[i]));
+            ticket.setOutTime(new Date(outTimes[i]));
+            tickets[i] = ticket;
+        }
+    }
+
+    private int nextStay() {
+        int stay = next;
+        next = stay + 1 == STAYS ? 0 : stay + 1;
+        return stay;
+    }
+
+    @Benchmark
+    public double calculateFare() {
+        int stay = nextStay();
+        fareCalculatorService.calculateFare(tickets[stay], recurring[stay]);
+        return tickets[stay].getPrice();
+    }
+
+    @Benchmark
+    public long calculateFareCents() {
+        int stay = nextStay();
+        return fareCalculatorService.calculateFareCents(inTimes[stay], outTimes[stay],
+                ParkingType.values()[parkingTypes[stay]], recurring[stay]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STAYS)
+    public void calculateFareCentsBatch(Blackhole blackhole) {
+        fareCalculatorService.calculateFareCents(inTimes, outTimes, parkingTypes, recurring, cents);
+        blackhole.consume(cents);
+    }
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemorySpotRepository;
+import com.parkit.parkingsystem.dao.InMemoryTicketRepository;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateRuntime;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The GateRuntimeBenchmark class measures the gate events handled per second by a GateRuntime with 1, 4 and 16
+ * lanes. Every invocation sends the same burst of vehicles, spread over the lanes: each entry is followed by the
+ * exit of the same vehicle on the same lane, and the invocation waits for all of them. The ticket writes can be
+ * slowed down to simulate the database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GateRuntimeBenchmark {
+
+    private static final int VEHICLES = 256;
+
+    /**
+     * Events of one invocation: an entry and an exit per vehicle.
+     */
+    private static final int EVENTS = VEHICLES * 2;
+
+    @Param({"1", "4", "16"})
+    public int lanes;
+
+    /**
+     * Time spent in each ticket write, in microseconds.
+     */
+    @Param({"0", "200"})
+    public int ioMicros;
+
+    private GateRuntime gateRuntime;
+    private String[][] plates;
+    private CompletableFuture<?>[] results;
+
+    @Setup
+    public void setUp() {
+        long ioNanos = TimeUnit.MICROSECONDS.toNanos(ioMicros);
+        InMemoryTicketRepository ticketRepository = new InMemoryTicketRepository() {
+            @Override
+            public boolean saveTicket(Ticket ticket) {
+                simulateIo(ioNanos);
+                return super.saveTicket(ticket);
+            }
+
+            @Override
+            public boolean updateTicket(Ticket ticket) {
+                simulateIo(ioNanos);
+                return super.updateTicket(ticket);
+            }
+        };
+        ParkingService parkingService = new ParkingService(new InMemorySpotRepository(VEHICLES, 0), ticketRepository);
+        int vehiclesPerLane = VEHICLES / lanes;
+        gateRuntime = new GateRuntime(parkingService, lanes, vehiclesPerLane * 2,
+                Runtime.getRuntime().availableProcessors() * 2, true);
+        plates = new String[lanes][vehiclesPerLane];
+        for (int lane = 0; lane < lanes; lane++) {
+            for (int vehicle = 0; vehicle < vehiclesPerLane; vehicle++) {
+                plates[lane][vehicle] = "L" + lane + "-" + vehicle;
+            }
+        }
+        results = new CompletableFuture<?>[EVENTS];
+    }
+
+    private static void simulateIo(long nanos) {
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateRuntime.stop(10000);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void gateEvents() {
+        int event = 0;
+        for (int vehicle = 0; vehicle < plates[0].length; vehicle++) {
+            for (int lane = 0; lane < lanes; lane++) {
+                results[event++] = gateRuntime.submitEntry(lane, plates[lane][vehicle], ParkingType.CAR);
+                results[event++] = gateRuntime.submitExit(lane, plates[lane][vehicle]);
+            }
+        }
+        CompletableFuture.allOf(results).join();
+    }
+}
@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * The H2DataBaseConfig class points the DAOs at an embedded in-memory H2 database in MySQL compatibility mode,
+ * so the DAO benchmarks run their real SQL without a MySQL server.
+ */
+public class H2DataBaseConfig extends DataBaseConfig {
+
+    public static final String URL = "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    public H2DataBaseConfig() {
+        super(URL, "sa", "");
+    }
+
+    /**
+     * Creates the tables of h2-schema.sql, before the migrations, with every spot available.
+     *
+     * @param carSpots  the number of car spots, numbered from 1
+     * @param bikeSpots the number of bike spots, numbered after the car spots
+     * @throws Exception if the schema cannot be created
+     */
+    public void createSchema(int carSpots, int bikeSpots) throws Exception {
+        Connection con = getConnection();
+        try {
+            try (Statement statement = con.createStatement()) {
+                for (String sql : readScript("/h2-schema.sql").split(";")) {
+                    if (!sql.trim().isEmpty()) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?,true,?)")) {
+                for (int number = 1; number <= carSpots + bikeSpots; number++) {
+                    ps.setInt(1, number);
+                    ps.setString(2, number <= carSpots ? ParkingType.CAR.name() : ParkingType.BIKE.name());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } finally {
+            closeConnection(con);
+        }
+    }
+
+    /**
+     * Drops every table.
+     *
+     * @throws Exception if the tables cannot be dropped
+     */
+    public void dropSchema() throws Exception {
+        Connection con = getConnection();
+        try (Statement statement = con.createStatement()) {
+            statement.execute("drop all objects");
+        } finally {
+            closeConnection(con);
+        }
+    }
+
+    private static String readScript(String resource) throws Exception {
+        try (InputStream in = H2DataBaseConfig.class.getResourceAsStream(resource)) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
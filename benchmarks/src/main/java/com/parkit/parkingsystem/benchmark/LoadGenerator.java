@@ -0,0 +1,319 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemorySpotRepository;
+import com.parkit.parkingsystem.dao.InMemoryTicketRepository;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotRepository;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.GateRuntime;
+import com.parkit.parkingsystem.service.ParkingService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The LoadGenerator class drives a {@link ParkingService} with synthetic traffic through a {@link GateRuntime}, to
+ * size the hardware of a car park. Arrivals follow a Poisson process whose rate and share of regular plates come
+ * from a {@link TrafficProfile}; each vehicle let in leaves after an exponentially distributed stay. Events are sent
+ * when they are due whether or not the lanes keep up, and their latency is measured from that time, so an overloaded
+ * system shows up as growing latencies and full lanes rather than as a slower load.
+ * <p>
+ * The service runs on the in-memory repositories, on an embedded H2 database or on MySQL:
+ * <pre>
+ * java -cp target/benchmarks.jar com.parkit.parkingsystem.benchmark.LoadGenerator --backend memory --lanes 8
+ *     --rate 500 --duration 30 --profile rush-hour
+ * </pre>
+ */
+public class LoadGenerator {
+
+    /**
+     * Longest time the generator sleeps, so departures scheduled meanwhile are not sent late.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long DRAIN_TIMEOUT_MILLIS = 30000;
+
+    private final ParkingService parkingService;
+    private final int laneCount;
+    private final TrafficProfile profile;
+    private final double ratePerSecond;
+    private final long durationNanos;
+    private final long meanStayNanos;
+    private final int regularPlates;
+    private final double bikeShare;
+    private final long seed;
+
+    private final Set<String> parked = ConcurrentHashMap.newKeySet();
+    private final PriorityBlockingQueue<Departure> departures = new PriorityBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Creates a generator.
+     *
+     * @param parkingService the service under load
+     * @param laneCount      the number of gate lanes, each handling its events one at a time
+     * @param profile        the shape of the traffic
+     * @param ratePerSecond  the base arrival rate
+     * @param durationMillis the time during which arrivals are generated
+     * @param meanStayMillis the mean time a vehicle stays parked
+     * @param regularPlates  the number of regular vehicles coming back
+     * @param bikeShare      the share of bikes among the arrivals
+     * @param seed           the seed of the arrival sequence
+     */
+    public LoadGenerator(ParkingService parkingService, int laneCount, TrafficProfile profile, double ratePerSecond,
+                         long durationMillis, long meanStayMillis, int regularPlates, double bikeShare, long seed) {
+        this.parkingService = parkingService;
+        this.laneCount = laneCount;
+        this.profile = profile;
+        this.ratePerSecond = ratePerSecond;
+        this.durationNanos = TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        this.meanStayNanos = TimeUnit.MILLISECONDS.toNanos(meanStayMillis);
+        this.regularPlates = regularPlates;
+        this.bikeShare = bikeShare;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the traffic, then lets the vehicles still parked out without measuring them.
+     *
+     * @return the outcome of the run
+     */
+    public LoadReport run() {
+        LoadReport report = new LoadReport();
+        GateRuntime gateRuntime = new GateRuntime(parkingService, laneCount, GateRuntime.DEFAULT_LANE_CAPACITY,
+                laneCount, false);
+        SplittableRandom random = new SplittableRandom(seed);
+        double peakRatePerNano = ratePerSecond * profile.getPeakFactor() / 1e9;
+        int newPlates = 0;
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long nextArrival = start + exponential(random, peakRatePerNano);
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Departure departure = departures.peek();
+            if (departure != null && departure.dueNanos <= now) {
+                departures.poll();
+                exit(gateRuntime, departure, report);
+            } else if (nextArrival <= now) {
+                // Thinning: arrivals drawn at the peak rate are kept in proportion to the current rate
+                double progress = (double) (nextArrival - start) / durationNanos;
+                if (random.nextDouble() * profile.getPeakFactor() < profile.rateFactor(progress)) {
+                    String plate = null;
+                    ParkingType parkingType = null;
+                    if (regularPlates > 0 && random.nextDouble() < profile.getRegularShare()) {
+                        int regular = random.nextInt(regularPlates);
+                        plate = "R" + regular;
+                        parkingType = regular % 100 < bikeShare * 100 ? ParkingType.BIKE : ParkingType.CAR;
+                    }
+                    if (plate == null || !parked.add(plate)) {
+                        plate = "N" + newPlates++;
+                        parkingType = random.nextDouble() < bikeShare ? ParkingType.BIKE : ParkingType.CAR;
+                        parked.add(plate);
+                    }
+                    enter(gateRuntime, random.nextInt(laneCount), plate, parkingType, nextArrival, report);
+                }
+                nextArrival += exponential(random, peakRatePerNano);
+            } else {
+                long due = departure == null ? nextArrival : Math.min(nextArrival, departure.dueNanos);
+                LockSupport.parkNanos(Math.min(due - now, MAX_PARK_NANOS));
+            }
+        }
+        awaitPending();
+        report.elapsedNanos = System.nanoTime() - start;
+        gateRuntime.stop(DRAIN_TIMEOUT_MILLIS);
+
+        // Let the remaining vehicles out so a database is left as it was found
+        departures.clear();
+        for (String plate : parked) {
+            parkingService.exit(plate);
+        }
+        return report;
+    }
+
+    private void enter(GateRuntime gateRuntime, int lane, String plate, ParkingType parkingType, long dueNanos,
+                       LoadReport report) {
+        report.entries.increment();
+        pending.incrementAndGet();
+        CompletableFuture<EntryResult> result = gateRuntime.submitEntry(lane, plate, parkingType);
+        result.whenComplete((entry, e) -> {
+            try {
+                if (e != null) {
+                    report.laneFull.increment();
+                    parked.remove(plate);
+                    return;
+                }
+                report.entryLatency.recordSince(dueNanos);
+                if (entry.getStatus() == EntryResult.Status.ENTERED) {
+                    report.entered.increment();
+                    double stay = -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanStayNanos;
+                    departures.add(new Departure(plate, lane, System.nanoTime() + (long) stay));
+                } else {
+                    if (entry.getStatus() == EntryResult.Status.NO_SPOT_AVAILABLE) {
+                        report.noSpot.increment();
+                    } else {
+                        report.entryErrors.increment();
+                    }
+                    parked.remove(plate);
+                }
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private void exit(GateRuntime gateRuntime, Departure departure, LoadReport report) {
+        pending.incrementAndGet();
+        CompletableFuture<ExitResult> result = gateRuntime.submitExit(departure.lane, departure.plate);
+        result.whenComplete((exit, e) -> {
+            try {
+                if (e != null) {
+                    // Lane full: the vehicle tries again a little later
+                    departures.add(new Departure(departure.plate, departure.lane,
+                            System.nanoTime() + MAX_PARK_NANOS));
+                    return;
+                }
+                report.exitLatency.recordSince(departure.dueNanos);
+                if (exit.getStatus() == ExitResult.Status.EXITED) {
+                    report.exited.increment();
+                } else {
+                    report.exitErrors.increment();
+                }
+                parked.remove(departure.plate);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private void awaitPending() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+        }
+    }
+
+    private static long exponential(SplittableRandom random, double ratePerNano) {
+        return (long) (-Math.log(1 - random.nextDouble()) / ratePerNano);
+    }
+
+    /**
+     * A vehicle due to leave.
+     */
+    private static final class Departure implements Comparable<Departure> {
+        private final String plate;
+        private final int lane;
+        private final long dueNanos;
+
+        private Departure(String plate, int lane, long dueNanos) {
+            this.plate = plate;
+            this.lane = lane;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public int compareTo(Departure other) {
+            return Long.compare(dueNanos, other.dueNanos);
+        }
+    }
+
+    /**
+     * Runs a load test and prints its report. Options, with their default values:
+     * <ul>
+     * <li>--backend memory: memory, h2 or mysql,</li>
+     * <li>--lanes 4: the number of gate lanes,</li>
+     * <li>--rate 200: the base number of arrivals per second,</li>
+     * <li>--duration 10: the time during which arrivals are generated, in seconds,</li>
+     * <li>--profile poisson: poisson, rush-hour or recurring,</li>
+     * <li>--stay 2000: the mean stay of a vehicle, in milliseconds,</li>
+     * <li>--cars 500 and --bikes 100: the spots of the memory and h2 backends; mysql uses the parking table,</li>
+     * <li>--regulars 1000: the number of regular vehicles,</li>
+     * <li>--bike-share 0.15: the share of bikes among the arrivals,</li>
+     * <li>--seed 42: the seed of the arrival sequence,</li>
+     * <li>--db-url, --db-user, --db-password: the MySQL database, the production one by default.</li>
+     * </ul>
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String backend = options.getOrDefault("backend", "memory");
+        int cars = Integer.parseInt(options.getOrDefault("cars", "500"));
+        int bikes = Integer.parseInt(options.getOrDefault("bikes", "100"));
+
+        SpotRepository spotRepository;
+        TicketRepository ticketRepository;
+        DataBaseConfig dataBaseConfig = null;
+        if ("memory".equals(backend)) {
+            spotRepository = new InMemorySpotRepository(cars, bikes);
+            ticketRepository = new InMemoryTicketRepository();
+        } else {
+            if ("h2".equals(backend)) {
+                H2DataBaseConfig h2DataBaseConfig = new H2DataBaseConfig();
+                h2DataBaseConfig.createSchema(cars, bikes);
+                dataBaseConfig = h2DataBaseConfig;
+            } else if ("mysql".equals(backend)) {
+                dataBaseConfig = options.containsKey("db-url")
+                        ? new MySqlDataBaseConfig(options.get("db-url"), options.getOrDefault("db-user", "root"),
+                        options.getOrDefault("db-password", ""))
+                        : new DataBaseConfig();
+            } else {
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+            }
+            new SchemaMigrator(dataBaseConfig).migrate();
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            parkingSpotDAO.reloadAvailabilityIndex();
+            TicketDAO ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+            ticketDAO.reloadCaches();
+            spotRepository = parkingSpotDAO;
+            ticketRepository = ticketDAO;
+        }
+
+        TrafficProfile profile = TrafficProfile.fromName(options.getOrDefault("profile", "poisson"));
+        LoadGenerator loadGenerator = new LoadGenerator(new ParkingService(spotRepository, ticketRepository),
+                Integer.parseInt(options.getOrDefault("lanes", "4")), profile,
+                Double.parseDouble(options.getOrDefault("rate", "200")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("duration", "10"))),
+                Long.parseLong(options.getOrDefault("stay", "2000")),
+                Integer.parseInt(options.getOrDefault("regulars", "1000")),
+                Double.parseDouble(options.getOrDefault("bike-share", "0.15")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        System.out.println("Load test: backend " + backend + ", profile " + profile + ", " + options);
+        LoadReport report = loadGenerator.run();
+        report.print(System.out);
+
+        if (dataBaseConfig instanceof H2DataBaseConfig) {
+            ((H2DataBaseConfig) dataBaseConfig).dropSchema();
+        }
+        DataBaseConfig.shutdownPools();
+    }
+
+    /**
+     * Points the DAOs at the MySQL database given on the command line.
+     */
+    private static final class MySqlDataBaseConfig extends DataBaseConfig {
+        private MySqlDataBaseConfig(String url, String user, String password) {
+            super(url, user, password);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LoadReport class collects the outcome of a {@link LoadGenerator} run: the gate events by result, and the
+ * latency of entries and exits from the time they were due, so the time spent waiting in a busy lane is counted.
+ */
+public class LoadReport {
+
+    final LongAdder entries = new LongAdder();
+    final LongAdder entered = new LongAdder();
+    final LongAdder noSpot = new LongAdder();
+    final LongAdder laneFull = new LongAdder();
+    final LongAdder entryErrors = new LongAdder();
+    final LongAdder exited = new LongAdder();
+    final LongAdder exitErrors = new LongAdder();
+    final LatencyHistogram entryLatency = new LatencyHistogram("entry");
+    final LatencyHistogram exitLatency = new LatencyHistogram("exit");
+    volatile long elapsedNanos;
+
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    public long getEntered() {
+        return entered.sum();
+    }
+
+    /**
+     * Returns the number of entries refused because no spot of the vehicle's type was free.
+     */
+    public long getNoSpot() {
+        return noSpot.sum();
+    }
+
+    /**
+     * Returns the number of entries rejected because their lane was full.
+     */
+    public long getLaneFull() {
+        return laneFull.sum();
+    }
+
+    public long getExited() {
+        return exited.sum();
+    }
+
+    public long getErrors() {
+        return entryErrors.sum() + exitErrors.sum();
+    }
+
+    /**
+     * Returns the gate events handled per second, whatever their result.
+     */
+    public double getThroughput() {
+        long handled = entryLatency.getCount() + exitLatency.getCount();
+        return elapsedNanos == 0 ? 0 : handled * 1e9 / elapsedNanos;
+    }
+
+    public LatencyHistogram getEntryLatency() {
+        return entryLatency;
+    }
+
+    public LatencyHistogram getExitLatency() {
+        return exitLatency;
+    }
+
+    /**
+     * Prints the report as a table.
+     *
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "Duration        %10.1f s%n", elapsedNanos / 1e9);
+        out.printf(Locale.ROOT, "Throughput      %10.1f events/s%n", getThroughput());
+        out.printf(Locale.ROOT, "Entries         %10d (entered %d, no spot %d, lane full %d, errors %d)%n",
+                getEntries(), getEntered(), getNoSpot(), getLaneFull(), entryErrors.sum());
+        out.printf(Locale.ROOT, "Exits           %10d (errors %d)%n", getExited() + exitErrors.sum(),
+                exitErrors.sum());
+        out.printf(Locale.ROOT, "%-15s %10s %10s %10s %10s %10s%n", "latency (us)", "count", "p50", "p99", "p99.9",
+                "max");
+        printLatency(out, entryLatency);
+        printLatency(out, exitLatency);
+    }
+
+    private static void printLatency(PrintStream out, LatencyHistogram histogram) {
+        out.printf(Locale.ROOT, "%-15s %10d %10.1f %10.1f %10.1f %10.1f%n", histogram.getName(), histogram.getCount(),
+                histogram.getPercentileNanos(50) / 1000.0, histogram.getPercentileNanos(99) / 1000.0,
+                histogram.getPercentileNanos(99.9) / 1000.0, histogram.getMaxNanos() / 1000.0);
+    }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.InMemorySpotRepository;
+import com.parkit.parkingsystem.dao.InMemoryTicketRepository;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ParkingServiceBenchmark class measures an entry followed by the exit of the same vehicle through
+ * ParkingService, with the in-memory repositories. The console output of the service is discarded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingServiceBenchmark {
+
+    private static final int PLATES = 10000;
+
+    private ScriptedInputReader inputReader;
+    private ParkingService parkingService;
+    private String[] plates;
+    private int next;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        inputReader = new ScriptedInputReader();
+        parkingService = new ParkingService(inputReader, new InMemorySpotRepository(100, 100),
+                new InMemoryTicketRepository());
+        plates = new String[PLATES];
+        for (int i = 0; i < PLATES; i++) {
+            plates[i] = "AB" + i;
+        }
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void enterThenExit() {
+        inputReader.setVehicleRegNumber(plates[next]);
+        next = next + 1 == PLATES ? 0 : next + 1;
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+}
@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+/**
+ * The ScriptedInputReader class answers the console prompts of the ParkingService without a console:
+ * every vehicle is a car and the plate is the one last set by the benchmark.
+ */
+public class ScriptedInputReader extends InputReaderUtil {
+
+    private String vehicleRegNumber = "";
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return 1;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
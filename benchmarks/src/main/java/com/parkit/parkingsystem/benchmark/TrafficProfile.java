@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.benchmark;
+
+/**
+ * The TrafficProfile enum describes the arrivals simulated by the {@link LoadGenerator}: how their rate changes over
+ * the run, and which share of them are regular vehicles coming back with a known plate.
+ */
+public enum TrafficProfile {
+
+    /**
+     * Arrivals at a constant rate, every vehicle seen for the first time.
+     */
+    POISSON(0.0, 1.0),
+
+    /**
+     * A morning peak: the rate rises to three times the base rate in the middle of the run, and a third of the
+     * vehicles are regulars.
+     */
+    RUSH_HOUR(0.3, 3.0),
+
+    /**
+     * Arrivals at a constant rate, mostly regulars, which exercises the recurring-user discount and the visit counts.
+     */
+    RECURRING(0.8, 1.0);
+
+    private final double regularShare;
+    private final double peakFactor;
+
+    TrafficProfile(double regularShare, double peakFactor) {
+        this.regularShare = regularShare;
+        this.peakFactor = peakFactor;
+    }
+
+    /**
+     * Returns the share of arrivals using the plate of a regular vehicle.
+     */
+    public double getRegularShare() {
+        return regularShare;
+    }
+
+    /**
+     * Returns the highest value of {@link #rateFactor(double)}.
+     */
+    public double getPeakFactor() {
+        return peakFactor;
+    }
+
+    /**
+     * Returns the arrival rate at a point of the run, as a multiple of the base rate.
+     *
+     * @param progress the elapsed share of the run, from 0 to 1
+     * @return the rate factor, from 1 to {@link #getPeakFactor()}
+     */
+    public double rateFactor(double progress) {
+        if (peakFactor == 1.0) {
+            return 1.0;
+        }
+        double distance = (progress - 0.5) / 0.15;
+        return 1.0 + (peakFactor - 1.0) * Math.exp(-distance * distance);
+    }
+
+    /**
+     * Returns the profile with the given command line name, such as rush-hour.
+     *
+     * @param name the name, in any case, with dashes or underscores
+     * @return the profile
+     * @throws IllegalArgumentException if no profile has that name
+     */
+    public static TrafficProfile fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
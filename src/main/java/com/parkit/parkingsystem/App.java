@@ -1,22 +1,96 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.JournalSnapshot;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateServer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.RepricingReport;
+import com.parkit.parkingsystem.service.RepricingService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+
 /**
  * The App class represents the entry point of the Parking System application.
  * It initializes the application and loads the user interface for interaction.
  */
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
+
+    /**
+     * Command line option repricing the closed tickets with a new tariff file instead of starting the shell:
+     * --reprice &lt;tariff file&gt; [--dry-run]
+     */
+    private static final String REPRICE_OPTION = "--reprice";
+    private static final String DRY_RUN_OPTION = "--dry-run";
+
+    /**
+     * Command line option serving the gate terminals over HTTP instead of starting the shell.
+     */
+    private static final String SERVER_OPTION = "--server";
+
+    /**
+     * Command line option printing the state rebuilt from a gate event journal: --replay-journal &lt;directory&gt;
+     */
+    private static final String REPLAY_JOURNAL_OPTION = "--replay-journal";
+
     /**
      * The App class represents the entry point of the Parking System application.
      * It initializes the application and loads the user interface for interaction.
      */
     public static void main(String[] args){
         logger.info("Initializing Parking System");
+        if (args.length > 1 && REPRICE_OPTION.equals(args[0])) {
+            reprice(args[1], args.length > 2 && DRY_RUN_OPTION.equals(args[2]));
+            return;
+        }
+        if (args.length > 1 && REPLAY_JOURNAL_OPTION.equals(args[0])) {
+            replayJournal(args[1]);
+            return;
+        }
+        if (args.length > 0 && SERVER_OPTION.equals(args[0])) {
+            GateServer.launch();
+            return;
+        }
         InteractiveShell.loadInterface();
     }
-}
 
+    /**
+     * Reprices every closed ticket with the tariffs of the given file and prints the report.
+     */
+    private static void reprice(String tariffFile, boolean dryRun) {
+        try {
+            FareCalculatorService newFares = new FareCalculatorService(TariffConfig.read(tariffFile));
+            RepricingService repricingService = new RepricingService(new TicketDAO(), new FareCalculatorService(), newFares);
+            repricingService.setDryRun(dryRun);
+            RepricingReport report = repricingService.reprice();
+            System.out.println(report);
+        } catch (Exception ex) {
+            logger.error("Error repricing tickets", ex);
+        } finally {
+            DataBaseConfig.shutdownPools();
+        }
+    }
+
+    /**
+     * Prints every event of a gate event journal, then the vehicles still parked according to it.
+     */
+    private static void replayJournal(String directory) {
+        try {
+            long count = GateEventJournal.replay(new File(directory), System.out::println);
+            JournalSnapshot snapshot = GateEventJournal.readSnapshot(new File(directory));
+            System.out.println(count + " events, " + snapshot.getOpenEntries().size() + " vehicles parked");
+            for (ParkingEvent entry : snapshot.getOpenEntries().values()) {
+                System.out.println(entry.getVehicleRegNumber() + " in spot " + entry.getParkingNumber());
+            }
+        } catch (Exception ex) {
+            logger.error("Error replaying gate event journal", ex);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The CircuitBreaker class stops calls to a database that keeps failing, so callers fail at once instead of each
+ * waiting for its own timeout.
+ * The breaker is closed while the database answers. After a number of consecutive failures it opens and refuses
+ * every call for a while; then it lets a single trial call through (half-open) and closes again if that call
+ * succeeds, or stays open for another period if it fails.
+ */
+public class CircuitBreaker implements CircuitBreakerMXBean {
+
+    /**
+     * Default number of consecutive failures opening the breaker.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /**
+     * Default time calls are refused once the breaker opens, before a trial call is let through.
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 5000;
+
+    private static final Logger logger = LogManager.getLogger("CircuitBreaker");
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final LongSupplier clock;
+    private volatile int failureThreshold;
+    private volatile long openMillis;
+
+    // Guarded by this object's monitor
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private long tripCount;
+    private long rejectedCount;
+
+    /**
+     * Creates a closed breaker with the default settings.
+     *
+     * @param name the name of the protected resource, used in the log
+     */
+    public CircuitBreaker(String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param name             the name of the protected resource, used in the log
+     * @param failureThreshold the number of consecutive failures opening the breaker
+     * @param openMillis       the time calls are refused once the breaker opens
+     * @param clock            the source of the current time, in milliseconds
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Tells whether a call may go to the resource. Once the open period is over, the first caller is let through
+     * as the trial call; the others are refused until it reports its outcome.
+     *
+     * @return true if the call may proceed, false if it must fail at once
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && clock.getAsLong() - openedAtMillis >= openMillis) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * Tells whether calls are currently refused, without taking the trial call. Callers having a local fallback
+     * use it to skip the resource altogether.
+     *
+     * @return true if the breaker is open and its open period is not over, or a trial call is running
+     */
+    public synchronized boolean isOpen() {
+        return state == State.HALF_OPEN
+                || (state == State.OPEN && clock.getAsLong() - openedAtMillis < openMillis);
+    }
+
+    /**
+     * Records a successful call, closing the breaker.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            logger.info("Circuit breaker of {} closed, calls go through again", name);
+        }
+    }
+
+    /**
+     * Records a failed call, opening the breaker when the threshold is reached or when the trial call failed.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                tripCount++;
+                logger.warn("Circuit breaker of {} opened after {} consecutive failures", name, consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAtMillis = clock.getAsLong();
+        }
+    }
+
+    @Override
+    public synchronized String getState() {
+        return state.name();
+    }
+
+    @Override
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    @Override
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    @Override
+    public void setFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+    }
+
+    @Override
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    @Override
+    public void setOpenMillis(long openMillis) {
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("openMillis must not be negative");
+        }
+        this.openMillis = openMillis;
+    }
+
+    @Override
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    @Override
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public synchronized void reset() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+}
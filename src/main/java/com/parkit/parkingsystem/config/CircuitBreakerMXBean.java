@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * The CircuitBreakerMXBean interface is the JMX view of the {@link CircuitBreaker} of a database: its state, its
+ * counters, and its settings, which operators may tune while the application runs.
+ */
+public interface CircuitBreakerMXBean {
+
+    /**
+     * Returns CLOSED while the database is used, OPEN while calls are refused and HALF_OPEN while a trial call runs.
+     */
+    String getState();
+
+    int getConsecutiveFailures();
+
+    int getFailureThreshold();
+
+    void setFailureThreshold(int failureThreshold);
+
+    long getOpenMillis();
+
+    void setOpenMillis(long openMillis);
+
+    /**
+     * Returns the number of times the breaker opened.
+     */
+    long getTripCount();
+
+    /**
+     * Returns the number of calls refused without reaching the database.
+     */
+    long getRejectedCount();
+
+    /**
+     * Closes the breaker, so the next call goes to the database.
+     */
+    void reset();
+}
@@ -0,0 +1,610 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ConnectionPool class keeps a bounded set of physical database connections and lends them out to the DAOs.
+ * Borrowers wait in a fair FIFO queue when every connection is in use, idle connections are validated before
+ * being handed out again, and connections idle for longer than the idle timeout are evicted down to the minimum size.
+ * The pool is filled up to the minimum size when created and after each eviction pass, so the first borrows after an
+ * idle period or a broken connection do not pay the connection handshake.
+ * Borrowed connections are proxies: calling close() on them returns the physical connection to the pool, after
+ * closing the statements the borrower left open.
+ * Connection-level failures of borrowed connections and of their statements, such as a timeout or a lost link to the
+ * server, are reported to the {@link ConnectionFailureListener} if one is set.
+ */
+public class ConnectionPool implements ConnectionPoolMXBean {
+
+    /**
+     * Default number of connections the pool keeps open even when idle.
+     */
+    public static final int DEFAULT_MIN_SIZE = 2;
+
+    /**
+     * Default maximum number of connections open at the same time.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10;
+
+    /**
+     * Default time after which an idle connection above the minimum size is closed (5 minutes).
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
+    /**
+     * Default time a borrower waits for a free connection before giving up.
+     */
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5 * 1000L;
+
+    /**
+     * Default timeout, in seconds, of the validation performed on borrow.
+     */
+    public static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * A connection returned to the pool less than this long ago is handed out again without validation.
+     */
+    static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Told when a borrowed connection or one of its statements fails because the database is slow or unreachable.
+     */
+    public interface ConnectionFailureListener {
+        void connectionFailed(SQLException failure);
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int minSize;
+    private volatile int maxSize;
+    private final long idleTimeoutMillis;
+    private volatile long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+
+    /**
+     * One permit per connection that may be lent out. The semaphore is fair so waiting borrowers are served in order.
+     */
+    private final ResizableSemaphore permits;
+
+    /**
+     * Idle physical connections, most recently returned first so the warmest connection is reused.
+     */
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+
+    private volatile ConnectionFailureListener connectionFailureListener;
+    private volatile ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool using the default sizes and timeouts.
+     *
+     * @param connectionFactory the factory opening physical connections
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory) {
+        this(connectionFactory, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS,
+                DEFAULT_BORROW_TIMEOUT_MILLIS, DEFAULT_VALIDATION_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Creates a pool. The minimum number of connections is opened in the background, so creating the pool never
+     * waits for the database.
+     *
+     * @param connectionFactory        the factory opening physical connections
+     * @param minSize                  the number of connections kept open when idle
+     * @param maxSize                  the maximum number of connections open at the same time
+     * @param idleTimeoutMillis        the idle time after which a connection above the minimum size is closed
+     * @param borrowTimeoutMillis      the maximum time a borrower waits for a free connection
+     * @param validationTimeoutSeconds the timeout of the validation performed on borrow
+     * @throws IllegalArgumentException if the sizes are inconsistent
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory, int minSize, int maxSize, long idleTimeoutMillis,
+                          long borrowTimeoutMillis, int validationTimeoutSeconds) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.connectionFactory = connectionFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new ResizableSemaphore(maxSize);
+        if (minSize > 0) {
+            startEvictor();
+            evictor.execute(this::fillToMinSize);
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     * The caller must close the returned connection to give it back.
+     *
+     * @return a pooled connection
+     * @throws SQLException if the pool is closed, if no connection became free in time or if opening one failed
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        startEvictor();
+        long timeoutMillis = borrowTimeoutMillis;
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + timeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = new PooledConnection(connectionFactory.create());
+                totalConnections.incrementAndGet();
+                createdCount.incrementAndGet();
+            }
+            borrowCount.incrementAndGet();
+            return pooled.lend();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the most recently returned idle connection that is still valid, closing the invalid ones on the way.
+     *
+     * @return a valid idle connection, or null if none is available
+     */
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            if (isValid(pooled)) {
+                return pooled;
+            }
+            validationFailureCount.incrementAndGet();
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturnedMillis < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            logger.error("Error while validating pooled connection", e);
+            return false;
+        }
+    }
+
+    /**
+     * Gives a connection back to the pool once its proxy has been closed.
+     * Statements left open are closed, connections left in a transaction are rolled back, and broken connections are
+     * closed instead of being kept.
+     *
+     * @param pooled     the connection given back
+     * @param statements the statements created during the loan
+     */
+    private void giveBack(PooledConnection pooled, List<Statement> statements) {
+        try {
+            closeStatements(statements);
+            // Connections above the size are closed after a shrink
+            boolean reusable = !closed && totalConnections.get() <= maxSize && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.lastReturnedMillis = System.currentTimeMillis();
+                idleConnections.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            logger.error("Error while returning connection to the pool", e);
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the statements a borrower left open, so their cursors and server-side resources do not pile up on a
+     * connection that stays open in the pool. Closing a statement already closed has no effect.
+     */
+    private static void closeStatements(List<Statement> statements) {
+        int leaked = 0;
+        for (Statement statement : statements) {
+            try {
+                if (!statement.isClosed()) {
+                    leaked++;
+                    statement.close();
+                }
+            } catch (SQLException e) {
+                logger.error("Error while closing statement left open", e);
+            }
+        }
+        if (leaked > 0) {
+            logger.debug("Closed {} statements left open by the borrower", leaked);
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Closes the idle connections that exceeded the idle timeout, keeping at least the minimum size open.
+     */
+    void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledConnection pooled = iterator.next();
+            if (totalConnections.get() <= minSize) {
+                return;
+            }
+            if (now - pooled.lastReturnedMillis >= idleTimeoutMillis && idleConnections.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    /**
+     * Opens idle connections until the pool holds the minimum size, without taking the permit of a waiting borrower.
+     * A connection that fails to open ends the attempt; the next eviction pass tries again.
+     */
+    private void fillToMinSize() {
+        try {
+            // A timed tryAcquire, unlike tryAcquire(), respects the fairness of the semaphore
+            while (!closed && totalConnections.get() < minSize && permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                try {
+                    PooledConnection pooled = new PooledConnection(connectionFactory.create());
+                    totalConnections.incrementAndGet();
+                    createdCount.incrementAndGet();
+                    pooled.lastReturnedMillis = System.currentTimeMillis();
+                    idleConnections.offerLast(pooled);
+                    if (closed && idleConnections.remove(pooled)) {
+                        destroy(pooled);
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    logger.error("Error while opening connections up to the pool minimum size", e);
+                    return;
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startEvictor() {
+        if (evictor == null && (idleTimeoutMillis > 0 || minSize > 0)) {
+            synchronized (this) {
+                if (evictor == null) {
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "connection-pool-evictor");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    if (idleTimeoutMillis > 0) {
+                        long period = Math.max(1000L, idleTimeoutMillis / 2);
+                        executor.scheduleWithFixedDelay(() -> {
+                            evictIdleConnections();
+                            fillToMinSize();
+                        }, period, period, TimeUnit.MILLISECONDS);
+                    }
+                    evictor = executor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and refuses further borrows. Borrowed connections are closed when given back.
+     */
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Sets the listener told about connection-level failures. Statements are then wrapped to watch their failures.
+     *
+     * @param connectionFailureListener the listener, or null to stop reporting failures
+     */
+    public void setConnectionFailureListener(ConnectionFailureListener connectionFailureListener) {
+        this.connectionFailureListener = connectionFailureListener;
+    }
+
+    /**
+     * Reports a failure to the listener if it comes from the connection rather than from the SQL: SQL state class
+     * 08 (connection exception), a transient connection failure or a timeout.
+     */
+    private void reportFailure(Throwable failure) {
+        ConnectionFailureListener listener = connectionFailureListener;
+        if (listener != null && failure instanceof SQLException) {
+            SQLException sqlException = (SQLException) failure;
+            String sqlState = sqlException.getSQLState();
+            if (sqlException instanceof SQLTimeoutException || sqlException instanceof SQLTransientConnectionException
+                    || sqlState != null && sqlState.startsWith("08")) {
+                listener.connectionFailed(sqlException);
+            }
+        }
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize <= 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        int delta = maxSize - this.maxSize;
+        this.maxSize = maxSize;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            // Permits of borrowed connections are taken back as those connections are returned
+            permits.reducePermits(-delta);
+            PooledConnection pooled;
+            while (totalConnections.get() > maxSize && (pooled = idleConnections.pollLast()) != null) {
+                destroy(pooled);
+            }
+        }
+        logger.info("Connection pool resized to {} connections", maxSize);
+    }
+
+    @Override
+    public int getMinSize() {
+        return minSize;
+    }
+
+    @Override
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    @Override
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        if (borrowTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid borrow timeout: " + borrowTimeoutMillis);
+        }
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return Math.max(0, totalConnections.get() - idleConnections.size());
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    @Override
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    @Override
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @Override
+    public long getValidationFailureCount() {
+        return validationFailureCount.get();
+    }
+
+    /**
+     * Returns a snapshot of the pool counters.
+     *
+     * @return the current pool statistics
+     */
+    public PoolStats getStats() {
+        int idle = idleConnections.size();
+        int total = totalConnections.get();
+        return new PoolStats(maxSize, total, idle, Math.max(0, total - idle), permits.getQueueLength(),
+                borrowCount.get(), createdCount.get(), destroyedCount.get(), timeoutCount.get(),
+                validationFailureCount.get());
+    }
+
+    /**
+     * A fair semaphore whose number of permits can be lowered while permits are held.
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        private ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturnedMillis;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Wraps the physical connection in a proxy whose close() gives it back to the pool exactly once.
+         */
+        private Connection lend() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new LentConnectionHandler(this));
+        }
+    }
+
+    /**
+     * Forwards every call to the physical connection, except close() and isClosed() which act on the loan.
+     * The statements it creates are remembered until the loan ends.
+     */
+    private final class LentConnectionHandler implements InvocationHandler {
+
+        /**
+         * Number of statements remembered after which the closed ones are forgotten, for borrowers that keep a
+         * connection for a long time and close their statements.
+         */
+        private static final int STATEMENT_PRUNE_THRESHOLD = 32;
+
+        private final PooledConnection pooled;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean returned;
+
+        private LentConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (!returned) {
+                    returned = true;
+                    giveBack(pooled, statements);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return returned || pooled.physical.isClosed();
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    track((Statement) result);
+                }
+                if (result instanceof Statement && connectionFailureListener != null) {
+                    // Statement, PreparedStatement or CallableStatement, as declared by the method called
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{method.getReturnType()}, new StatementHandler((Statement) result));
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                reportFailure(e.getCause());
+                throw e.getCause();
+            }
+        }
+
+        private void track(Statement statement) throws SQLException {
+            if (statements.size() >= STATEMENT_PRUNE_THRESHOLD) {
+                for (Iterator<Statement> iterator = statements.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next().isClosed()) {
+                        iterator.remove();
+                    }
+                }
+            }
+            statements.add(statement);
+        }
+    }
+
+    /**
+     * Forwards every call to a statement of a lent connection, reporting its connection-level failures.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+
+        private StatementHandler(Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                reportFailure(e.getCause());
+                throw e.getCause();
+            }
+        }
+    }
+}
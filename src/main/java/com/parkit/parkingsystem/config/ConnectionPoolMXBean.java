@@ -0,0 +1,45 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * The ConnectionPoolMXBean interface is the JMX view of a {@link ConnectionPool}: its live counters, and the sizes
+ * operators may tune while the application runs.
+ */
+public interface ConnectionPoolMXBean {
+
+    int getMaxSize();
+
+    /**
+     * Changes the maximum number of connections open at the same time. When shrinking, idle connections above the new
+     * size are closed at once and borrowed ones as they are given back.
+     *
+     * @param maxSize the new maximum size, at least the minimum size and at least 1
+     */
+    void setMaxSize(int maxSize);
+
+    int getMinSize();
+
+    long getBorrowTimeoutMillis();
+
+    void setBorrowTimeoutMillis(long borrowTimeoutMillis);
+
+    int getTotalConnections();
+
+    int getIdleConnections();
+
+    int getActiveConnections();
+
+    /**
+     * Returns the number of borrowers waiting for a free connection.
+     */
+    int getWaitingThreads();
+
+    long getBorrowCount();
+
+    long getCreatedCount();
+
+    long getDestroyedCount();
+
+    long getTimeoutCount();
+
+    long getValidationFailureCount();
+}
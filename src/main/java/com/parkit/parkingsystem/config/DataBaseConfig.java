@@ -1,27 +1,214 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.parkit.parkingsystem.util.LatencyMetrics;
+import com.parkit.parkingsystem.util.ManagementBeans;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.management.ObjectName;
 import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The DataBaseConfig class provides methods for managing database connections and closing resources.
+ * Connections are borrowed from a {@link ConnectionPool} shared by every DataBaseConfig pointing at the same database,
+ * so DAOs no longer pay a TCP and authentication handshake on each call.
+ * A {@link CircuitBreaker} per database makes connection requests fail at once while the database is unreachable,
+ * instead of each one waiting for the connect timeout; DAOs then switch to their offline mode. The breaker counts the
+ * failures to get a connection and the connection-level failures of statements, bounded by the socket timeout.
  */
 public class DataBaseConfig {
 
     // The logger instance for logging database operations
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private static final LatencyHistogram GET_CONNECTION_LATENCY =
+            LatencyMetrics.histogram("DataBaseConfig.getConnection");
+
+    /**
+     * The connection pools, one per JDBC URL, shared by all DataBaseConfig instances.
+     */
+    private static final ConcurrentMap<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * The circuit breakers, one per JDBC URL, shared by all DataBaseConfig instances.
+     */
+    private static final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * Default time, in milliseconds, a new physical connection may take to open, overridden by the
+     * parkit.db.connectTimeoutMillis system property.
+     */
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Default time, in milliseconds, a statement may wait for the server to answer, overridden by the
+     * parkit.db.socketTimeoutMillis system property.
+     */
+    private static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 10000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    /**
+     * Creates a configuration for the production database.
+     */
+    public DataBaseConfig() {
+        this("jdbc:mysql://localhost:3306/prod", "root", "rootroot");
+    }
+
+    /**
+     * Creates a configuration for the given database.
+     *
+     * @param url      the JDBC URL of the database
+     * @param user     the database user
+     * @param password the password of the database user
+     */
+    protected DataBaseConfig(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
     /** * Retrieves a connection to the database. * * @return a Connection object representing a
      *  connection to the database * @throws ClassNotFoundException if the MySQL JDBC driver
-     *  is not found * @throws SQLException if an error occurs while establishing the connection
+     *  is not found * @throws SQLException if an error occurs while establishing the connection,
+     *  or at once if the circuit breaker of the database is open
      *  */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        long startNanos = System.nanoTime();
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Borrow DB connection");
+            }
+            CircuitBreaker circuitBreaker = getCircuitBreaker();
+            if (!circuitBreaker.tryAcquire()) {
+                throw new SQLTransientConnectionException("Database unavailable, circuit breaker open: " + url);
+            }
+            try {
+                Connection con = getPool().borrow();
+                circuitBreaker.recordSuccess();
+                return con;
+            } catch (SQLException e) {
+                circuitBreaker.recordFailure();
+                throw e;
+            }
+        } finally {
+            GET_CONNECTION_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Tells whether the database is considered unreachable, so callers with a local fallback should use it without
+     * asking for a connection.
+     *
+     * @return true while the circuit breaker of the database refuses connection requests
+     */
+    public boolean isOffline() {
+        return getCircuitBreaker().isOpen();
+    }
+
+    /**
+     * Returns the circuit breaker guarding this configuration's database, creating it on first use and publishing
+     * it over JMX. Its settings are read from the parkit.db.failureThreshold and parkit.db.openMillis system
+     * properties.
+     *
+     * @return the circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(url);
+        if (circuitBreaker == null) {
+            circuitBreaker = circuitBreakers.computeIfAbsent(url, key -> {
+                CircuitBreaker created = new CircuitBreaker(url,
+                        Integer.getInteger("parkit.db.failureThreshold", CircuitBreaker.DEFAULT_FAILURE_THRESHOLD),
+                        Long.getLong("parkit.db.openMillis", CircuitBreaker.DEFAULT_OPEN_MILLIS),
+                        System::currentTimeMillis);
+                ManagementBeans.register(circuitBreakerBeanName(url), created);
+                return created;
+            });
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the pool serving this configuration's database, creating it on first use and publishing it over JMX.
+     *
+     * @return the connection pool
+     * @throws ClassNotFoundException if the MySQL JDBC driver is not found
+     */
+    protected ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool pool = pools.get(url);
+        if (pool == null) {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+            Properties properties = getConnectionProperties();
+            pool = pools.computeIfAbsent(url, key -> {
+                ConnectionPool created = new ConnectionPool(() -> DriverManager.getConnection(url, properties));
+                CircuitBreaker circuitBreaker = getCircuitBreaker();
+                created.setConnectionFailureListener(failure -> circuitBreaker.recordFailure());
+                ManagementBeans.register(poolBeanName(url), created);
+                return created;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the properties new physical connections are opened with: the credentials and, for MySQL, the connect
+     * and socket timeouts. They bound the time an unreachable or hung server holds a gate, per connection rather than
+     * through the JVM-wide DriverManager login timeout.
+     *
+     * @return the connection properties
+     */
+    protected Properties getConnectionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        if (url.startsWith("jdbc:mysql:")) {
+            properties.setProperty("connectTimeout", String.valueOf(
+                    Integer.getInteger("parkit.db.connectTimeoutMillis", DEFAULT_CONNECT_TIMEOUT_MILLIS)));
+            properties.setProperty("socketTimeout", String.valueOf(
+                    Integer.getInteger("parkit.db.socketTimeoutMillis", DEFAULT_SOCKET_TIMEOUT_MILLIS)));
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the statistics of the pool serving this configuration's database.
+     *
+     * @return the pool statistics, or null if no connection was ever requested
+     */
+    public PoolStats getPoolStats() {
+        ConnectionPool pool = pools.get(url);
+        return pool == null ? null : pool.getStats();
+    }
+
+    /**
+     * Closes every connection pool. Used when the application shuts down.
+     */
+    public static void shutdownPools() {
+        for (Map.Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            logger.info("Closing connection pool: {}", entry.getValue().getStats());
+            entry.getValue().close();
+            ManagementBeans.unregister(poolBeanName(entry.getKey()));
+        }
+        pools.clear();
+        for (String url : circuitBreakers.keySet()) {
+            ManagementBeans.unregister(circuitBreakerBeanName(url));
+        }
+        circuitBreakers.clear();
+    }
+
+    private static String poolBeanName(String url) {
+        return "type=ConnectionPool,url=" + ObjectName.quote(url);
+    }
+
+    private static String circuitBreakerBeanName(String url) {
+        return "type=CircuitBreaker,url=" + ObjectName.quote(url);
     }
 
     /**
@@ -33,7 +220,9 @@ public class DataBaseConfig {
         if(con!=null){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Returning DB connection to the pool");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -49,7 +238,9 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Closing Prepared Statement");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -66,7 +257,9 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Closing Result Set");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
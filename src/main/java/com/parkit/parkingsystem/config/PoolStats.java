@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * The PoolStats class is an immutable snapshot of the counters kept by a {@link ConnectionPool}.
+ */
+public class PoolStats {
+
+    private final int maxSize;
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int waitingThreads;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long timeoutCount;
+    private final long validationFailureCount;
+
+    public PoolStats(int maxSize, int totalConnections, int idleConnections, int activeConnections,
+                     int waitingThreads, long borrowCount, long createdCount, long destroyedCount,
+                     long timeoutCount, long validationFailureCount) {
+        this.maxSize = maxSize;
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.waitingThreads = waitingThreads;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.timeoutCount = timeoutCount;
+        this.validationFailureCount = validationFailureCount;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{max=" + maxSize
+                + ", total=" + totalConnections
+                + ", idle=" + idleConnections
+                + ", active=" + activeConnections
+                + ", waiting=" + waitingThreads
+                + ", borrowed=" + borrowCount
+                + ", created=" + createdCount
+                + ", destroyed=" + destroyedCount
+                + ", timeouts=" + timeoutCount
+                + ", validationFailures=" + validationFailureCount + "}";
+    }
+}
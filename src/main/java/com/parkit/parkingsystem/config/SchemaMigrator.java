@@ -0,0 +1,221 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The SchemaMigrator class brings the database schema up to date when the application starts.
+ * Migrations are SQL scripts stored under db/migration on the classpath, named V&lt;version&gt;__&lt;description&gt;.sql.
+ * The versions already applied are recorded in the schema_version table, so each script runs exactly once.
+ * DDL statements auto-commit one by one, so a script that failed halfway is run again on the next start: adding a
+ * column or creating an index that already exists is skipped, and data changes are written to be safe to repeat.
+ */
+public class SchemaMigrator {
+
+    /**
+     * The migration scripts, in the order they must be applied.
+     */
+    private static final String[] MIGRATIONS = {
+            "V1__index_ticket_vehicle_in_time.sql",
+            "V2__index_parking_type_available.sql",
+            "V3__parking_current_ticket.sql"
+    };
+
+    private static final String MIGRATION_LOCATION = "/db/migration/";
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    private static final Pattern ADD_COLUMN =
+            Pattern.compile("(?is)alter\\s+table\\s+(\\w+)\\s+add\\s+column\\s+(\\w+)\\b.*");
+
+    private static final Pattern CREATE_INDEX =
+            Pattern.compile("(?is)create\\s+(?:unique\\s+)?index\\s+(\\w+)\\s+on\\s+(\\w+)\\b.*");
+
+    private final DataBaseConfig dataBaseConfig;
+
+    /**
+     * Creates a migrator for the given database.
+     *
+     * @param dataBaseConfig the database to migrate
+     */
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Applies every migration newer than the current schema version.
+     *
+     * @return true if the schema is up to date
+     */
+    public boolean migrate() {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            Statement statement = con.createStatement();
+            statement.execute(DBConstants.CREATE_SCHEMA_VERSION);
+            statement.close();
+            int currentVersion = getCurrentVersion(con);
+            for (String migration : MIGRATIONS) {
+                int version = parseVersion(migration);
+                if (version > currentVersion) {
+                    apply(con, migration, version);
+                }
+            }
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error migrating database schema", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Returns the version of the most recent migration applied to the database.
+     *
+     * @return the schema version, 0 if no migration was applied, or -1 if it could not be read
+     */
+    public int getCurrentVersion() {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return getCurrentVersion(con);
+        } catch (Exception ex) {
+            logger.error("Error reading database schema version", ex);
+            return -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Returns the version of the most recent migration.
+     *
+     * @return the latest schema version known to the application
+     */
+    public static int getLatestVersion() {
+        return parseVersion(MIGRATIONS[MIGRATIONS.length - 1]);
+    }
+
+    private int getCurrentVersion(Connection con) throws Exception {
+        PreparedStatement ps = con.prepareStatement(DBConstants.GET_SCHEMA_VERSION);
+        ResultSet rs = ps.executeQuery();
+        int version = rs.next() ? rs.getInt(1) : 0;
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        return version;
+    }
+
+    /**
+     * Runs the statements of a migration script, then records its version.
+     */
+    private void apply(Connection con, String migration, int version) throws Exception {
+        logger.info("Applying schema migration {}", migration);
+        Statement statement = con.createStatement();
+        for (String sql : readStatements(migration)) {
+            if (isAlreadyApplied(con, sql)) {
+                logger.info("Skipping statement of {} already applied: {}", migration, sql);
+            } else {
+                statement.execute(sql);
+            }
+        }
+        statement.close();
+
+        PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION);
+        ps.setInt(1, version);
+        ps.setString(2, migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')));
+        ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    /**
+     * Tells whether a statement adding a column or creating an index has already taken effect, as it has when a
+     * previous run of its script failed on a later statement.
+     */
+    private static boolean isAlreadyApplied(Connection con, String sql) throws Exception {
+        DatabaseMetaData metaData = con.getMetaData();
+        Matcher addColumn = ADD_COLUMN.matcher(sql);
+        if (addColumn.matches()) {
+            try (ResultSet rs = metaData.getColumns(con.getCatalog(), null,
+                    identifier(metaData, addColumn.group(1)), identifier(metaData, addColumn.group(2)))) {
+                return rs.next();
+            }
+        }
+        Matcher createIndex = CREATE_INDEX.matcher(sql);
+        if (createIndex.matches()) {
+            String index = createIndex.group(1);
+            try (ResultSet rs = metaData.getIndexInfo(con.getCatalog(), null,
+                    identifier(metaData, createIndex.group(2)), false, false)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts an unquoted identifier to the case the database stores it in.
+     */
+    private static String identifier(DatabaseMetaData metaData, String name) throws Exception {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        if (metaData.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+
+    /**
+     * Reads a migration script and splits it into statements, dropping comments.
+     */
+    static List<String> readStatements(String migration) throws IOException {
+        InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_LOCATION + migration);
+        if (in == null) {
+            throw new IOException("Migration script not found: " + migration);
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        String script = new String(content.toByteArray(), StandardCharsets.UTF_8).replaceAll("(?s)/\\*.*?\\*/", "");
+        List<String> statements = new ArrayList<>();
+        for (String sql : script.split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    private static int parseVersion(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+}
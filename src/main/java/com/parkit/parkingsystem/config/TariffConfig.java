@@ -0,0 +1,313 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Tariff;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The TariffConfig class loads the pricing of the parking lot from a properties file and compiles one
+ * {@link Tariff} per parking type.
+ * The file is tariffs.properties on the classpath, unless the parkit.tariffs system property names another file.
+ * For each parking type, in lower case, it reads:
+ * <ul>
+ * <li>&lt;type&gt;.ratePerHourCents: the hourly rate, in cents</li>
+ * <li>&lt;type&gt;.bands: time-of-day bands overriding that rate, as HH:mm-HH:mm@cents separated by commas;
+ * a band may wrap past midnight</li>
+ * <li>&lt;type&gt;.tiers: elapsed-time tiers, as minutes@percent separated by commas; the full rate applies
+ * before the first tier</li>
+ * <li>&lt;type&gt;.dailyCapCents: the maximum charged for each 24 hours of stay, 0 for no cap</li>
+ * </ul>
+ * and globally freeMinutes, recurringUserPercent and timeZone (the zone of the bands, the system zone if empty).
+ */
+public class TariffConfig {
+
+    public static final String DEFAULT_LOCATION = "/tariffs.properties";
+
+    /**
+     * System property naming a tariff file to use instead of the one on the classpath.
+     */
+    public static final String LOCATION_PROPERTY = "parkit.tariffs";
+
+    private static final Logger logger = LogManager.getLogger("TariffConfig");
+
+    private static volatile TariffConfig defaultConfig;
+
+    /**
+     * The compiled tariffs, indexed by parking type ordinal.
+     */
+    private final Tariff[] tariffs;
+
+    private final long freeMillis;
+    private final long recurringUserPercent;
+    private final ZoneId zone;
+
+    /**
+     * The offset of the zone between its last two transitions around the latest instant asked for, so that fares
+     * computed until the next transition need no lookup. A fixed zone has a single window covering all times.
+     */
+    private volatile OffsetWindow offsetWindow;
+
+    /**
+     * Creates a configuration.
+     *
+     * @param tariffs              the tariff of each parking type, indexed by ordinal
+     * @param freeMinutes          the duration below which parking is free, in minutes
+     * @param recurringUserPercent the percentage of the fare paid by recurring users
+     * @param zone                 the time zone of the bands
+     */
+    public TariffConfig(Tariff[] tariffs, long freeMinutes, long recurringUserPercent, ZoneId zone) {
+        this.tariffs = tariffs.clone();
+        this.freeMillis = freeMinutes * Tariff.MILLIS_PER_MINUTE;
+        this.recurringUserPercent = recurringUserPercent;
+        this.zone = zone;
+        this.offsetWindow = zone.getRules().isFixedOffset()
+                ? new OffsetWindow(Long.MIN_VALUE, Long.MAX_VALUE,
+                        zone.getRules().getOffset(Instant.EPOCH).getTotalSeconds() * 1000L)
+                : offsetWindowAt(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the configuration loaded at first use from the default location.
+     *
+     * @return the default configuration
+     */
+    public static TariffConfig getDefault() {
+        TariffConfig config = defaultConfig;
+        if (config == null) {
+            synchronized (TariffConfig.class) {
+                config = defaultConfig;
+                if (config == null) {
+                    config = load();
+                    defaultConfig = config;
+                }
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Loads the tariffs from the default location.
+     * If the file cannot be read, the flat rates of {@link Fare} are used.
+     *
+     * @return the configuration
+     */
+    public static TariffConfig load() {
+        String location = System.getProperty(LOCATION_PROPERTY);
+        try {
+            if (location != null && !location.isEmpty()) {
+                return read(location);
+            }
+            InputStream in = TariffConfig.class.getResourceAsStream(DEFAULT_LOCATION);
+            if (in == null) {
+                throw new IOException("Tariff file not found: " + DEFAULT_LOCATION);
+            }
+            return read(in);
+        } catch (Exception ex) {
+            logger.error("Error loading tariffs, using the default flat rates", ex);
+            return flat();
+        }
+    }
+
+    /**
+     * Reads the tariffs of a file.
+     *
+     * @param file the path of the tariff file
+     * @return the configuration
+     * @throws IOException              If the file cannot be read
+     * @throws IllegalArgumentException If a property is malformed
+     */
+    public static TariffConfig read(String file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static TariffConfig read(InputStream in) throws IOException {
+        Properties properties = new Properties();
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return parse(properties);
+    }
+
+    /**
+     * Returns the flat hourly rates of {@link Fare}, with no band, tier or cap.
+     *
+     * @return the configuration
+     */
+    public static TariffConfig flat() {
+        Tariff[] tariffs = new Tariff[ParkingType.values().length];
+        tariffs[ParkingType.CAR.ordinal()] = Tariff.flat(Fare.CAR_RATE_CENTS_PER_HOUR);
+        tariffs[ParkingType.BIKE.ordinal()] = Tariff.flat(Fare.BIKE_RATE_CENTS_PER_HOUR);
+        return new TariffConfig(tariffs, Fare.MINIMUM_DURATION_FOR_CHARGE_MILLIS / Tariff.MILLIS_PER_MINUTE,
+                Fare.RECURRING_USER_RATE_PERCENT, ZoneId.systemDefault());
+    }
+
+    /**
+     * Compiles the tariffs described by a set of properties.
+     *
+     * @param properties the tariff properties
+     * @return the configuration
+     * @throws IllegalArgumentException If a property is missing or malformed
+     */
+    public static TariffConfig parse(Properties properties) {
+        Tariff[] tariffs = new Tariff[ParkingType.values().length];
+        for (ParkingType parkingType : ParkingType.values()) {
+            String prefix = parkingType.name().toLowerCase(Locale.ROOT) + ".";
+            if (properties.getProperty(prefix + "ratePerHourCents") != null) {
+                tariffs[parkingType.ordinal()] = parseTariff(properties, prefix);
+            }
+        }
+        String timeZone = properties.getProperty("timeZone", "").trim();
+        return new TariffConfig(tariffs,
+                parseLong(properties, "freeMinutes", Fare.MINIMUM_DURATION_FOR_CHARGE_MILLIS / Tariff.MILLIS_PER_MINUTE),
+                parseLong(properties, "recurringUserPercent", Fare.RECURRING_USER_RATE_PERCENT),
+                timeZone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(timeZone));
+    }
+
+    private static Tariff parseTariff(Properties properties, String prefix) {
+        long[] minuteRates = new long[Tariff.MINUTES_PER_DAY];
+        Arrays.fill(minuteRates, parseLong(properties, prefix + "ratePerHourCents", 0));
+        for (String band : split(properties.getProperty(prefix + "bands"))) {
+            // HH:mm-HH:mm@cents
+            int at = band.indexOf('@');
+            int dash = band.indexOf('-');
+            if (at < 0 || dash < 0 || dash > at) {
+                throw new IllegalArgumentException("Malformed band " + band + " in " + prefix + "bands");
+            }
+            int start = parseMinuteOfDay(band.substring(0, dash));
+            int end = parseMinuteOfDay(band.substring(dash + 1, at));
+            long rate = Long.parseLong(band.substring(at + 1).trim());
+            // A band ending where it starts, such as 00:00-24:00, covers the whole day
+            int minute = start;
+            do {
+                minuteRates[minute] = rate;
+                minute = (minute + 1) % Tariff.MINUTES_PER_DAY;
+            } while (minute != end);
+        }
+
+        String[] tiers = split(properties.getProperty(prefix + "tiers"));
+        long[] tierStarts = new long[tiers.length + 1];
+        long[] tierPercents = new long[tiers.length + 1];
+        tierPercents[0] = 100;
+        for (int i = 0; i < tiers.length; i++) {
+            // minutes@percent
+            int at = tiers[i].indexOf('@');
+            if (at < 0) {
+                throw new IllegalArgumentException("Malformed tier " + tiers[i] + " in " + prefix + "tiers");
+            }
+            tierStarts[i + 1] = Long.parseLong(tiers[i].substring(0, at).trim());
+            tierPercents[i + 1] = Long.parseLong(tiers[i].substring(at + 1).trim());
+        }
+        if (tiers.length > 0 && tierStarts[1] == 0) {
+            // The first tier replaces the full rate from the start of the stay
+            tierStarts = Arrays.copyOfRange(tierStarts, 1, tierStarts.length);
+            tierPercents = Arrays.copyOfRange(tierPercents, 1, tierPercents.length);
+        }
+
+        return new Tariff(minuteRates, tierStarts, tierPercents, parseLong(properties, prefix + "dailyCapCents", 0));
+    }
+
+    /**
+     * Parses HH:mm into a minute of the day; 24:00 is the end of the day.
+     */
+    private static int parseMinuteOfDay(String time) {
+        String[] parts = time.trim().split(":");
+        int minute = Integer.parseInt(parts[0]) * 60 + (parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+        if (minute < 0 || minute > Tariff.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Invalid time of day: " + time);
+        }
+        return minute % Tariff.MINUTES_PER_DAY;
+    }
+
+    private static long parseLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static String[] split(String list) {
+        if (list == null || list.trim().isEmpty()) {
+            return new String[0];
+        }
+        return list.trim().split("\\s*,\\s*");
+    }
+
+    /**
+     * Returns the tariff of a parking type.
+     *
+     * @param parkingType the parking type
+     * @return the tariff, or null if the parking type has none
+     */
+    public Tariff getTariff(ParkingType parkingType) {
+        return tariffs[parkingType.ordinal()];
+    }
+
+    public long getFreeMillis() {
+        return freeMillis;
+    }
+
+    public long getRecurringUserPercent() {
+        return recurringUserPercent;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Returns the offset of the local time of the bands at an instant.
+     *
+     * @param epochMillis the instant, in epoch milliseconds
+     * @return the offset to add to epoch milliseconds, in milliseconds
+     */
+    public long getOffsetMillis(long epochMillis) {
+        OffsetWindow window = offsetWindow;
+        if (epochMillis < window.fromMillis || epochMillis >= window.untilMillis) {
+            window = offsetWindowAt(epochMillis);
+            offsetWindow = window;
+        }
+        return window.offsetMillis;
+    }
+
+    /**
+     * Looks up the offset of the zone at an instant and the transitions around it.
+     */
+    private OffsetWindow offsetWindowAt(long epochMillis) {
+        ZoneRules rules = zone.getRules();
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        // The transition taking effect at the instant itself, if any, starts the window
+        ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        return new OffsetWindow(previous == null ? Long.MIN_VALUE : previous.toEpochSecond() * 1000L,
+                next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000L,
+                rules.getOffset(instant).getTotalSeconds() * 1000L);
+    }
+
+    /**
+     * An offset of the zone and the instants, in epoch milliseconds, between which it applies.
+     */
+    private static final class OffsetWindow {
+        private final long fromMillis;
+        private final long untilMillis;
+        private final long offsetMillis;
+
+        private OffsetWindow(long fromMillis, long untilMillis, long offsetMillis) {
+            this.fromMillis = fromMillis;
+            this.untilMillis = untilMillis;
+            this.offsetMillis = offsetMillis;
+        }
+    }
+}
@@ -6,11 +6,40 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
+    public static final String COUNT_PARKING_SPOTS_BY_STATE = "select TYPE, AVAILABLE, count(*) from parking group by TYPE, AVAILABLE";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS = "select count(*) from parking where AVAILABLE = true and TYPE = ?";
+    //conditional update: only succeeds if no other gate took the spot in the meantime
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
+    public static final String GET_NEXT_PARKING_SPOT_FOR_UPDATE = "select PARKING_NUMBER from parking where AVAILABLE = true and TYPE = ? order by PARKING_NUMBER limit 1 for update skip locked";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
     //sorted by most recent entry date
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+    //most recent open ticket of a vehicle, with the number of tickets of that vehicle computed by a window function
+    public static final String GET_OPEN_TICKET_WITH_COUNT = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.NB_TICKETS from (select ID, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME, count(*) over () as NB_TICKETS from ticket where VEHICLE_REG_NUMBER=?) t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.OUT_TIME is null order by t.IN_TIME DESC limit 1";
+    public static final String GET_NB_TICKET = "select count(*) from ticket where VEHICLE_REG_NUMBER = ?";
+    public static final String GET_NB_TICKET_PER_VEHICLE = "select VEHICLE_REG_NUMBER, count(*) from ticket group by VEHICLE_REG_NUMBER";
+    //open tickets reached through the spots' current ticket pointer: primary key lookups only
+    public static final String GET_OPEN_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.IN_TIME, p.TYPE from parking p join ticket t on t.ID = p.CURRENT_TICKET_ID";
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    //idempotent insert used when replaying journaled tickets: a ticket is identified by its vehicle and in time
+    public static final String SAVE_TICKET_IF_ABSENT = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) select ?,?,?,?,? from dual where not exists (select 1 from ticket where VEHICLE_REG_NUMBER=? and IN_TIME=?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    //closed tickets read in id order, one chunk at a time; a ticket is recurring if its vehicle entered before
+    public static final String GET_CLOSED_TICKETS = "select t.ID, t.IN_TIME, t.OUT_TIME, p.TYPE, t.PRICE, exists (select 1 from ticket e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.IN_TIME < t.IN_TIME) from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.ID > ? and t.OUT_TIME >= ? and t.OUT_TIME < ? order by t.ID limit ?";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
+    //pointer from a spot to its open ticket
+    public static final String SET_CURRENT_TICKET = "update parking set CURRENT_TICKET_ID = ? where PARKING_NUMBER = ?";
+    public static final String SET_CURRENT_TICKET_BY_VEHICLE = "update parking set CURRENT_TICKET_ID = (select max(ID) from ticket where VEHICLE_REG_NUMBER = ? and IN_TIME = ?) where PARKING_NUMBER = ?";
+    public static final String CLEAR_CURRENT_TICKET = "update parking set CURRENT_TICKET_ID = null where PARKING_NUMBER = ? and CURRENT_TICKET_ID = ?";
+    //tickets saved offline have no id yet: they are identified by their vehicle and in time
+    public static final String UPDATE_TICKET_BY_VEHICLE = "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and IN_TIME=?";
+    public static final String CLEAR_CURRENT_TICKET_BY_VEHICLE = "update parking set CURRENT_TICKET_ID = null where PARKING_NUMBER = ? and CURRENT_TICKET_ID = (select max(ID) from ticket where VEHICLE_REG_NUMBER = ? and IN_TIME = ?)";
+    public static final String GET_CURRENT_TICKET = "select t.ID, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from parking p join ticket t on t.ID = p.CURRENT_TICKET_ID where p.PARKING_NUMBER = ?";
+
+    public static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(100) NOT NULL, APPLIED_AT DATETIME NOT NULL)";
+    public static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+    public static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_AT) values(?,?,?)";
 
     }
 
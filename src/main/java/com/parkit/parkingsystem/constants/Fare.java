@@ -7,4 +7,10 @@ public class Fare {
     public static final double BIKE_RATE_PER_HOUR = 1.0;
     public static final double CAR_RATE_PER_HOUR = 1.5;
     public static final double MINIMUM_DURATION_FOR_CHARGE = 0.5; // 30 minutes = 0,5 heure
+
+    // Same rates in integer cents, used by the exact fare computation
+    public static final long BIKE_RATE_CENTS_PER_HOUR = 100;
+    public static final long CAR_RATE_CENTS_PER_HOUR = 150;
+    public static final long MINIMUM_DURATION_FOR_CHARGE_MILLIS = 30 * 60 * 1000L;
+    public static final long RECURRING_USER_RATE_PERCENT = 95; // 5% discount
 }
@@ -0,0 +1,388 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * The GateEventJournal class keeps a local, append-only record of the vehicles passing the gates, independent of the
+ * database. Events are fixed-size binary records appended to memory-mapped segment files of the journal directory,
+ * so an append is a copy into memory; a background thread forces the written pages to disk every syncIntervalMillis.
+ * When a segment is full the next one is created, named after the sequence of its first event.
+ * Each record ends with a checksum: reading stops at the first empty or torn record, which a crash can leave at the
+ * end of the last segment, and the next append overwrites it.
+ * {@link #replay(File, Consumer)} reads the events back and {@link #readSnapshot(File)} rebuilds the occupied spots
+ * and open tickets from them. Segments are kept until {@link #truncateBefore(long)} deletes those no longer needed.
+ */
+public class GateEventJournal {
+
+    /**
+     * Size of a record in bytes.
+     */
+    public static final int RECORD_SIZE = 64;
+
+    /**
+     * Maximum length of a registration number in UTF-8 bytes.
+     */
+    public static final int MAX_PLATE_BYTES = 28;
+
+    /**
+     * Default number of records per segment file: 4 MB segments.
+     */
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 65536;
+
+    /**
+     * Default time between two syncs of the written records to disk.
+     */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100;
+
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    // Record layout: sequence, time, price, spot, kind (0 for an empty record), type, plate length, plate, checksum
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int PRICE_OFFSET = 16;
+    private static final int SPOT_OFFSET = 24;
+    private static final int KIND_OFFSET = 28;
+    private static final int TYPE_OFFSET = 29;
+    private static final int PLATE_LENGTH_OFFSET = 30;
+    private static final int PLATE_OFFSET = 32;
+    private static final int CHECKSUM_OFFSET = 60;
+
+    private static final Logger logger = LogManager.getLogger("GateEventJournal");
+
+    private final File directory;
+    private final int recordsPerSegment;
+    private final long syncIntervalMillis;
+
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * The segment being written and the position of the next record in it. Guarded by this object's monitor.
+     */
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private boolean dirty;
+
+    private Thread syncer;
+    private volatile boolean running;
+
+    /**
+     * Creates a journal with the default segment size and sync interval.
+     *
+     * @param directory the directory holding the segment files
+     */
+    public GateEventJournal(File directory) {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a journal. Nothing is read or written until {@link #open()} is called.
+     *
+     * @param directory          the directory holding the segment files
+     * @param recordsPerSegment  the number of records of a segment file
+     * @param syncIntervalMillis the time between two syncs of the written records to disk
+     */
+    public GateEventJournal(File directory, int recordsPerSegment, long syncIntervalMillis) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    /**
+     * Maps the last segment, positions the journal after its last complete record and starts the sync thread.
+     *
+     * @throws IOException if the directory or the segment cannot be opened
+     */
+    public synchronized void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create event journal directory " + directory);
+        }
+        File[] segments = listSegments(directory);
+        nextSequence = 1;
+        if (segments.length > 0) {
+            File last = segments[segments.length - 1];
+            segment = map(last, FileChannel.MapMode.READ_WRITE, (long) recordsPerSegment * RECORD_SIZE);
+            long firstSequence = firstSequence(last);
+            nextSequence = firstSequence;
+            RecordReader reader = new RecordReader(segment);
+            while (segment.remaining() >= RECORD_SIZE
+                    && reader.read(segment.position(), nextSequence) != null) {
+                segment.position(segment.position() + RECORD_SIZE);
+                nextSequence++;
+            }
+            if (segment.remaining() < RECORD_SIZE) {
+                segment.force();
+                segment = null;
+            } else {
+                // Clear what a crash may have left after the last complete record, so it is never read back
+                int end = segment.position();
+                byte[] empty = new byte[RECORD_SIZE];
+                while (segment.hasRemaining()) {
+                    segment.put(empty);
+                }
+                segment.position(end);
+                segment.force();
+            }
+        }
+        running = true;
+        syncer = new Thread(this::syncLoop, "gate-event-journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+        logger.info("Event journal opened at sequence {}", nextSequence);
+    }
+
+    /**
+     * Appends an event.
+     *
+     * @param kind             entry or exit
+     * @param vehicleRegNumber the vehicle registration number, at most {@link #MAX_PLATE_BYTES} UTF-8 bytes
+     * @param parkingNumber    the spot taken or released
+     * @param parkingType      the type of the spot
+     * @param time             the time the vehicle passed the gate, in epoch milliseconds
+     * @param priceCents       the fare paid on exit, 0 on entry
+     * @return the sequence of the event
+     * @throws IOException if a new segment cannot be created
+     */
+    public synchronized long append(ParkingEvent.Kind kind, String vehicleRegNumber, int parkingNumber,
+                                    ParkingType parkingType, long time, long priceCents) throws IOException {
+        byte[] plate = vehicleRegNumber.getBytes(StandardCharsets.UTF_8);
+        if (plate.length > MAX_PLATE_BYTES) {
+            throw new IllegalArgumentException("Registration number too long for the event journal: "
+                    + vehicleRegNumber);
+        }
+        if (!running) {
+            throw new IllegalStateException("Event journal is not open");
+        }
+        if (segment == null) {
+            File file = new File(directory, segmentName(nextSequence));
+            segment = map(file, FileChannel.MapMode.READ_WRITE, (long) recordsPerSegment * RECORD_SIZE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        Arrays.fill(record, (byte) 0);
+        buffer.putLong(SEQUENCE_OFFSET, nextSequence);
+        buffer.putLong(TIME_OFFSET, time);
+        buffer.putLong(PRICE_OFFSET, priceCents);
+        buffer.putInt(SPOT_OFFSET, parkingNumber);
+        record[KIND_OFFSET] = (byte) (kind.ordinal() + 1);
+        record[TYPE_OFFSET] = (byte) parkingType.ordinal();
+        record[PLATE_LENGTH_OFFSET] = (byte) plate.length;
+        System.arraycopy(plate, 0, record, PLATE_OFFSET, plate.length);
+        checksum.reset();
+        checksum.update(record, 0, CHECKSUM_OFFSET);
+        buffer.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        segment.put(record);
+        dirty = true;
+        if (segment.remaining() < RECORD_SIZE) {
+            // Full: the next append starts a new segment
+            segment.force();
+            segment = null;
+            dirty = false;
+        }
+        return nextSequence++;
+    }
+
+    /**
+     * Forces the records written so far to disk.
+     */
+    public synchronized void sync() {
+        if (dirty && segment != null) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Stops the sync thread and forces the records written so far to disk.
+     */
+    public void close() {
+        running = false;
+        if (syncer != null) {
+            syncer.interrupt();
+            try {
+                syncer.join(syncIntervalMillis + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            sync();
+            segment = null;
+        }
+        logger.info("Event journal closed at sequence {}", nextSequence - 1);
+    }
+
+    /**
+     * Deletes the segments holding only events older than a sequence, typically once the state they record is kept
+     * elsewhere. Those events are no longer replayed, so the snapshot of the journal then starts after them. The
+     * segment being written is always kept.
+     *
+     * @param sequence the first sequence to keep
+     * @return the number of segment files deleted
+     */
+    public synchronized int truncateBefore(long sequence) {
+        File[] segments = listSegments(directory);
+        int deleted = 0;
+        // A segment ends where the next one starts
+        for (int i = 0; i < segments.length - 1 && firstSequence(segments[i + 1]) <= sequence; i++) {
+            if (segments[i].delete()) {
+                deleted++;
+            } else {
+                logger.warn("Unable to delete event journal segment {}", segments[i]);
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} event journal segments before sequence {}", deleted, sequence);
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the sequence of the last event appended, 0 if the journal is empty.
+     */
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                sync();
+            } catch (Exception e) {
+                logger.error("Error syncing event journal", e);
+            }
+        }
+    }
+
+    /**
+     * Reads every complete event of a journal directory, in order.
+     *
+     * @param directory the directory holding the segment files
+     * @param consumer  receives the events
+     * @return the number of events read
+     * @throws IOException if a segment cannot be read
+     */
+    public static long replay(File directory, Consumer<ParkingEvent> consumer) throws IOException {
+        long count = 0;
+        for (File file : listSegments(directory)) {
+            long sequence = firstSequence(file);
+            MappedByteBuffer buffer = map(file, FileChannel.MapMode.READ_ONLY, file.length());
+            RecordReader reader = new RecordReader(buffer);
+            ParkingEvent event;
+            for (int position = 0; position + RECORD_SIZE <= buffer.limit(); position += RECORD_SIZE) {
+                event = reader.read(position, sequence);
+                if (event == null) {
+                    break;
+                }
+                consumer.accept(event);
+                sequence++;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds the occupied spots and the open tickets from the events of a journal directory.
+     *
+     * @param directory the directory holding the segment files
+     * @return the state of the parking lot after the last event
+     * @throws IOException if a segment cannot be read
+     */
+    public static JournalSnapshot readSnapshot(File directory) throws IOException {
+        JournalSnapshot snapshot = new JournalSnapshot();
+        replay(directory, snapshot::apply);
+        return snapshot;
+    }
+
+    /**
+     * Decodes the records of a segment, reusing the same record buffer and checksum for each of them.
+     */
+    private static final class RecordReader {
+        private final ByteBuffer segment;
+        private final byte[] bytes = new byte[RECORD_SIZE];
+        private final ByteBuffer recordBuffer = ByteBuffer.wrap(bytes);
+        private final CRC32 crc = new CRC32();
+
+        private RecordReader(ByteBuffer segment) {
+            // A view of its own, so reading never moves the write position of the segment
+            this.segment = segment.duplicate();
+        }
+
+        /**
+         * Decodes the record at a position, or returns null if it is empty, torn or out of sequence.
+         */
+        private ParkingEvent read(int position, long expectedSequence) {
+            segment.position(position);
+            segment.get(bytes);
+            int kind = bytes[KIND_OFFSET];
+            int plateLength = bytes[PLATE_LENGTH_OFFSET];
+            if (kind < 1 || kind > ParkingEvent.Kind.values().length || plateLength < 0
+                    || plateLength > MAX_PLATE_BYTES
+                    || bytes[TYPE_OFFSET] < 0 || bytes[TYPE_OFFSET] >= ParkingType.values().length) {
+                return null;
+            }
+            crc.reset();
+            crc.update(bytes, 0, CHECKSUM_OFFSET);
+            if ((int) crc.getValue() != recordBuffer.getInt(CHECKSUM_OFFSET)
+                    || recordBuffer.getLong(SEQUENCE_OFFSET) != expectedSequence) {
+                return null;
+            }
+            return new ParkingEvent(expectedSequence, ParkingEvent.Kind.values()[kind - 1],
+                    new String(bytes, PLATE_OFFSET, plateLength, StandardCharsets.UTF_8),
+                    recordBuffer.getInt(SPOT_OFFSET), ParkingType.values()[bytes[TYPE_OFFSET]],
+                    recordBuffer.getLong(TIME_OFFSET), recordBuffer.getLong(PRICE_OFFSET));
+        }
+    }
+
+    private static MappedByteBuffer map(File file, FileChannel.MapMode mode, long size) throws IOException {
+        String access = mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw";
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, access);
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    /**
+     * Returns the segment files of a directory in sequence order.
+     */
+    private static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles(
+                (dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        // Names hold zero-padded sequences, so the name order is the sequence order
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequence(File segmentFile) {
+        String name = segmentFile.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * The InMemorySpotRepository class keeps the parking spots in a {@link SpotAvailabilityIndex} only, without any
+ * database. It serves gates running on an edge box, benchmarks and tests. Every method is thread-safe.
+ */
+public class InMemorySpotRepository implements SpotRepository {
+
+    private final SpotAvailabilityIndex spots = new SpotAvailabilityIndex();
+
+    /**
+     * Creates a lot without any spot; spots are added with {@link #addSpot(int, ParkingType, boolean)}.
+     */
+    public InMemorySpotRepository() {
+    }
+
+    /**
+     * Creates a lot where every spot is available.
+     *
+     * @param cars  the number of car spots, numbered from 1
+     * @param bikes the number of bike spots, numbered after the car spots
+     */
+    public InMemorySpotRepository(int cars, int bikes) {
+        for (int number = 1; number <= cars + bikes; number++) {
+            addSpot(number, number <= cars ? ParkingType.CAR : ParkingType.BIKE, true);
+        }
+    }
+
+    /**
+     * Adds a spot to the lot, or changes the type and availability of a known spot.
+     *
+     * @param parkingNumber the number of the spot, from 1
+     * @param parkingType   the type of the spot
+     * @param available     true if the spot is free
+     */
+    public void addSpot(int parkingNumber, ParkingType parkingType, boolean available) {
+        if (parkingNumber < 1) {
+            throw new IllegalArgumentException("Parking numbers start at 1");
+        }
+        spots.setAvailable(parkingType, parkingNumber, available);
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return spots.getLowestAvailable(parkingType);
+    }
+
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        return spots.takeLowestAvailable(parkingType);
+    }
+
+    /**
+     * Records whether a known spot is available.
+     *
+     * @param parkingSpot the spot, with its new availability
+     * @return true if the spot was updated, false if the lot has no spot of that number
+     */
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        ParkingType parkingType = spots.getParkingType(parkingSpot.getId());
+        if (parkingType == null) {
+            return false;
+        }
+        spots.setAvailable(parkingType, parkingSpot.getId(), parkingSpot.isAvailable());
+        return true;
+    }
+
+    @Override
+    public int countAvailableSlots(ParkingType parkingType) {
+        return spots.countAvailable(parkingType);
+    }
+
+    @Override
+    public OccupancyCounters getOccupancyCounters() {
+        return spots.getCounters();
+    }
+}
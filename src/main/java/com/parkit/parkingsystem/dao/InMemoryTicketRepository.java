@@ -0,0 +1,277 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketColumns;
+import com.parkit.parkingsystem.model.TicketLookup;
+import com.parkit.parkingsystem.util.IntObjectHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The InMemoryTicketRepository class keeps the tickets in memory only, without any database. It serves gates running
+ * on an edge box, benchmarks and tests.
+ * Tickets are indexed by id and the open ticket of each spot by parking number, in maps with primitive int keys,
+ * and the history of each vehicle by plate. Lookups share a read lock and changes take the write lock. Tickets are
+ * copied in and out, so callers never hold a reference to the stored state.
+ * Every ticket is kept for the life of the repository.
+ */
+public class InMemoryTicketRepository implements TicketRepository {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryTicketRepository");
+
+    /**
+     * Stored state of a ticket. The out time is 0 while the ticket is open.
+     */
+    private static final class TicketRecord {
+        private final int id;
+        private final int parkingNumber;
+        private final ParkingType parkingType;
+        private final String vehicleRegNumber;
+        private final long inTime;
+        private double price;
+        private long outTime;
+
+        private TicketRecord(int id, Ticket ticket) {
+            this.id = id;
+            this.parkingNumber = ticket.getParkingSpot().getId();
+            this.parkingType = ticket.getParkingSpot().getParkingType();
+            this.vehicleRegNumber = ticket.getVehicleRegNumber();
+            this.inTime = ticket.getInTime().getTime();
+            this.price = ticket.getPrice();
+            this.outTime = ticket.getOutTime() == null ? 0 : ticket.getOutTime().getTime();
+        }
+
+        private Ticket toTicket() {
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+            ticket.setId(id);
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(price);
+            ticket.setInTime(new Timestamp(inTime));
+            ticket.setOutTime(outTime == 0 ? null : new Timestamp(outTime));
+            return ticket;
+        }
+    }
+
+    /**
+     * Tickets of a vehicle: how many, the open one, the most recent one and the in time of the first one.
+     */
+    private static final class VehicleHistory {
+        private int nbTickets;
+        private TicketRecord openTicket;
+        private TicketRecord lastTicket;
+        private long firstInTime = Long.MAX_VALUE;
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntObjectHashMap<TicketRecord> tickets;
+    private final IntObjectHashMap<TicketRecord> currentTickets = new IntObjectHashMap<>();
+    private final Map<String, VehicleHistory> vehicles = new HashMap<>();
+    private int lastId;
+
+    public InMemoryTicketRepository() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty repository.
+     *
+     * @param expectedTickets the number of tickets stored before the ticket map grows
+     */
+    public InMemoryTicketRepository(int expectedTickets) {
+        tickets = new IntObjectHashMap<>(expectedTickets);
+    }
+
+    /**
+     * Saves a new ticket and sets its id, ids being given in sequence from 1.
+     * An open ticket becomes the current ticket of its spot and the open ticket of its vehicle.
+     *
+     * @param ticket the ticket to save
+     * @return true if the ticket was saved, false if it has no spot, plate or in time
+     */
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (ticket.getParkingSpot() == null || ticket.getVehicleRegNumber() == null || ticket.getInTime() == null) {
+            logger.error("Error saving ticket: spot, vehicle and in time are required");
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            TicketRecord record = new TicketRecord(++lastId, ticket);
+            tickets.put(record.id, record);
+            VehicleHistory history = vehicles.get(record.vehicleRegNumber);
+            if (history == null) {
+                history = new VehicleHistory();
+                vehicles.put(record.vehicleRegNumber, history);
+            }
+            history.nbTickets++;
+            history.firstInTime = Math.min(history.firstInTime, record.inTime);
+            if (history.lastTicket == null || record.inTime >= history.lastTicket.inTime) {
+                history.lastTicket = record;
+            }
+            if (record.outTime == 0) {
+                history.openTicket = record;
+                currentTickets.put(record.parkingNumber, record);
+            }
+            ticket.setId(record.id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves the price and out time of a ticket, which is no longer the current ticket of its spot once closed.
+     *
+     * @param ticket the ticket to update
+     * @return true if the ticket was updated, false if no ticket has its id or it has no out time
+     */
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        if (ticket.getOutTime() == null) {
+            logger.error("Error saving ticket info: out time is required");
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            TicketRecord record = tickets.get(ticket.getId());
+            if (record == null) {
+                return false;
+            }
+            record.price = ticket.getPrice();
+            record.outTime = ticket.getOutTime().getTime();
+            if (currentTickets.get(record.parkingNumber) == record) {
+                currentTickets.remove(record.parkingNumber);
+            }
+            VehicleHistory history = vehicles.get(record.vehicleRegNumber);
+            if (history.openTicket == record) {
+                history.openTicket = null;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        lock.readLock().lock();
+        try {
+            VehicleHistory history = vehicles.get(vehicleRegNumber);
+            return history == null ? null : history.lastTicket.toTicket();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Ticket getCurrentTicket(int parkingNumber) {
+        lock.readLock().lock();
+        try {
+            TicketRecord record = currentTickets.get(parkingNumber);
+            return record == null ? null : record.toTicket();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TicketLookup getExitLookup(String vehicleRegNumber) {
+        lock.readLock().lock();
+        try {
+            VehicleHistory history = vehicles.get(vehicleRegNumber);
+            if (history == null || history.openTicket == null) {
+                return null;
+            }
+            return new TicketLookup(history.openTicket.toTicket(), history.nbTickets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        lock.readLock().lock();
+        try {
+            VehicleHistory history = vehicles.get(vehicleRegNumber);
+            return history == null ? 0 : history.nbTickets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the next chunk of closed tickets, in id order, into primitive columns. A ticket is recurring when its
+     * vehicle had an earlier ticket.
+     *
+     * @param afterId  the id after which to read, 0 to start from the first ticket
+     * @param fromTime the earliest out time, included, in epoch milliseconds
+     * @param toTime   the latest out time, excluded, in epoch milliseconds
+     * @param columns  the chunk to fill; it is cleared first and filled up to its capacity
+     * @return the number of tickets read
+     */
+    @Override
+    public int readClosedTickets(int afterId, long fromTime, long toTime, TicketColumns columns) {
+        columns.clear();
+        lock.readLock().lock();
+        try {
+            for (int id = afterId + 1; id <= lastId && columns.getSize() < columns.getCapacity(); id++) {
+                TicketRecord record = tickets.get(id);
+                if (record != null && record.outTime != 0 && record.outTime >= fromTime && record.outTime < toTime) {
+                    boolean recurring = vehicles.get(record.vehicleRegNumber).firstInTime < record.inTime;
+                    columns.add(record.id, record.inTime, record.outTime, record.parkingType.ordinal(), recurring,
+                            Math.round(record.price * 100));
+                }
+            }
+            return columns.getSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the price of several tickets at once, under a single lock. Unknown ids are ignored, as they are by the
+     * SQL update.
+     *
+     * @param ids        the ticket ids
+     * @param priceCents the new price of each ticket, in cents
+     * @param count      the number of tickets to update, from the start of the arrays
+     * @param batchSize  unused: every price is set in one step
+     * @return true
+     */
+    @Override
+    public boolean updateTicketPrices(int[] ids, long[] priceCents, int count, int batchSize) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                TicketRecord record = tickets.get(ids[i]);
+                if (record != null) {
+                    record.price = priceCents[i] / 100.0;
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of tickets stored.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return tickets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
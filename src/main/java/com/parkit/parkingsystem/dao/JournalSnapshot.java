@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingEvent;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The JournalSnapshot class is the state of the parking lot rebuilt from the events of a {@link GateEventJournal}:
+ * the occupied spots and the entry event of every vehicle still parked.
+ */
+public class JournalSnapshot {
+
+    private final BitSet occupiedSpots = new BitSet();
+    private final Map<String, ParkingEvent> openEntries = new HashMap<>();
+    private long lastSequence;
+
+    /**
+     * Applies the next event of the journal.
+     *
+     * @param event the event
+     */
+    public void apply(ParkingEvent event) {
+        if (event.getKind() == ParkingEvent.Kind.ENTRY) {
+            occupiedSpots.set(event.getParkingNumber());
+            openEntries.put(event.getVehicleRegNumber(), event);
+        } else {
+            occupiedSpots.clear(event.getParkingNumber());
+            openEntries.remove(event.getVehicleRegNumber());
+        }
+        lastSequence = event.getSequence();
+    }
+
+    public boolean isOccupied(int parkingNumber) {
+        return occupiedSpots.get(parkingNumber);
+    }
+
+    /**
+     * Counts the occupied spots of a type.
+     */
+    public int countOccupied(ParkingType parkingType) {
+        int count = 0;
+        for (ParkingEvent entry : openEntries.values()) {
+            if (entry.getParkingType() == parkingType) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the entry event of every vehicle still parked, by registration number.
+     */
+    public Map<String, ParkingEvent> getOpenEntries() {
+        return Collections.unmodifiableMap(openEntries);
+    }
+
+    /**
+     * Returns the sequence of the last event applied, 0 if none.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * The Occupancy class publishes over JMX the occupancy of one parking type of a {@link ParkingSpotDAO}.
+ * Every attribute is read from the live counters, without touching the database.
+ */
+public class Occupancy implements OccupancyMXBean {
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final ParkingType parkingType;
+
+    public Occupancy(ParkingSpotDAO parkingSpotDAO, ParkingType parkingType) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.parkingType = parkingType;
+    }
+
+    @Override
+    public String getParkingType() {
+        return parkingType.name();
+    }
+
+    @Override
+    public long getTotal() {
+        return parkingSpotDAO.getOccupancyCounters().getTotal(parkingType);
+    }
+
+    @Override
+    public long getAvailable() {
+        return parkingSpotDAO.getOccupancyCounters().getAvailable(parkingType);
+    }
+
+    @Override
+    public long getOccupied() {
+        return parkingSpotDAO.getOccupancyCounters().getOccupied(parkingType);
+    }
+
+    @Override
+    public double getOccupancyPercent() {
+        OccupancyCounters counters = parkingSpotDAO.getOccupancyCounters();
+        long total = counters.getTotal(parkingType);
+        return total == 0 ? 0 : 100.0 * counters.getOccupied(parkingType) / total;
+    }
+
+    @Override
+    public long getLastReconciledMillis() {
+        return parkingSpotDAO.getOccupancyCounters().getLastReconciledMillis();
+    }
+
+    @Override
+    public boolean reconcile() {
+        return parkingSpotDAO.reconcileOccupancy();
+    }
+}
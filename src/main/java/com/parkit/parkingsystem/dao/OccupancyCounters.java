@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The OccupancyCounters class holds the number of spots and free spots of each parking type.
+ * The counters are written by the {@link SpotAvailabilityIndex} whenever a spot changes state, and read without any
+ * lock or database access, so display boards can poll them as often as they like.
+ */
+public class OccupancyCounters {
+
+    private final AtomicLongArray totalSpots = new AtomicLongArray(ParkingType.values().length);
+    private final AtomicLongArray availableSpots = new AtomicLongArray(ParkingType.values().length);
+    private volatile long lastReconciledMillis;
+
+    /**
+     * Returns the number of free spots of a type.
+     */
+    public long getAvailable(ParkingType parkingType) {
+        return availableSpots.get(parkingType.ordinal());
+    }
+
+    /**
+     * Returns the number of spots of a type.
+     */
+    public long getTotal(ParkingType parkingType) {
+        return totalSpots.get(parkingType.ordinal());
+    }
+
+    /**
+     * Returns the number of taken spots of a type.
+     */
+    public long getOccupied(ParkingType parkingType) {
+        return getTotal(parkingType) - getAvailable(parkingType);
+    }
+
+    /**
+     * Returns the time the counters were last checked against the parking table, in epoch milliseconds, or 0 if
+     * they never were.
+     */
+    public long getLastReconciledMillis() {
+        return lastReconciledMillis;
+    }
+
+    void add(ParkingType parkingType, long total, long available) {
+        totalSpots.addAndGet(parkingType.ordinal(), total);
+        availableSpots.addAndGet(parkingType.ordinal(), available);
+    }
+
+    void clear() {
+        for (int i = 0; i < totalSpots.length(); i++) {
+            totalSpots.set(i, 0);
+            availableSpots.set(i, 0);
+        }
+    }
+
+    void setLastReconciledMillis(long lastReconciledMillis) {
+        this.lastReconciledMillis = lastReconciledMillis;
+    }
+}
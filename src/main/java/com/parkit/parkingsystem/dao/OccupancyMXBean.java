@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * The OccupancyMXBean interface is the JMX view of the spots of one parking type, read from the
+ * {@link OccupancyCounters} of a {@link ParkingSpotDAO}.
+ */
+public interface OccupancyMXBean {
+
+    String getParkingType();
+
+    long getTotal();
+
+    long getAvailable();
+
+    long getOccupied();
+
+    /**
+     * Returns the share of taken spots, from 0 to 100.
+     */
+    double getOccupancyPercent();
+
+    long getLastReconciledMillis();
+
+    /**
+     * Checks the counters against the parking table now, reloading the availability index if they differ.
+     *
+     * @return true if the counters matched the table or were reloaded from it
+     */
+    boolean reconcile();
+}
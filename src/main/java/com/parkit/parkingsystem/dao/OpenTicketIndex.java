@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The OpenTicketIndex class maps the plate of every vehicle currently parked to its open ticket,
+ * so the exit path finds the ticket with a hash lookup instead of a sorted query on the ticket table.
+ */
+public class OpenTicketIndex {
+
+    /**
+     * The open ticket of a parked vehicle.
+     */
+    public static final class OpenTicket {
+        private final int ticketId;
+        private final int parkingNumber;
+        private final ParkingType parkingType;
+        private final long inTime;
+
+        public OpenTicket(int ticketId, int parkingNumber, ParkingType parkingType, long inTime) {
+            this.ticketId = ticketId;
+            this.parkingNumber = parkingNumber;
+            this.parkingType = parkingType;
+            this.inTime = inTime;
+        }
+
+        /**
+         * Returns the database id of the ticket, or 0 if the ticket has not been written to the database yet.
+         */
+        public int getTicketId() {
+            return ticketId;
+        }
+
+        public int getParkingNumber() {
+            return parkingNumber;
+        }
+
+        public ParkingType getParkingType() {
+            return parkingType;
+        }
+
+        public long getInTime() {
+            return inTime;
+        }
+    }
+
+    private final ConcurrentMap<String, OpenTicket> openTickets = new ConcurrentHashMap<>();
+
+    /**
+     * Records the open ticket of a vehicle. A more recent ticket replaces an older one.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param openTicket       the open ticket
+     */
+    public void put(String vehicleRegNumber, OpenTicket openTicket) {
+        openTickets.merge(vehicleRegNumber, openTicket,
+                (current, candidate) -> candidate.inTime >= current.inTime ? candidate : current);
+    }
+
+    /**
+     * Returns the open ticket of a vehicle.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the open ticket, or null if the vehicle is not parked
+     */
+    public OpenTicket get(String vehicleRegNumber) {
+        return openTickets.get(vehicleRegNumber);
+    }
+
+    /**
+     * Forgets the open ticket of a vehicle once the ticket has been closed.
+     *
+     * An entry without id, for a ticket only journaled when it was indexed, is matched on its in time instead, to the
+     * second as the database stores it.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param ticketId         the id of the closed ticket; an entry for another ticket is kept
+     * @param inTime           the in time of the closed ticket, in epoch milliseconds
+     */
+    public void remove(String vehicleRegNumber, int ticketId, long inTime) {
+        openTickets.computeIfPresent(vehicleRegNumber, (plate, openTicket) -> openTicket.ticketId == ticketId
+                || openTicket.ticketId == 0 && TicketWriteBehind.roundToSecond(openTicket.inTime)
+                == TicketWriteBehind.roundToSecond(inTime) ? null : openTicket);
+    }
+
+    /**
+     * Forgets every open ticket. Used before reloading the index from the database.
+     */
+    public void clear() {
+        openTickets.clear();
+    }
+
+    public int size() {
+        return openTickets.size();
+    }
+}
@@ -4,78 +4,547 @@ import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.parkit.parkingsystem.util.LatencyMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The ParkingSpotDAO class is responsible for retrieving and updating parking spot information in the database.
+ * It is the JDBC implementation of {@link SpotRepository}.
+ * While the database is offline (its circuit breaker is open), spots are claimed and released in the availability
+ * index only; the changes are written to the parking table once the database recovers.
  */
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements SpotRepository {
 
     /**
      * Logger to provide log details.
      */
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final LatencyHistogram GET_NEXT_AVAILABLE_SLOT_LATENCY =
+            LatencyMetrics.histogram("ParkingSpotDAO.getNextAvailableSlot");
+    private static final LatencyHistogram RELOAD_AVAILABILITY_INDEX_LATENCY =
+            LatencyMetrics.histogram("ParkingSpotDAO.reloadAvailabilityIndex");
+    private static final LatencyHistogram COUNT_AVAILABLE_SLOTS_LATENCY =
+            LatencyMetrics.histogram("ParkingSpotDAO.countAvailableSlots");
+    private static final LatencyHistogram RECONCILE_OCCUPANCY_LATENCY =
+            LatencyMetrics.histogram("ParkingSpotDAO.reconcileOccupancy");
+    private static final LatencyHistogram CLAIM_NEXT_AVAILABLE_SLOT_LATENCY =
+            LatencyMetrics.histogram("ParkingSpotDAO.claimNextAvailableSlot");
+    private static final LatencyHistogram UPDATE_PARKING_LATENCY =
+            LatencyMetrics.histogram("ParkingSpotDAO.updateParking");
+
     /**
      * Configuration object for database access operations.
      */
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
-    
+
+    /**
+     * In-memory copy of the availability of every spot, answering next-spot lookups without a database round trip.
+     */
+    private final SpotAvailabilityIndex availabilityIndex = new SpotAvailabilityIndex();
+
+    /**
+     * Whether the availability index has been loaded from the parking table.
+     */
+    private volatile boolean availabilityIndexLoaded;
+
+    /**
+     * Thread checking the occupancy counters against the parking table, or null if not started.
+     */
+    private ScheduledExecutorService reconciliation;
+
+    /**
+     * Spots whose availability changed while the database was offline, and their latest availability, bit n standing
+     * for parking number n. Guarded by the monitor of offlineChangedSpots.
+     */
+    private final BitSet offlineChangedSpots = new BitSet();
+    private final BitSet offlineAvailableSpots = new BitSet();
+
+    /**
+     * Whether some offline changes are not yet written, checked without taking their monitor.
+     */
+    private volatile boolean hasOfflineChanges;
+
     /**
      * Retrieves the next available parking spot of the specified parking type.
+     * The answer comes from the availability index, which is loaded from the database on first use.
      *
      * @param parkingType The ParkingType enum representing the type of parking.
      * @return The next available parking spot, or -1 if no spot is available.
      */
+    @Override
     public int getNextAvailableSlot(ParkingType parkingType){
+        long startNanos = System.nanoTime();
+        try {
+            if (ensureAvailabilityIndexLoaded()) {
+                return availabilityIndex.getLowestAvailable(parkingType);
+            }
+            return queryNextAvailableSlot(parkingType);
+        } finally {
+            GET_NEXT_AVAILABLE_SLOT_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Loads the availability index if it has not been loaded yet.
+     *
+     * @return true if the index is loaded and can be used
+     */
+    private boolean ensureAvailabilityIndexLoaded() {
+        if (!availabilityIndexLoaded) {
+            synchronized (availabilityIndex) {
+                if (!availabilityIndexLoaded) {
+                    availabilityIndexLoaded = loadAvailabilityIndex();
+                }
+            }
+        }
+        return availabilityIndexLoaded;
+    }
+
+    /**
+     * Reloads the availability index from the parking table.
+     * Must be called when the table is modified outside of this DAO.
+     *
+     * @return true if the index was successfully reloaded
+     */
+    public boolean reloadAvailabilityIndex() {
+        long startNanos = System.nanoTime();
+        try {
+            synchronized (availabilityIndex) {
+                // Reloading before the offline changes are written would lose them
+                if (!writeOfflineChanges()) {
+                    return false;
+                }
+                availabilityIndexLoaded = loadAvailabilityIndex();
+                return availabilityIndexLoaded;
+            }
+        } finally {
+            RELOAD_AVAILABILITY_INDEX_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Reads the availability of every spot into the index.
+     *
+     * @return true if the parking table was read successfully
+     */
+    private boolean loadAvailabilityIndex() {
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            rs = ps.executeQuery();
+            availabilityIndex.clear();
+            while (rs.next()) {
+                availabilityIndex.setAvailable(ParkingType.valueOf(rs.getString(3)), rs.getInt(1), rs.getBoolean(2));
+            }
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading parking spot availability",ex);
+            return false;
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Counts the available parking spots of the specified type, from the availability index when it can be loaded.
+     *
+     * @param parkingType The ParkingType enum representing the type of parking.
+     * @return The number of available spots, or -1 if they could not be counted.
+     */
+    @Override
+    public int countAvailableSlots(ParkingType parkingType){
+        long startNanos = System.nanoTime();
+        try {
+            if (ensureAvailabilityIndexLoaded()) {
+                return (int) availabilityIndex.getCounters().getAvailable(parkingType);
+            }
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            int result=-1;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS);
+                ps.setString(1, parkingType.toString());
+                rs = ps.executeQuery();
+                if(rs.next()){
+                    result = rs.getInt(1);
+                }
+            }catch (Exception ex){
+                logger.error("Error counting available slots",ex);
+            }finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return result;
+        } finally {
+            COUNT_AVAILABLE_SLOTS_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Returns the live number of spots and free spots of each type. Reading them never touches the database; they
+     * are all zero until the availability index is loaded.
+     *
+     * @return the counters kept in step with the availability index
+     */
+    @Override
+    public OccupancyCounters getOccupancyCounters() {
+        return availabilityIndex.getCounters();
+    }
+
+    /**
+     * Checks the occupancy counters against the parking table and reloads the availability index if they differ,
+     * for instance after the table was modified by another process.
+     *
+     * @return true if the counters matched the table or were reloaded from it
+     */
+    public boolean reconcileOccupancy() {
+        long startNanos = System.nanoTime();
+        try {
+            if (!ensureAvailabilityIndexLoaded() || dataBaseConfig.isOffline() || !writeOfflineChanges()) {
+                return false;
+            }
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.COUNT_PARKING_SPOTS_BY_STATE);
+                rs = ps.executeQuery();
+                long[] total = new long[ParkingType.values().length];
+                long[] available = new long[ParkingType.values().length];
+                while (rs.next()) {
+                    int type = ParkingType.valueOf(rs.getString(1)).ordinal();
+                    total[type] += rs.getLong(3);
+                    if (rs.getBoolean(2)) {
+                        available[type] += rs.getLong(3);
+                    }
+                }
+                OccupancyCounters counters = availabilityIndex.getCounters();
+                boolean matching = true;
+                for (ParkingType parkingType : ParkingType.values()) {
+                    matching &= counters.getTotal(parkingType) == total[parkingType.ordinal()]
+                            && counters.getAvailable(parkingType) == available[parkingType.ordinal()];
+                }
+                if (!matching) {
+                    logger.info("Occupancy counters differ from the parking table, reloading the availability index");
+                    if (!reloadAvailabilityIndex()) {
+                        return false;
+                    }
+                }
+                counters.setLastReconciledMillis(System.currentTimeMillis());
+                return true;
+            }catch (Exception ex){
+                logger.error("Error reconciling occupancy counters",ex);
+                return false;
+            }finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        } finally {
+            RECONCILE_OCCUPANCY_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Starts checking the occupancy counters against the parking table at a fixed period.
+     *
+     * @param periodMillis the time between two checks
+     */
+    public synchronized void startOccupancyReconciliation(long periodMillis) {
+        if (reconciliation != null) {
+            return;
+        }
+        reconciliation = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciliation.scheduleWithFixedDelay(this::reconcileOccupancy, periodMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic check of the occupancy counters.
+     */
+    public synchronized void stopOccupancyReconciliation() {
+        if (reconciliation != null) {
+            reconciliation.shutdownNow();
+            reconciliation = null;
+        }
+    }
+
+    /**
+     * Queries the database for the next available parking spot, used when the availability index cannot be loaded.
+     *
+     * @param parkingType The ParkingType enum representing the type of parking.
+     * @return The next available parking spot, or -1 if no spot is available.
+     */
+    private int queryNextAvailableSlot(ParkingType parkingType){
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+            ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
             ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
+            rs = ps.executeQuery();
             if(rs.next()){
                 result = rs.getInt(1);
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
         }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
         return result;
     }
 
     /**
-     * Updates the availability of the specified parking spot in the database.
+     * Finds the next available parking spot of the specified type and marks it as taken in a single step,
+     * so two gates can never be given the same spot.
+     * The candidate comes from the availability index and is reserved with a conditional update; if another
+     * process took it first, the next candidate is tried. Without an index, the spot is selected with a
+     * locking read that skips spots being claimed by other transactions.
      *
-     * @param parkingSpot The ParkingSpot object representing the parking spot to be updated.
-     * @return true if the parking spot was successfully updated, false otherwise.
+     * @param parkingType The ParkingType enum representing the type of parking.
+     * @return The number of the claimed parking spot, or -1 if no spot is available or the claim failed.
      */
-    public boolean updateParking(ParkingSpot parkingSpot){
-        //update the availability fo that parking slot
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType){
+        long startNanos = System.nanoTime();
+        try {
+            if (!ensureAvailabilityIndexLoaded()) {
+                return claimWithLockingRead(parkingType);
+            }
+            if (dataBaseConfig.isOffline() || !writeOfflineChanges()) {
+                return claimOffline(parkingType);
+            }
+            Connection con = null;
+            PreparedStatement ps = null;
+            int candidate = -1;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+                while ((candidate = availabilityIndex.takeLowestAvailable(parkingType)) > 0) {
+                    ps.setInt(1, candidate);
+                    if (ps.executeUpdate() == 1) {
+                        return candidate;
+                    }
+                    // Taken by another process: the index was stale for this spot, which now stays marked as taken
+                    logger.debug("Parking spot {} already taken, trying the next one", candidate);
+                }
+                return -1;
+            }catch (Exception ex){
+                if (dataBaseConfig.isOffline()) {
+                    logger.warn("Database unavailable, claiming parking spot offline: {}", ex.toString());
+                    if (candidate > 0) {
+                        recordOfflineChange(candidate, false);
+                        return candidate;
+                    }
+                    return claimOffline(parkingType);
+                }
+                logger.error("Error claiming next available slot",ex);
+                if (candidate > 0) {
+                    availabilityIndex.setAvailable(parkingType, candidate, true);
+                }
+                return -1;
+            }finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        } finally {
+            CLAIM_NEXT_AVAILABLE_SLOT_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Claims the next available parking spot in a transaction, locking the selected row and skipping rows
+     * locked by concurrent claims.
+     *
+     * @param parkingType The ParkingType enum representing the type of parking.
+     * @return The number of the claimed parking spot, or -1 if no spot is available or the claim failed.
+     */
+    private int claimWithLockingRead(ParkingType parkingType){
         Connection con = null;
+        PreparedStatement select = null;
+        PreparedStatement update = null;
+        ResultSet rs = null;
+        int result = -1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
-            return (updateRowCount == 1);
+            con.setAutoCommit(false);
+            select = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT_FOR_UPDATE);
+            select.setString(1, parkingType.toString());
+            rs = select.executeQuery();
+            if (rs.next()) {
+                update = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+                update.setBoolean(1, false);
+                update.setInt(2, rs.getInt(1));
+                if (update.executeUpdate() == 1) {
+                    result = rs.getInt(1);
+                }
+            }
+            con.commit();
         }catch (Exception ex){
-            logger.error("Error updating parking info",ex);
-            return false;
+            logger.error("Error claiming next available slot",ex);
+            result = -1;
         }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(update);
+            dataBaseConfig.closePreparedStatement(select);
             dataBaseConfig.closeConnection(con);
         }
+        return result;
+    }
+
+    /**
+     * Updates the availability of the specified parking spot in the database.
+     *
+     * @param parkingSpot The ParkingSpot object representing the parking spot to be updated.
+     * @return true if the parking spot was successfully updated, false otherwise.
+     */
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot){
+        long startNanos = System.nanoTime();
+        try {
+            boolean offlineCapable = availabilityIndexLoaded && parkingSpot.getParkingType() != null;
+            if (offlineCapable && (dataBaseConfig.isOffline() || !writeOfflineChanges())) {
+                return updateParkingOffline(parkingSpot);
+            }
+            //update the availability fo that parking slot
+            Connection con = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, parkingSpot.getId());
+                int updateRowCount = ps.executeUpdate();
+                if (updateRowCount == 1 && parkingSpot.getParkingType() != null) {
+                    availabilityIndex.setAvailable(parkingSpot.getParkingType(), parkingSpot.getId(), parkingSpot.isAvailable());
+                }
+                return (updateRowCount == 1);
+            }catch (Exception ex){
+                if (offlineCapable && dataBaseConfig.isOffline()) {
+                    logger.warn("Database unavailable, updating parking spot offline: {}", ex.toString());
+                    return updateParkingOffline(parkingSpot);
+                }
+                logger.error("Error updating parking info",ex);
+                return false;
+            }finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        } finally {
+            UPDATE_PARKING_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Claims the next available spot in the availability index only, to be written to the parking table later.
+     *
+     * @param parkingType The ParkingType enum representing the type of parking.
+     * @return The number of the claimed parking spot, or -1 if no spot is available.
+     */
+    private int claimOffline(ParkingType parkingType) {
+        int parkingNumber = availabilityIndex.takeLowestAvailable(parkingType);
+        if (parkingNumber > 0) {
+            recordOfflineChange(parkingNumber, false);
+        }
+        return parkingNumber;
+    }
+
+    /**
+     * Updates the availability of a spot in the availability index only, to be written to the parking table later.
+     *
+     * @param parkingSpot The ParkingSpot object representing the parking spot to be updated.
+     * @return true
+     */
+    private boolean updateParkingOffline(ParkingSpot parkingSpot) {
+        availabilityIndex.setAvailable(parkingSpot.getParkingType(), parkingSpot.getId(), parkingSpot.isAvailable());
+        recordOfflineChange(parkingSpot.getId(), parkingSpot.isAvailable());
+        return true;
+    }
+
+    private void recordOfflineChange(int parkingNumber, boolean available) {
+        synchronized (offlineChangedSpots) {
+            offlineChangedSpots.set(parkingNumber);
+            offlineAvailableSpots.set(parkingNumber, available);
+            hasOfflineChanges = true;
+        }
+    }
+
+    /**
+     * Writes to the parking table the spot changes made while the database was offline, in one batch.
+     * Called before any other write or reload, so the table catches up with the index as soon as the database
+     * answers again.
+     *
+     * @return true if there was nothing to write or every change was written
+     */
+    public boolean writeOfflineChanges() {
+        if (!hasOfflineChanges) {
+            return true;
+        }
+        synchronized (offlineChangedSpots) {
+            if (!hasOfflineChanges) {
+                return true;
+            }
+            Connection con = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+                for (int n = offlineChangedSpots.nextSetBit(0); n >= 0; n = offlineChangedSpots.nextSetBit(n + 1)) {
+                    ps.setBoolean(1, offlineAvailableSpots.get(n));
+                    ps.setInt(2, n);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                logger.info("Wrote {} parking spot changes made offline", offlineChangedSpots.cardinality());
+                offlineChangedSpots.clear();
+                offlineAvailableSpots.clear();
+                hasOfflineChanges = false;
+                return true;
+            }catch (Exception ex){
+                logger.debug("Unable to write parking spot changes made offline", ex);
+                return false;
+            }finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of spot changes made offline and not yet written to the parking table.
+     */
+    public int getOfflineChangeCount() {
+        synchronized (offlineChangedSpots) {
+            return offlineChangedSpots.cardinality();
+        }
     }
 
 }
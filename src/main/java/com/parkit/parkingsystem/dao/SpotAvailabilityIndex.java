@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import com.parkit.parkingsystem.util.IntObjectHashMap;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The SpotAvailabilityIndex class keeps an in-memory copy of the AVAILABLE column of the parking table.
+ * It holds one bitset per parking type where bit n is set when spot number n is free, so the lowest free spot
+ * is found by scanning words of the bitset instead of querying the database.
+ * Every change is also applied to {@link OccupancyCounters}, which can be read without taking the index lock.
+ */
+public class SpotAvailabilityIndex {
+
+    /**
+     * The free spots of each parking type, bit n standing for parking number n.
+     */
+    private final Map<ParkingType, BitSet> availableSpots = new EnumMap<>(ParkingType.class);
+
+    /**
+     * The parking type of every known spot, used to move a spot between bitsets if its type changes.
+     */
+    private final IntObjectHashMap<ParkingType> spotTypes = new IntObjectHashMap<>();
+
+    private final OccupancyCounters counters = new OccupancyCounters();
+
+    public SpotAvailabilityIndex() {
+        for (ParkingType parkingType : ParkingType.values()) {
+            availableSpots.put(parkingType, new BitSet());
+        }
+    }
+
+    /**
+     * Forgets every spot. Used before reloading the index from the database.
+     */
+    public synchronized void clear() {
+        for (BitSet bitSet : availableSpots.values()) {
+            bitSet.clear();
+        }
+        spotTypes.clear();
+        counters.clear();
+    }
+
+    /**
+     * Records the availability of a spot.
+     *
+     * @param parkingType   the type of the spot
+     * @param parkingNumber the number of the spot
+     * @param available     true if the spot is free
+     */
+    public synchronized void setAvailable(ParkingType parkingType, int parkingNumber, boolean available) {
+        ParkingType previousType = spotTypes.put(parkingNumber, parkingType);
+        if (previousType != null) {
+            BitSet previous = availableSpots.get(previousType);
+            counters.add(previousType, -1, previous.get(parkingNumber) ? -1 : 0);
+            previous.clear(parkingNumber);
+        }
+        availableSpots.get(parkingType).set(parkingNumber, available);
+        counters.add(parkingType, 1, available ? 1 : 0);
+    }
+
+    /**
+     * Returns the lowest free spot of the given type.
+     *
+     * @param parkingType the type of spot wanted
+     * @return the lowest free parking number, or -1 if every spot of that type is taken
+     */
+    public synchronized int getLowestAvailable(ParkingType parkingType) {
+        return availableSpots.get(parkingType).nextSetBit(1);
+    }
+
+    /**
+     * Returns the lowest free spot of the given type and marks it as taken, as a single atomic step.
+     *
+     * @param parkingType the type of spot wanted
+     * @return the parking number taken, or -1 if every spot of that type is taken
+     */
+    public synchronized int takeLowestAvailable(ParkingType parkingType) {
+        BitSet bitSet = availableSpots.get(parkingType);
+        int parkingNumber = bitSet.nextSetBit(1);
+        if (parkingNumber > 0) {
+            bitSet.clear(parkingNumber);
+            counters.add(parkingType, 0, -1);
+        }
+        return parkingNumber;
+    }
+
+    /**
+     * Returns the number of free spots of the given type.
+     *
+     * @param parkingType the type of spot
+     * @return the number of free spots
+     */
+    public synchronized int countAvailable(ParkingType parkingType) {
+        return availableSpots.get(parkingType).cardinality();
+    }
+
+    /**
+     * Tells whether the given spot is known and free.
+     *
+     * @param parkingNumber the number of the spot
+     * @return true if the spot is free
+     */
+    public synchronized boolean isAvailable(int parkingNumber) {
+        ParkingType parkingType = spotTypes.get(parkingNumber);
+        return parkingType != null && availableSpots.get(parkingType).get(parkingNumber);
+    }
+
+    /**
+     * Returns the type of the given spot.
+     *
+     * @param parkingNumber the number of the spot
+     * @return the type of the spot, or null if the spot is unknown
+     */
+    public synchronized ParkingType getParkingType(int parkingNumber) {
+        return spotTypes.get(parkingNumber);
+    }
+
+    /**
+     * Returns the counters of the spots of each type, kept in step with the index.
+     */
+    public OccupancyCounters getCounters() {
+        return counters;
+    }
+}
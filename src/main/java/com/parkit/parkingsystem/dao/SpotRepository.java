@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * The SpotRepository interface gives access to the parking spots. {@link ParkingSpotDAO} keeps them in the MySQL
+ * parking table and {@link InMemorySpotRepository} in memory only.
+ */
+public interface SpotRepository {
+
+    /**
+     * Returns the next available parking spot of a type, without taking it.
+     *
+     * @param parkingType the type of spot wanted
+     * @return the lowest free parking number, or -1 if no spot is available
+     */
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Finds the next available parking spot of a type and marks it as taken in a single step, so two gates can never
+     * be given the same spot.
+     *
+     * @param parkingType the type of spot wanted
+     * @return the parking number taken, or -1 if no spot is available or an error occurred
+     */
+    int claimNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Records whether a spot is available.
+     *
+     * @param parkingSpot the spot, with its new availability
+     * @return true if the spot was updated
+     */
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * Counts the available spots of a type.
+     *
+     * @param parkingType the type of spot
+     * @return the number of free spots, or -1 if it cannot be counted
+     */
+    int countAvailableSlots(ParkingType parkingType);
+
+    /**
+     * Returns the live number of spots and free spots of each type.
+     */
+    OccupancyCounters getOccupancyCounters();
+}
@@ -0,0 +1,56 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * The TicketCaches class publishes over JMX the caches of a {@link TicketDAO}.
+ */
+public class TicketCaches implements TicketCachesMXBean {
+
+    private final TicketDAO ticketDAO;
+
+    public TicketCaches(TicketDAO ticketDAO) {
+        this.ticketDAO = ticketDAO;
+    }
+
+    @Override
+    public int getVisitCountCapacity() {
+        return ticketDAO.getVisitCountCache().getCapacity();
+    }
+
+    @Override
+    public void setVisitCountCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        ticketDAO.getVisitCountCache().setCapacity(capacity);
+    }
+
+    @Override
+    public int getVisitCountSize() {
+        return ticketDAO.getVisitCountCache().getSize();
+    }
+
+    @Override
+    public long getVisitCountHits() {
+        return ticketDAO.getVisitCountCache().getHitCount();
+    }
+
+    @Override
+    public long getVisitCountMisses() {
+        return ticketDAO.getVisitCountCache().getMissCount();
+    }
+
+    @Override
+    public long getVisitCountBloomNegatives() {
+        return ticketDAO.getVisitCountCache().getBloomNegativeCount();
+    }
+
+    @Override
+    public int getOpenTicketCount() {
+        return ticketDAO.getOpenTicketIndex().size();
+    }
+
+    @Override
+    public boolean reload() {
+        return ticketDAO.reloadCaches();
+    }
+}
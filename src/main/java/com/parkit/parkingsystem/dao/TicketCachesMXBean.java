@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * The TicketCachesMXBean interface is the JMX view of the in-memory caches of a {@link TicketDAO}: the visit counts
+ * answering the recurring-user check and the index of the open tickets.
+ */
+public interface TicketCachesMXBean {
+
+    int getVisitCountCapacity();
+
+    /**
+     * Changes the number of exact visit counts kept in memory. Extra entries are dropped on the next insertion.
+     *
+     * @param capacity the new capacity
+     */
+    void setVisitCountCapacity(int capacity);
+
+    int getVisitCountSize();
+
+    long getVisitCountHits();
+
+    long getVisitCountMisses();
+
+    /**
+     * Returns the number of lookups answered by the Bloom filter alone, for plates never seen.
+     */
+    long getVisitCountBloomNegatives();
+
+    int getOpenTicketCount();
+
+    /**
+     * Reloads both caches from the ticket table.
+     *
+     * @return true if the caches were reloaded
+     */
+    boolean reload();
+}
@@ -1,9 +1,9 @@
 package com.parkit.parkingsystem.dao;
 
-import java.sql.SQLException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
 import java.sql.Timestamp;
 
 import org.apache.logging.log4j.LogManager;
@@ -14,111 +14,337 @@ import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketColumns;
+import com.parkit.parkingsystem.model.TicketLookup;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.parkit.parkingsystem.util.LatencyMetrics;
 
 /**
  * The TicketDAO class provides methods to interact with the database for ticket-related operations.
+ * It is the JDBC implementation of {@link TicketRepository}.
+ * While the database is offline (its circuit breaker is open), tickets are journaled to the offline buffer and exits
+ * are answered from the open ticket index; the buffer writes them to the database once it recovers.
  */
-public class TicketDAO {
+public class TicketDAO implements TicketRepository {
 
     /**
      * Logger for the TicketDAO class.
      */
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final LatencyHistogram SAVE_TICKET_LATENCY = LatencyMetrics.histogram("TicketDAO.saveTicket");
+    private static final LatencyHistogram UPDATE_TICKET_LATENCY = LatencyMetrics.histogram("TicketDAO.updateTicket");
+    private static final LatencyHistogram GET_TICKET_LATENCY = LatencyMetrics.histogram("TicketDAO.getTicket");
+    private static final LatencyHistogram GET_CURRENT_TICKET_LATENCY =
+            LatencyMetrics.histogram("TicketDAO.getCurrentTicket");
+    private static final LatencyHistogram GET_EXIT_LOOKUP_LATENCY = LatencyMetrics.histogram("TicketDAO.getExitLookup");
+    private static final LatencyHistogram GET_NB_TICKET_LATENCY = LatencyMetrics.histogram("TicketDAO.getNbTicket");
+    private static final LatencyHistogram READ_CLOSED_TICKETS_LATENCY =
+            LatencyMetrics.histogram("TicketDAO.readClosedTickets");
+    private static final LatencyHistogram UPDATE_TICKET_PRICES_LATENCY =
+            LatencyMetrics.histogram("TicketDAO.updateTicketPrices");
+    private static final LatencyHistogram RELOAD_CACHES_LATENCY = LatencyMetrics.histogram("TicketDAO.reloadCaches");
+
     /**
      * The DataBaseConfig class provides methods for configuring and managing the database connection.
      */
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    /**
+     * Cache of the number of tickets per vehicle, answering the recurring-user check without a COUNT query.
+     */
+    private final VisitCountCache visitCountCache = new VisitCountCache();
+
+    /**
+     * Open ticket of every parked vehicle, answering exit lookups without querying the ticket table.
+     */
+    private final OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+
+    /**
+     * Whether the visit count cache and the open ticket index have been loaded from the ticket table.
+     */
+    private volatile boolean cachesLoaded;
+
+    /**
+     * Maximum time a read waits for journaled saves of the same vehicle to reach the database.
+     */
+    private static final long PENDING_SAVE_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Optional write-behind journal; when set, saves and updates are acknowledged once journaled.
+     */
+    private volatile TicketWriteBehind writeBehind;
+
+    /**
+     * Switches this DAO to write-behind mode, or back to synchronous writes when given null.
+     * The journal must have been started.
+     *
+     * @param writeBehind the started write-behind journal, or null
+     */
+    public void setWriteBehind(TicketWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Optional journal receiving the saves and updates made while the database is offline.
+     */
+    private volatile TicketWriteBehind offlineBuffer;
+
+    /**
+     * Sets the journal buffering tickets while the database is offline, or null to fail instead.
+     * The journal must have been started; it may be the write-behind journal.
+     *
+     * @param offlineBuffer the started journal, or null
+     */
+    public void setOfflineBuffer(TicketWriteBehind offlineBuffer) {
+        this.offlineBuffer = offlineBuffer;
+    }
+
+    /**
+     * Returns the offline buffer to use if the database is offline.
+     *
+     * @return the offline buffer, or null if there is none or the database is available
+     */
+    private TicketWriteBehind offlineBufferIfOffline() {
+        TicketWriteBehind buffer = offlineBuffer;
+        return buffer != null && dataBaseConfig.isOffline() ? buffer : null;
+    }
+
+    /**
+     * Waits until the journaled saves of a vehicle have reached the database, so reads see them.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     */
+    private void awaitPendingSave(String vehicleRegNumber) {
+        TicketWriteBehind journal = writeBehind != null ? writeBehind : offlineBuffer;
+        // Waiting is pointless while the database is offline: the read fails at once anyway
+        if (journal != null && !dataBaseConfig.isOffline() && journal.hasPendingSave(vehicleRegNumber)
+                && !journal.awaitFlushed(PENDING_SAVE_TIMEOUT_MILLIS)) {
+            logger.error("Journaled tickets of {} not yet written to the database", vehicleRegNumber);
+        }
+    }
+
     //Rewritten version with ps.executeUpdate() instead of ps.execute()
 
     /**
      * Saves a ticket in the database.
+     * In write-behind mode, or while the database is offline, the ticket is journaled locally and written to the
+     * database by a later batch; it then has no id.
      *
      * @param ticket The ticket to be saved.
      * @return true if the ticket is successfully saved, false otherwise.
      */
+    @Override
     public boolean saveTicket(Ticket ticket) {
-        Connection con = null;
-        PreparedStatement ps = null;
-
+        long startNanos = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-
-            if (con == null) {
-                System.out.println("Failed to establish database connection");
-                return false;
+            TicketWriteBehind journal = writeBehind != null ? writeBehind : offlineBufferIfOffline();
+            if (journal != null) {
+                return journalSave(journal, ticket);
             }
 
-            ps = con.prepareStatement(DBConstants.SAVE_TICKET);
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet generatedKeys = null;
+            PreparedStatement pointer = null;
 
-            ps.setInt(1, ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+            try {
+                con = dataBaseConfig.getConnection();
 
-            if (ticket.getOutTime() != null) {
-                ps.setTimestamp(5, new Timestamp(ticket.getOutTime().getTime()));
-            } else {
-                ps.setTimestamp(5, null);
-            }
+                if (con == null) {
+                    System.out.println("Failed to establish database connection");
+                    return false;
+                }
 
-            int updateCount = ps.executeUpdate();
+                // The ticket and the spot's current ticket pointer are written together
+                con.setAutoCommit(false);
+                ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
 
-            if (updateCount == 0) {
-                System.out.println("Failed to save ticket in database");
-                return false;
-            }
+                ps.setInt(1, ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
 
-            return true;
+                if (ticket.getOutTime() != null) {
+                    ps.setTimestamp(5, new Timestamp(ticket.getOutTime().getTime()));
+                } else {
+                    ps.setTimestamp(5, null);
+                }
 
-        } catch (Exception ex) {
-            // Handle exception
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
+                int updateCount = ps.executeUpdate();
+
+                if (updateCount == 0) {
+                    System.out.println("Failed to save ticket in database");
+                    return false;
+                }
+
+                generatedKeys = ps.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    ticket.setId(generatedKeys.getInt(1));
+                }
+
+                if (ticket.getOutTime() == null) {
+                    pointer = con.prepareStatement(DBConstants.SET_CURRENT_TICKET);
+                    pointer.setInt(1, ticket.getId());
+                    pointer.setInt(2, ticket.getParkingSpot().getId());
+                    pointer.executeUpdate();
+                }
+                con.commit();
+
+                recordSavedTicket(ticket);
+                return true;
+
+            } catch (Exception ex) {
+                TicketWriteBehind buffer = offlineBufferIfOffline();
+                if (buffer != null) {
+                    logger.warn("Database unavailable, journaling ticket until it recovers: {}", ex.toString());
+                    // The id generated by the rolled back insert is not valid
+                    ticket.setId(0);
+                    return journalSave(buffer, ticket);
                 }
-                dataBaseConfig.closeConnection(con);
-            } catch (SQLException e) {
                 // Handle exception
+                logger.error("Error saving ticket", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(generatedKeys);
+                dataBaseConfig.closePreparedStatement(pointer);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
             }
+
+            return false;
+        } finally {
+            SAVE_TICKET_LATENCY.recordSince(startNanos);
         }
+    }
 
-        return false;
+    /**
+     * Journals the saving of a ticket and updates the caches.
+     *
+     * @param journal the write-behind journal or offline buffer
+     * @param ticket  the ticket to save
+     * @return true if the ticket was journaled
+     */
+    private boolean journalSave(TicketWriteBehind journal, Ticket ticket) {
+        try {
+            journal.save(ticket);
+        } catch (Exception ex) {
+            logger.error("Error journaling ticket", ex);
+            return false;
+        }
+        recordSavedTicket(ticket);
+        return true;
+    }
+
+    /**
+     * Journals the update of a ticket and updates the caches.
+     *
+     * @param journal the write-behind journal or offline buffer
+     * @param ticket  the ticket to update
+     * @return true if the update was journaled
+     */
+    private boolean journalUpdate(TicketWriteBehind journal, Ticket ticket) {
+        try {
+            journal.update(ticket);
+            recordClosedTicket(ticket);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error journaling ticket update", ex);
+            return false;
+        }
     }
 
     //Rewritten version with ps.executeUpdate() instead of ps.execute()
 
     /**
      * Updates a parking ticket in the database.
+     * In write-behind mode, or while the database is offline, the update is journaled locally and written to the
+     * database by a later batch. So is the update of a ticket saved offline, which has no id: the journal writes it
+     * after the ticket itself.
      *
      * @param ticket The ticket to be updated.
      * @return True if the ticket is successfully updated, false otherwise.
      */
+    @Override
     public boolean updateTicket(Ticket ticket) {
-        Connection con = null;
-        boolean updateResult = false;
-
+        long startNanos = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3, ticket.getId());
+            TicketWriteBehind journal = writeBehind;
+            if (journal == null) {
+                journal = ticket.getId() == 0 ? offlineBuffer : offlineBufferIfOffline();
+            }
+            if (journal != null) {
+                return journalUpdate(journal, ticket);
+            }
+
+            Connection con = null;
+            PreparedStatement ps = null;
+            PreparedStatement pointer = null;
+            boolean updateResult = false;
+
+            try {
+                con = dataBaseConfig.getConnection();
+                // The ticket and the spot's current ticket pointer are written together
+                con.setAutoCommit(false);
+                ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setInt(3, ticket.getId());
 
-            int rowsUpdated = ps.executeUpdate();
+                int rowsUpdated = ps.executeUpdate();
 
-            if (rowsUpdated > 0) {
-                updateResult = true;
+                if (rowsUpdated > 0) {
+                    pointer = con.prepareStatement(DBConstants.CLEAR_CURRENT_TICKET);
+                    pointer.setInt(1, ticket.getParkingSpot().getId());
+                    pointer.setInt(2, ticket.getId());
+                    pointer.executeUpdate();
+                    con.commit();
+                    updateResult = true;
+                    recordClosedTicket(ticket);
+                }
+            } catch (Exception ex) {
+                TicketWriteBehind buffer = offlineBufferIfOffline();
+                if (buffer != null) {
+                    logger.warn("Database unavailable, journaling ticket update until it recovers: {}", ex.toString());
+                    return journalUpdate(buffer, ticket);
+                }
+                logger.error("Error saving ticket info", ex);
+            } finally {
+                dataBaseConfig.closePreparedStatement(pointer);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
             }
-        } catch (Exception ex) {
-            logger.error("Error saving ticket info", ex);
+
+            return updateResult;
         } finally {
-            dataBaseConfig.closeConnection(con);
+            UPDATE_TICKET_LATENCY.recordSince(startNanos);
         }
+    }
 
-        return updateResult;
+    /**
+     * Updates the caches after a ticket has been saved.
+     *
+     * @param ticket the saved ticket, whose id is 0 if it has only been journaled
+     */
+    private void recordSavedTicket(Ticket ticket) {
+        if (cachesLoaded) {
+            visitCountCache.recordTicket(ticket.getVehicleRegNumber());
+            if (ticket.getOutTime() == null) {
+                openTicketIndex.put(ticket.getVehicleRegNumber(), new OpenTicketIndex.OpenTicket(ticket.getId(),
+                        ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(),
+                        ticket.getInTime().getTime()));
+            }
+        }
+    }
+
+    /**
+     * Updates the caches after a ticket has been closed.
+     *
+     * @param ticket the updated ticket
+     */
+    private void recordClosedTicket(Ticket ticket) {
+        if (ticket.getOutTime() != null) {
+            openTicketIndex.remove(ticket.getVehicleRegNumber(), ticket.getId(), ticket.getInTime().getTime());
+        }
     }
 
     /**
@@ -127,50 +353,224 @@ public class TicketDAO {
      * @param vehicleRegNumber the vehicle registration number
      * @return the ticket associated with the given vehicle registration number, or null if no ticket is found
      */
+    @Override
     public Ticket getTicket(String vehicleRegNumber) {
-        Connection con = null;
-        Ticket ticket = null;
+        long startNanos = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-            // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+            awaitPendingSave(vehicleRegNumber);
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            Ticket ticket = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_TICKET);
+                // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                ps.setString(1, vehicleRegNumber);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    ticket = new Ticket();
+                    ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
+                    ticket.setParkingSpot(parkingSpot);
+                    ticket.setId(rs.getInt(2));
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setPrice(rs.getDouble(3));
+                    ticket.setInTime(rs.getTimestamp(4));
+                    ticket.setOutTime(rs.getTimestamp(5));
+                }
+            } catch (Exception ex) {
+                logger.error("Error fetching next available slot", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
-        } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
+            return ticket;
         } finally {
-            dataBaseConfig.closeConnection(con);
+            GET_TICKET_LATENCY.recordSince(startNanos);
         }
-        return ticket;
+    }
+
+    /**
+     * Retrieves the open ticket of the vehicle parked on the given spot, following the spot's current ticket pointer.
+     *
+     * @param parkingNumber the number of the parking spot
+     * @return the open ticket of the spot, or null if the spot is free
+     */
+    @Override
+    public Ticket getCurrentTicket(int parkingNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            Ticket ticket = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_CURRENT_TICKET);
+                ps.setInt(1, parkingNumber);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    ticket = new Ticket();
+                    ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.valueOf(rs.getString(6)), false));
+                    ticket.setId(rs.getInt(1));
+                    ticket.setVehicleRegNumber(rs.getString(2));
+                    ticket.setPrice(rs.getDouble(3));
+                    ticket.setInTime(rs.getTimestamp(4));
+                    ticket.setOutTime(rs.getTimestamp(5));
+                }
+            } catch (Exception ex) {
+                logger.error("Error fetching current ticket of parking spot", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return ticket;
+        } finally {
+            GET_CURRENT_TICKET_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Retrieves the open ticket of the given vehicle together with the number of tickets issued to it.
+     * The open ticket index usually answers without reading the ticket table; otherwise a single query
+     * on a single connection returns both.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the open ticket and the vehicle's ticket count, or null if the vehicle has no open ticket
+     */
+    @Override
+    public TicketLookup getExitLookup(String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            if (ensureCachesLoaded()) {
+                OpenTicketIndex.OpenTicket openTicket = openTicketIndex.get(vehicleRegNumber);
+                boolean offline = offlineBufferIfOffline() != null;
+                if (openTicket != null && openTicket.getTicketId() == 0 && writeBehind == null && !offline) {
+                    openTicket = resolveJournaledTicket(vehicleRegNumber, openTicket);
+                }
+                // A ticket only journaled has no id yet: its update is journaled after it and written by plate and
+                // in time, so it leaves without reading it back from the database
+                if (openTicket != null
+                        && (openTicket.getTicketId() > 0 || writeBehind != null || offlineBuffer != null)) {
+                    Ticket ticket = new Ticket();
+                    ticket.setParkingSpot(new ParkingSpot(openTicket.getParkingNumber(), openTicket.getParkingType(), false));
+                    ticket.setId(openTicket.getTicketId());
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setPrice(0);
+                    ticket.setInTime(new Timestamp(openTicket.getInTime()));
+                    return new TicketLookup(ticket, getNbTicket(vehicleRegNumber));
+                }
+                if (offline) {
+                    return null;
+                }
+            }
+            awaitPendingSave(vehicleRegNumber);
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            TicketLookup lookup = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_OPEN_TICKET_WITH_COUNT);
+                ps.setString(1, vehicleRegNumber);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    Ticket ticket = new Ticket();
+                    ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
+                    ticket.setParkingSpot(parkingSpot);
+                    ticket.setId(rs.getInt(2));
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setPrice(rs.getDouble(3));
+                    ticket.setInTime(rs.getTimestamp(4));
+                    ticket.setOutTime(rs.getTimestamp(5));
+                    lookup = new TicketLookup(ticket, rs.getInt(7));
+                }
+            } catch (Exception ex) {
+                logger.error("Error fetching open ticket", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return lookup;
+        } finally {
+            GET_EXIT_LOOKUP_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Finds the id of a ticket journaled while the database was offline, once the journal has written it: the spot's
+     * current ticket pointer then leads to it with two primary key reads. The ticket can be closed by id instead of
+     * journaling its update after it.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param openTicket       the indexed ticket, without id
+     * @return the indexed ticket with its id, or the given one if the ticket is not in the database yet
+     */
+    private OpenTicketIndex.OpenTicket resolveJournaledTicket(String vehicleRegNumber,
+                                                              OpenTicketIndex.OpenTicket openTicket) {
+        Ticket current = getCurrentTicket(openTicket.getParkingNumber());
+        if (current == null || !vehicleRegNumber.equals(current.getVehicleRegNumber())
+                || TicketWriteBehind.roundToSecond(current.getInTime().getTime())
+                != TicketWriteBehind.roundToSecond(openTicket.getInTime())) {
+            return openTicket;
+        }
+        OpenTicketIndex.OpenTicket resolved = new OpenTicketIndex.OpenTicket(current.getId(),
+                openTicket.getParkingNumber(), openTicket.getParkingType(), openTicket.getInTime());
+        openTicketIndex.put(vehicleRegNumber, resolved);
+        return resolved;
     }
 
     /**
      * Returns the number of tickets associated with the given vehicle registration number.
+     * The visit count cache answers without touching the database for never-seen plates and recently seen ones.
      *
      * @param vehicleRegNumber the vehicle registration number
      * @return the number of tickets associated with the given vehicle registration number
      */
+    @Override
     public int getNbTicket(String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            if (!ensureCachesLoaded()) {
+                return Math.max(0, queryNbTicket(vehicleRegNumber));
+            }
+            int nbTicket = visitCountCache.getCount(vehicleRegNumber);
+            if (nbTicket == VisitCountCache.UNKNOWN && dataBaseConfig.isOffline()) {
+                // Unknown while offline: counted as a first visit rather than waiting for the database
+                return 0;
+            }
+            if (nbTicket == VisitCountCache.UNKNOWN) {
+                nbTicket = queryNbTicket(vehicleRegNumber);
+                if (nbTicket < 0) {
+                    return 0;
+                }
+                visitCountCache.putCount(vehicleRegNumber, nbTicket);
+            }
+            return nbTicket;
+        } finally {
+            GET_NB_TICKET_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Counts the tickets of the given vehicle in the database.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the number of tickets, or -1 if the query failed
+     */
+    private int queryNbTicket(String vehicleRegNumber) {
+        awaitPendingSave(vehicleRegNumber);
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
-        int nbTicket = 0;
+        int nbTicket = -1;
 
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement("SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?");
+            ps = con.prepareStatement(DBConstants.GET_NB_TICKET);
             ps.setString(1, vehicleRegNumber);
             rs = ps.executeQuery();
 
@@ -188,4 +588,181 @@ public class TicketDAO {
         return nbTicket;
     }
 
+    /**
+     * Reads the next chunk of closed tickets, in id order, into primitive columns.
+     * Only the tickets closed between the two given times are read.
+     *
+     * @param afterId  the id after which to read, 0 to start from the first ticket
+     * @param fromTime the earliest out time, included, in epoch milliseconds
+     * @param toTime   the latest out time, excluded, in epoch milliseconds
+     * @param columns  the chunk to fill; it is cleared first and filled up to its capacity
+     * @return the number of tickets read, or -1 if the query failed
+     */
+    @Override
+    public int readClosedTickets(int afterId, long fromTime, long toTime, TicketColumns columns) {
+        long startNanos = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            columns.clear();
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS);
+                ps.setInt(1, afterId);
+                ps.setTimestamp(2, new Timestamp(fromTime));
+                ps.setTimestamp(3, new Timestamp(toTime));
+                ps.setInt(4, columns.getCapacity());
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    columns.add(rs.getInt(1), rs.getTimestamp(2).getTime(), rs.getTimestamp(3).getTime(),
+                            ParkingType.valueOf(rs.getString(4)).ordinal(), rs.getBoolean(6),
+                            Math.round(rs.getDouble(5) * 100));
+                }
+                return columns.getSize();
+            } catch (Exception ex) {
+                logger.error("Error reading closed tickets", ex);
+                return -1;
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        } finally {
+            READ_CLOSED_TICKETS_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Sets the price of several tickets, in one transaction sent as JDBC batches.
+     *
+     * @param ids        the ticket ids
+     * @param priceCents the new price of each ticket, in cents
+     * @param count      the number of tickets to update, from the start of the arrays
+     * @param batchSize  the number of updates sent to the database at once
+     * @return true if every price was updated
+     */
+    @Override
+    public boolean updateTicketPrices(int[] ids, long[] priceCents, int count, int batchSize) {
+        long startNanos = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                con.setAutoCommit(false);
+                ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE);
+                for (int i = 0; i < count; i++) {
+                    ps.setDouble(1, priceCents[i] / 100.0);
+                    ps.setInt(2, ids[i]);
+                    ps.addBatch();
+                    if ((i + 1) % batchSize == 0 || i + 1 == count) {
+                        ps.executeBatch();
+                    }
+                }
+                con.commit();
+                return true;
+            } catch (Exception ex) {
+                logger.error("Error updating ticket prices", ex);
+                return false;
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        } finally {
+            UPDATE_TICKET_PRICES_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Loads the visit count cache and the open ticket index if they have not been loaded yet.
+     *
+     * @return true if the cache is loaded and can be used
+     */
+    private boolean ensureCachesLoaded() {
+        if (!cachesLoaded) {
+            synchronized (visitCountCache) {
+                if (!cachesLoaded) {
+                    cachesLoaded = loadCaches();
+                }
+            }
+        }
+        return cachesLoaded;
+    }
+
+    /**
+     * Reloads the caches of this DAO from the ticket table.
+     * Must be called when the table is modified outside of this DAO.
+     *
+     * @return true if the caches were successfully reloaded
+     */
+    public boolean reloadCaches() {
+        long startNanos = System.nanoTime();
+        try {
+            synchronized (visitCountCache) {
+                cachesLoaded = loadCaches();
+                return cachesLoaded;
+            }
+        } finally {
+            RELOAD_CACHES_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Adds every plate of the ticket table to the visit count cache, with its exact count while there is room,
+     * and rebuilds the open ticket index from the tickets without an out time.
+     *
+     * @return true if the ticket table was read successfully
+     */
+    private boolean loadCaches() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_NB_TICKET_PER_VEHICLE);
+            rs = ps.executeQuery();
+            visitCountCache.clear();
+            while (rs.next()) {
+                visitCountCache.putCount(rs.getString(1), rs.getInt(2));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+
+            ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+            rs = ps.executeQuery();
+            openTicketIndex.clear();
+            while (rs.next()) {
+                openTicketIndex.put(rs.getString(3), new OpenTicketIndex.OpenTicket(rs.getInt(1), rs.getInt(2),
+                        ParkingType.valueOf(rs.getString(5)), rs.getTimestamp(4).getTime()));
+            }
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error loading ticket caches", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Returns the open ticket index, to read its size.
+     *
+     * @return the open ticket index
+     */
+    public OpenTicketIndex getOpenTicketIndex() {
+        return openTicketIndex;
+    }
+
+    /**
+     * Returns the visit count cache, to read its hit and miss statistics.
+     *
+     * @return the visit count cache
+     */
+    public VisitCountCache getVisitCountCache() {
+        return visitCountCache;
+    }
+
 }
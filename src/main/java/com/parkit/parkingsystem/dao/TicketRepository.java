@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketColumns;
+import com.parkit.parkingsystem.model.TicketLookup;
+
+/**
+ * The TicketRepository interface gives access to the parking tickets. {@link TicketDAO} keeps them in the MySQL
+ * ticket table and {@link InMemoryTicketRepository} in memory only.
+ */
+public interface TicketRepository {
+
+    /**
+     * Saves a new ticket and sets its id.
+     *
+     * @param ticket the ticket to save
+     * @return true if the ticket was saved
+     */
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * Saves the price and out time of a ticket.
+     *
+     * @param ticket the ticket to update
+     * @return true if the ticket was updated
+     */
+    boolean updateTicket(Ticket ticket);
+
+    /**
+     * Returns the most recent ticket of a vehicle, open or not.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the ticket, or null if the vehicle has none
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    /**
+     * Returns the open ticket of the vehicle parked on a spot.
+     *
+     * @param parkingNumber the number of the parking spot
+     * @return the open ticket of the spot, or null if the spot is free
+     */
+    Ticket getCurrentTicket(int parkingNumber);
+
+    /**
+     * Returns the open ticket of a vehicle together with the number of tickets issued to it.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the open ticket and the ticket count, or null if the vehicle has no open ticket
+     */
+    TicketLookup getExitLookup(String vehicleRegNumber);
+
+    /**
+     * Returns the number of tickets issued to a vehicle.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the number of tickets
+     */
+    int getNbTicket(String vehicleRegNumber);
+
+    /**
+     * Reads the next chunk of closed tickets, in id order, into primitive columns.
+     *
+     * @param afterId  the id after which to read, 0 to start from the first ticket
+     * @param fromTime the earliest out time, included, in epoch milliseconds
+     * @param toTime   the latest out time, excluded, in epoch milliseconds
+     * @param columns  the chunk to fill; it is cleared first and filled up to its capacity
+     * @return the number of tickets read, or -1 if they could not be read
+     */
+    int readClosedTickets(int afterId, long fromTime, long toTime, TicketColumns columns);
+
+    /**
+     * Sets the price of several tickets at once.
+     *
+     * @param ids        the ticket ids
+     * @param priceCents the new price of each ticket, in cents
+     * @param count      the number of tickets to update, from the start of the arrays
+     * @param batchSize  the number of updates sent to the storage at once
+     * @return true if every price was updated
+     */
+    boolean updateTicketPrices(int[] ids, long[] priceCents, int count, int batchSize);
+}
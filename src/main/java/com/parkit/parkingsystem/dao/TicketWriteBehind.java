@@ -0,0 +1,658 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The TicketWriteBehind class lets the TicketDAO acknowledge ticket saves and updates before they reach the database.
+ * Each mutation is appended and synced to a local journal file, then a background thread writes the pending mutations
+ * to MySQL in JDBC batches committed as a single transaction (group commit). A batch is flushed as soon as it holds
+ * flushSize mutations or its oldest mutation has waited maxFlushLatencyMillis.
+ * On start, mutations journaled but not yet committed by a previous run are replayed. Inserts are written so that
+ * replaying an already committed insert has no effect.
+ * The journal is emptied whenever every mutation has been written. Under steady traffic it rarely is, so once the file
+ * grows past the compaction threshold it is rewritten with only the mutations after the checkpoint.
+ * The TicketDAO also uses the journal as its offline buffer while the database is unreachable; updates of tickets
+ * saved offline, which have no id yet, find their ticket by vehicle and in time.
+ */
+public class TicketWriteBehind {
+
+    /**
+     * Default maximum number of mutations written in one batch.
+     */
+    public static final int DEFAULT_FLUSH_SIZE = 100;
+
+    /**
+     * Default maximum time a mutation waits before being written to the database.
+     */
+    public static final long DEFAULT_MAX_FLUSH_LATENCY_MILLIS = 200;
+
+    /**
+     * Default size past which the journal is compacted after a batch is written (1 MB).
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 1024 * 1024L;
+
+    /**
+     * Time waited before retrying a batch the database refused.
+     */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteBehind");
+
+    /**
+     * The kinds of mutation the journal can hold.
+     */
+    public enum Kind {
+        SAVE,
+        UPDATE
+    }
+
+    /**
+     * A journaled ticket mutation.
+     */
+    static final class Entry {
+        final long sequence;
+        final Kind kind;
+        final int id;
+        final int parkingNumber;
+        final String vehicleRegNumber;
+        final double price;
+        final long inTime;
+        final long outTime;
+
+        Entry(long sequence, Kind kind, int id, int parkingNumber, String vehicleRegNumber, double price,
+              long inTime, long outTime) {
+            this.sequence = sequence;
+            this.kind = kind;
+            this.id = id;
+            this.parkingNumber = parkingNumber;
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.price = price;
+            this.inTime = inTime;
+            this.outTime = outTime;
+        }
+    }
+
+    private final DataBaseConfig dataBaseConfig;
+    private final File journalFile;
+    private final File checkpointFile;
+    private final int flushSize;
+    private final long maxFlushLatencyMillis;
+    private volatile long compactionThresholdBytes = DEFAULT_COMPACTION_THRESHOLD_BYTES;
+
+    /**
+     * Mutations waiting to be written, in journal order. Guarded by this object's monitor.
+     */
+    private final Deque<Entry> pending = new ArrayDeque<>();
+
+    /**
+     * Number of unwritten saves per plate, so reads of those plates can wait for them.
+     */
+    private final ConcurrentMap<String, Integer> pendingSaves = new ConcurrentHashMap<>();
+
+    /**
+     * Mutations appended to the journal file but not yet synced, in journal order. Guarded by this object's monitor.
+     */
+    private final List<Entry> unsynced = new ArrayList<>();
+
+    private FileOutputStream journalOutput;
+    private long lastAppendedSequence;
+    private long lastSyncedSequence;
+
+    /**
+     * Set while an appender syncs the journal for every mutation appended so far (group commit of the fsync).
+     */
+    private boolean syncing;
+    private volatile long lastFlushedSequence;
+    private Thread flusher;
+    private volatile boolean running;
+
+    /**
+     * Set when a reader waits for the pending mutations, so the flusher writes them without waiting for a full batch.
+     */
+    private boolean flushRequested;
+
+    /**
+     * Creates a write-behind journal with the default flush size and latency.
+     *
+     * @param dataBaseConfig the database the mutations are written to
+     * @param directory      the directory holding the journal files
+     */
+    public TicketWriteBehind(DataBaseConfig dataBaseConfig, File directory) {
+        this(dataBaseConfig, directory, DEFAULT_FLUSH_SIZE, DEFAULT_MAX_FLUSH_LATENCY_MILLIS);
+    }
+
+    /**
+     * Creates a write-behind journal. Nothing is read or written until {@link #start()} is called.
+     *
+     * @param dataBaseConfig        the database the mutations are written to
+     * @param directory             the directory holding the journal files
+     * @param flushSize             the maximum number of mutations written in one batch
+     * @param maxFlushLatencyMillis the maximum time a mutation waits before being written
+     */
+    public TicketWriteBehind(DataBaseConfig dataBaseConfig, File directory, int flushSize, long maxFlushLatencyMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.journalFile = new File(directory, "ticket.journal");
+        this.checkpointFile = new File(directory, "ticket.checkpoint");
+        this.flushSize = flushSize;
+        this.maxFlushLatencyMillis = maxFlushLatencyMillis;
+    }
+
+    /**
+     * Sets the size past which the journal is rewritten without the mutations already written to the database.
+     *
+     * @param compactionThresholdBytes the journal size triggering a compaction, in bytes
+     */
+    public void setCompactionThresholdBytes(long compactionThresholdBytes) {
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    /**
+     * Replays the mutations left unwritten by a previous run, then starts the background flusher.
+     *
+     * @throws IOException if the journal files cannot be read or opened
+     */
+    public synchronized void start() throws IOException {
+        Files.createDirectories(journalFile.getParentFile().toPath());
+        long checkpoint = readCheckpoint();
+        lastFlushedSequence = checkpoint;
+        lastAppendedSequence = checkpoint;
+        for (Entry entry : readJournal()) {
+            if (entry.sequence > checkpoint) {
+                pending.addLast(entry);
+                if (entry.kind == Kind.SAVE) {
+                    pendingSaves.merge(entry.vehicleRegNumber, 1, Integer::sum);
+                }
+            }
+            lastAppendedSequence = Math.max(lastAppendedSequence, entry.sequence);
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Replaying {} unwritten ticket mutations from {}", pending.size(), journalFile);
+        }
+        // Rewrite the journal with only the replayed entries, dropping any torn record at its end
+        journalOutput = new FileOutputStream(journalFile, false);
+        for (Entry entry : pending) {
+            writeRecord(journalOutput, entry);
+        }
+        journalOutput.getChannel().force(false);
+        lastSyncedSequence = lastAppendedSequence;
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "ticket-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Journals the saving of a new ticket.
+     *
+     * @param ticket the ticket to save
+     * @throws IOException if the mutation could not be made durable
+     */
+    public void save(Ticket ticket) throws IOException {
+        append(Kind.SAVE, ticket);
+    }
+
+    /**
+     * Journals the update of the price and out time of a ticket.
+     *
+     * @param ticket the ticket to update
+     * @throws IOException if the mutation could not be made durable
+     */
+    public void update(Ticket ticket) throws IOException {
+        append(Kind.UPDATE, ticket);
+    }
+
+    /**
+     * Appends a mutation to the journal and returns once it is synced. Appenders do not sync one by one: the first
+     * one to find no sync in progress syncs every mutation appended so far, and the others wait for that sync, so
+     * concurrent gates share one fsync. Synced mutations are then handed to the flusher, in journal order.
+     */
+    private void append(Kind kind, Ticket ticket) throws IOException {
+        long sequence;
+        synchronized (this) {
+            if (!running) {
+                throw new IOException("Ticket write-behind journal is not running");
+            }
+            Entry entry = new Entry(lastAppendedSequence + 1, kind, ticket.getId(), ticket.getParkingSpot().getId(),
+                    ticket.getVehicleRegNumber(), ticket.getPrice(),
+                    roundToSecond(ticket.getInTime().getTime()),
+                    ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime());
+            writeRecord(journalOutput, entry);
+            lastAppendedSequence = entry.sequence;
+            unsynced.add(entry);
+            sequence = entry.sequence;
+        }
+        sync(sequence);
+    }
+
+    /**
+     * Returns once the journal is synced up to the given sequence, syncing it if no other appender is doing so.
+     */
+    private void sync(long sequence) throws IOException {
+        List<Entry> group;
+        long target;
+        synchronized (this) {
+            while (syncing && lastSyncedSequence < sequence) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while syncing the ticket journal");
+                }
+            }
+            if (lastSyncedSequence >= sequence) {
+                return;
+            }
+            syncing = true;
+            target = lastAppendedSequence;
+            group = new ArrayList<>(unsynced);
+            unsynced.clear();
+        }
+        boolean synced = false;
+        try {
+            journalOutput.getChannel().force(false);
+            synced = true;
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                if (synced) {
+                    lastSyncedSequence = target;
+                    for (Entry entry : group) {
+                        pending.addLast(entry);
+                        if (entry.kind == Kind.SAVE) {
+                            pendingSaves.merge(entry.vehicleRegNumber, 1, Integer::sum);
+                        }
+                    }
+                } else {
+                    // The next appender syncs them again
+                    unsynced.addAll(0, group);
+                }
+                // Wakes the appenders waiting for this sync, whether it covered them or they must retry it, and the
+                // flusher, once per sync rather than once per mutation
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Tells whether a plate has a journaled save not yet written to the database.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return true if a save of that plate is pending
+     */
+    public boolean hasPendingSave(String vehicleRegNumber) {
+        return pendingSaves.containsKey(vehicleRegNumber);
+    }
+
+    /**
+     * Waits until every mutation journaled, and synced, before this call has been written to the database.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if the mutations were written in time
+     */
+    public synchronized boolean awaitFlushed(long timeoutMillis) {
+        long target = lastSyncedSequence;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        flushRequested = true;
+        notifyAll();
+        try {
+            while (lastFlushedSequence < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of mutations not yet written to the database.
+     *
+     * @return the number of pending mutations
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the flusher after writing the pending mutations, waiting at most the given time.
+     * Mutations still unwritten stay in the journal and are replayed on the next start.
+     *
+     * @param timeoutMillis the maximum time to wait for the pending mutations
+     */
+    public void stop(long timeoutMillis) {
+        awaitFlushed(timeoutMillis);
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            flusher.join(timeoutMillis);
+            synchronized (this) {
+                journalOutput.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Error while closing ticket journal", e);
+        }
+    }
+
+    /**
+     * Body of the flusher thread: collects batches and writes them until stopped.
+     */
+    private void flushLoop() {
+        while (true) {
+            List<Entry> batch = nextBatch();
+            if (batch == null) {
+                return;
+            }
+            if (writeBatch(batch)) {
+                completeBatch(batch);
+            } else {
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until a batch is full, its oldest mutation is due, or a reader asked for a flush.
+     * The entries stay at the head of the queue until they are written, so a failed batch is retried as is.
+     *
+     * @return the next batch, or null if the flusher must stop
+     */
+    private synchronized List<Entry> nextBatch() {
+        try {
+            while (pending.isEmpty()) {
+                if (!running) {
+                    return null;
+                }
+                wait();
+            }
+            long deadline = System.currentTimeMillis() + maxFlushLatencyMillis;
+            while (running && pending.size() < flushSize && !flushRequested) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            return null;
+        }
+        flushRequested = false;
+        List<Entry> batch = new ArrayList<>(Math.min(pending.size(), flushSize));
+        for (Entry entry : pending) {
+            if (batch.size() == flushSize) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes a batch to the database in a single transaction.
+     *
+     * @param batch the mutations to write
+     * @return true if the transaction was committed
+     */
+    private boolean writeBatch(List<Entry> batch) {
+        Connection con = null;
+        PreparedStatement saves = null;
+        PreparedStatement updates = null;
+        PreparedStatement setPointers = null;
+        PreparedStatement clearPointers = null;
+        PreparedStatement updatesByVehicle = null;
+        PreparedStatement clearPointersByVehicle = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            saves = con.prepareStatement(DBConstants.SAVE_TICKET_IF_ABSENT);
+            updates = con.prepareStatement(DBConstants.UPDATE_TICKET);
+            setPointers = con.prepareStatement(DBConstants.SET_CURRENT_TICKET_BY_VEHICLE);
+            clearPointers = con.prepareStatement(DBConstants.CLEAR_CURRENT_TICKET);
+            updatesByVehicle = con.prepareStatement(DBConstants.UPDATE_TICKET_BY_VEHICLE);
+            clearPointersByVehicle = con.prepareStatement(DBConstants.CLEAR_CURRENT_TICKET_BY_VEHICLE);
+            for (Entry entry : batch) {
+                if (entry.kind == Kind.SAVE) {
+                    Timestamp inTime = new Timestamp(entry.inTime);
+                    saves.setInt(1, entry.parkingNumber);
+                    saves.setString(2, entry.vehicleRegNumber);
+                    saves.setDouble(3, entry.price);
+                    saves.setTimestamp(4, inTime);
+                    saves.setTimestamp(5, entry.outTime < 0 ? null : new Timestamp(entry.outTime));
+                    saves.setString(6, entry.vehicleRegNumber);
+                    saves.setTimestamp(7, inTime);
+                    saves.addBatch();
+                    if (entry.outTime < 0) {
+                        setPointers.setString(1, entry.vehicleRegNumber);
+                        setPointers.setTimestamp(2, inTime);
+                        setPointers.setInt(3, entry.parkingNumber);
+                        setPointers.addBatch();
+                    }
+                } else if (entry.id == 0) {
+                    // A ticket saved while offline, known by its vehicle and in time only
+                    Timestamp inTime = new Timestamp(entry.inTime);
+                    updatesByVehicle.setDouble(1, entry.price);
+                    updatesByVehicle.setTimestamp(2, new Timestamp(entry.outTime));
+                    updatesByVehicle.setString(3, entry.vehicleRegNumber);
+                    updatesByVehicle.setTimestamp(4, inTime);
+                    updatesByVehicle.addBatch();
+                    clearPointersByVehicle.setInt(1, entry.parkingNumber);
+                    clearPointersByVehicle.setString(2, entry.vehicleRegNumber);
+                    clearPointersByVehicle.setTimestamp(3, inTime);
+                    clearPointersByVehicle.addBatch();
+                } else {
+                    updates.setDouble(1, entry.price);
+                    updates.setTimestamp(2, new Timestamp(entry.outTime));
+                    updates.setInt(3, entry.id);
+                    updates.addBatch();
+                    clearPointers.setInt(1, entry.parkingNumber);
+                    clearPointers.setInt(2, entry.id);
+                    clearPointers.addBatch();
+                }
+            }
+            // Saves go first: an update in this batch may target a ticket saved in the same batch
+            saves.executeBatch();
+            setPointers.executeBatch();
+            updates.executeBatch();
+            updatesByVehicle.executeBatch();
+            clearPointers.executeBatch();
+            clearPointersByVehicle.executeBatch();
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            if (dataBaseConfig.isOffline()) {
+                logger.debug("Database unavailable, ticket batch will be retried", ex);
+            } else {
+                logger.error("Error writing ticket batch, will retry", ex);
+            }
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(saves);
+            dataBaseConfig.closePreparedStatement(updates);
+            dataBaseConfig.closePreparedStatement(setPointers);
+            dataBaseConfig.closePreparedStatement(clearPointers);
+            dataBaseConfig.closePreparedStatement(updatesByVehicle);
+            dataBaseConfig.closePreparedStatement(clearPointersByVehicle);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Removes a written batch from the queue and records the checkpoint. The journal is truncated once every mutation
+     * is written, and compacted when it has grown past the threshold with mutations still pending.
+     */
+    private synchronized void completeBatch(List<Entry> batch) {
+        for (Entry entry : batch) {
+            pending.pollFirst();
+            if (entry.kind == Kind.SAVE) {
+                pendingSaves.computeIfPresent(entry.vehicleRegNumber, (plate, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        lastFlushedSequence = batch.get(batch.size() - 1).sequence;
+        try {
+            writeCheckpoint(lastFlushedSequence);
+            // Mutations appended but not yet synced are not pending yet, and must stay in the file
+            if (lastFlushedSequence == lastAppendedSequence) {
+                journalOutput.getChannel().truncate(0);
+            } else if (!syncing && journalOutput.getChannel().size() > compactionThresholdBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.error("Error while checkpointing ticket journal", e);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Rewrites the journal with only the mutations after the checkpoint: the pending ones, then those appended but
+     * not yet synced. The new file is synced before it replaces the old one, so a crash leaves either file whole.
+     * Must not run while an appender syncs, since the mutations of that sync are in neither list.
+     */
+    private void compact() throws IOException {
+        File temporary = new File(journalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            for (Entry entry : pending) {
+                writeRecord(out, entry);
+            }
+            for (Entry entry : unsynced) {
+                writeRecord(out, entry);
+            }
+            out.getChannel().force(false);
+        }
+        journalOutput.close();
+        try {
+            Files.move(temporary.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // Appends go on in the old file if it could not be replaced
+            journalOutput = new FileOutputStream(journalFile, true);
+        }
+        logger.debug("Compacted ticket journal to {} mutations", pending.size() + unsynced.size());
+    }
+
+    private void writeRecord(FileOutputStream output, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeLong(entry.sequence);
+        record.writeByte(entry.kind.ordinal());
+        record.writeInt(entry.id);
+        record.writeInt(entry.parkingNumber);
+        record.writeUTF(entry.vehicleRegNumber);
+        record.writeDouble(entry.price);
+        record.writeLong(entry.inTime);
+        record.writeLong(entry.outTime);
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+        out.flush();
+    }
+
+    /**
+     * Reads every complete record of the journal, stopping at the first torn or corrupted one.
+     */
+    List<Entry> readJournal() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!journalFile.exists()) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length <= 0 || length > 4096) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int storedCrc = in.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != storedCrc) {
+                    logger.error("Corrupted record in ticket journal, ignoring the rest of {}", journalFile);
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                entries.add(new Entry(record.readLong(), Kind.values()[record.readByte()], record.readInt(),
+                        record.readInt(), record.readUTF(), record.readDouble(), record.readLong(), record.readLong()));
+            }
+        } catch (EOFException e) {
+            // End of journal, possibly in the middle of a torn record
+        }
+        return entries;
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? 0 : Long.parseLong(content);
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        File temporary = new File(checkpointFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            out.write(Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+        Files.move(temporary.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rounds a time to the second, the precision of the DATETIME columns, so that journaled in times compare equal
+     * to the stored ones when an insert is replayed.
+     */
+    static long roundToSecond(long millis) {
+        return TimeUnit.SECONDS.toMillis((millis + 500) / 1000);
+    }
+}
@@ -0,0 +1,180 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.util.BloomFilter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The VisitCountCache class remembers how many tickets each vehicle has, so the recurring-user check does not need
+ * a COUNT query. A Bloom filter holding every known plate answers "0 tickets" for plates never seen before, and a
+ * bounded least-recently-used map keeps the exact counts of the plates seen recently.
+ * The cache assumes this process is the only one saving tickets; it must be reloaded if the ticket table is modified
+ * elsewhere.
+ */
+public class VisitCountCache {
+
+    /**
+     * Value returned by {@link #getCount(String)} when the count of a plate is not cached.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Default number of exact counts kept in memory.
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * Default number of distinct plates the Bloom filter is sized for.
+     */
+    public static final int DEFAULT_EXPECTED_PLATES = 100000;
+
+    /**
+     * Default false positive probability of the Bloom filter.
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    /**
+     * Every plate that has at least one ticket.
+     */
+    private final BloomFilter knownPlates;
+
+    /**
+     * The exact ticket counts of the recently seen plates, in access order.
+     */
+    private final Map<String, Integer> counts;
+
+    private volatile int capacity;
+
+    private final AtomicLong bloomNegativeCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public VisitCountCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_EXPECTED_PLATES, DEFAULT_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity                 the number of exact counts kept in memory
+     * @param expectedPlates           the number of distinct plates the Bloom filter is sized for
+     * @param falsePositiveProbability the false positive probability of the Bloom filter
+     */
+    public VisitCountCache(int capacity, int expectedPlates, double falsePositiveProbability) {
+        this.capacity = capacity;
+        this.knownPlates = new BloomFilter(expectedPlates, falsePositiveProbability);
+        this.counts = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > VisitCountCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of tickets of a plate, if known without querying the database.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the number of tickets, or {@link #UNKNOWN} if the database must be queried
+     */
+    public int getCount(String vehicleRegNumber) {
+        if (!knownPlates.mightContain(vehicleRegNumber)) {
+            bloomNegativeCount.incrementAndGet();
+            return 0;
+        }
+        Integer count;
+        synchronized (counts) {
+            count = counts.get(vehicleRegNumber);
+        }
+        if (count == null) {
+            missCount.incrementAndGet();
+            return UNKNOWN;
+        }
+        hitCount.incrementAndGet();
+        return count;
+    }
+
+    /**
+     * Stores the exact number of tickets of a plate, as read from the database. Counts only grow, so a count read
+     * before a ticket recorded meanwhile by {@link #recordTicket(String)} never replaces the higher one.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param count            the number of tickets of that plate
+     */
+    public void putCount(String vehicleRegNumber, int count) {
+        if (count > 0) {
+            knownPlates.put(vehicleRegNumber);
+        }
+        synchronized (counts) {
+            counts.merge(vehicleRegNumber, count, Math::max);
+        }
+    }
+
+    /**
+     * Records that a new ticket was saved for a plate.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     */
+    public void recordTicket(String vehicleRegNumber) {
+        boolean firstTicket = knownPlates.put(vehicleRegNumber);
+        synchronized (counts) {
+            Integer count = counts.get(vehicleRegNumber);
+            if (count != null) {
+                counts.put(vehicleRegNumber, count + 1);
+            } else if (firstTicket) {
+                counts.put(vehicleRegNumber, 1);
+            }
+        }
+    }
+
+    /**
+     * Forgets every plate. Used before reloading the cache from the database.
+     */
+    public void clear() {
+        knownPlates.clear();
+        synchronized (counts) {
+            counts.clear();
+        }
+    }
+
+    /**
+     * Changes the number of exact counts kept in memory. Extra entries are dropped on the next insertion.
+     *
+     * @param capacity the new capacity
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        synchronized (counts) {
+            return counts.size();
+        }
+    }
+
+    public long getBloomNegativeCount() {
+        return bloomNegativeCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "VisitCountCache{size=" + getSize()
+                + ", bloomNegatives=" + getBloomNegativeCount()
+                + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + "}";
+    }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * The EntryResult class is the outcome of a vehicle entering the parking lot: the spot assigned and the ticket
+ * issued when the entry succeeded, or the reason it was refused.
+ */
+public class EntryResult {
+
+    /**
+     * The outcome of an entry.
+     */
+    public enum Status {
+        /**
+         * A spot was claimed and the ticket saved.
+         */
+        ENTERED,
+        /**
+         * The vehicle registration number is missing.
+         */
+        INVALID_PLATE,
+        /**
+         * No spot of the vehicle's type is available.
+         */
+        NO_SPOT_AVAILABLE,
+        /**
+         * The ticket could not be saved; the claimed spot was released.
+         */
+        SAVE_FAILED,
+        /**
+         * An unexpected error occurred.
+         */
+        ERROR
+    }
+
+    private final Status status;
+    private final ParkingSpot parkingSpot;
+    private final Ticket ticket;
+    private final boolean recurringUser;
+
+    public EntryResult(Status status, ParkingSpot parkingSpot, Ticket ticket, boolean recurringUser) {
+        this.status = status;
+        this.parkingSpot = parkingSpot;
+        this.ticket = ticket;
+        this.recurringUser = recurringUser;
+    }
+
+    /**
+     * Creates the result of a refused entry.
+     *
+     * @param status the reason the entry was refused
+     * @return the result, without spot or ticket
+     */
+    public static EntryResult refused(Status status) {
+        return new EntryResult(status, null, null, false);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the vehicle may enter.
+     */
+    public boolean isEntered() {
+        return status == Status.ENTERED;
+    }
+
+    /**
+     * Returns the spot assigned to the vehicle, or null if the entry was refused.
+     */
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    /**
+     * Returns the ticket issued to the vehicle, or null if the entry was refused.
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Tells whether the vehicle already had tickets, and will get the recurring user discount.
+     */
+    public boolean isRecurringUser() {
+        return recurringUser;
+    }
+}
@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * The ExitResult class is the outcome of a vehicle leaving the parking lot: the closed ticket and its fare when the
+ * exit succeeded, or the reason it failed.
+ */
+public class ExitResult {
+
+    /**
+     * The outcome of an exit.
+     */
+    public enum Status {
+        /**
+         * The ticket was priced and closed, and the spot released.
+         */
+        EXITED,
+        /**
+         * The ticket was priced as if the vehicle left now, but left open.
+         */
+        QUOTED,
+        /**
+         * The vehicle registration number is missing.
+         */
+        INVALID_PLATE,
+        /**
+         * The vehicle has no open ticket.
+         */
+        NO_OPEN_TICKET,
+        /**
+         * The ticket could not be closed.
+         */
+        UPDATE_FAILED,
+        /**
+         * An unexpected error occurred.
+         */
+        ERROR
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+    private final boolean recurringUser;
+
+    public ExitResult(Status status, Ticket ticket, boolean recurringUser) {
+        this.status = status;
+        this.ticket = ticket;
+        this.recurringUser = recurringUser;
+    }
+
+    /**
+     * Creates the result of a failed exit.
+     *
+     * @param status the reason the exit failed
+     * @param ticket the open ticket, if it was found
+     * @return the result
+     */
+    public static ExitResult failed(Status status, Ticket ticket) {
+        return new ExitResult(status, ticket, false);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the vehicle may leave.
+     */
+    public boolean isExited() {
+        return status == Status.EXITED;
+    }
+
+    /**
+     * Returns the ticket of the vehicle, with its out time and price once priced, or null if none was found.
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Returns the spot the vehicle leaves, or null if no ticket was found.
+     */
+    public ParkingSpot getParkingSpot() {
+        return ticket == null ? null : ticket.getParkingSpot();
+    }
+
+    /**
+     * Returns the fare paid by the vehicle, or 0 if the exit failed before pricing.
+     */
+    public double getFare() {
+        return ticket == null ? 0 : ticket.getPrice();
+    }
+
+    /**
+     * Tells whether the recurring user discount was applied.
+     */
+    public boolean isRecurringUser() {
+        return recurringUser;
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * The ParkingEvent class is a vehicle passing a gate, as recorded in the event journal.
+ */
+public class ParkingEvent {
+
+    /**
+     * The gate the vehicle passed.
+     */
+    public enum Kind {
+        ENTRY,
+        EXIT
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final String vehicleRegNumber;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final long time;
+    private final long priceCents;
+
+    /**
+     * Creates an event.
+     *
+     * @param sequence         the position of the event in the journal, from 1
+     * @param kind             entry or exit
+     * @param vehicleRegNumber the vehicle registration number
+     * @param parkingNumber    the spot taken or released
+     * @param parkingType      the type of the spot
+     * @param time             the time the vehicle passed the gate, in epoch milliseconds
+     * @param priceCents       the fare paid on exit, 0 on entry
+     */
+    public ParkingEvent(long sequence, Kind kind, String vehicleRegNumber, int parkingNumber, ParkingType parkingType,
+                        long time, long priceCents) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.time = time;
+        this.priceCents = priceCents;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    @Override
+    public String toString() {
+        return "ParkingEvent{" + sequence + " " + kind + " " + vehicleRegNumber + " spot " + parkingNumber + " "
+                + parkingType + " at " + time + (kind == Kind.EXIT ? " for " + priceCents + " cents" : "") + "}";
+    }
+}
@@ -0,0 +1,198 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Arrays;
+
+/**
+ * The Tariff class is the compiled pricing of one parking type.
+ * The hourly rate of every minute of the day is turned into a prefix-sum table, so the cost of any interval is the
+ * difference of two table lookups, whatever the number of bands or days it spans. Elapsed-time tiers scale that cost
+ * by a percentage, and an optional cap limits what is charged for each 24 hours of stay.
+ * Costs are exact integers expressed in "units": cents per hour x milliseconds x percent; divide by
+ * {@link #UNITS_PER_CENT} to get cents.
+ */
+public class Tariff {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    public static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    public static final long MILLIS_PER_DAY = MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+
+    /**
+     * Number of cost units in one cent.
+     */
+    public static final long UNITS_PER_CENT = MILLIS_PER_HOUR * 100;
+
+    /**
+     * Hourly rate of each minute of the day, in cents.
+     */
+    private final long[] minuteRates;
+
+    /**
+     * Cost of the minutes [0, m) of the day, in cents per hour x milliseconds.
+     */
+    private final long[] prefix;
+
+    /**
+     * Start of each tier, in milliseconds since entry; the first tier starts at 0.
+     */
+    private final long[] tierStarts;
+
+    /**
+     * Percentage of the rate charged in each tier.
+     */
+    private final long[] tierPercents;
+
+    /**
+     * Maximum cost of 24 hours of stay, in units, or 0 for no cap.
+     */
+    private final long dailyCapUnits;
+
+    private final boolean flat;
+
+    /**
+     * Compiles a tariff.
+     *
+     * @param minuteRates      the hourly rate of each minute of the day, in cents
+     * @param tierStartMinutes the start of each tier in minutes since entry, increasing and starting at 0
+     * @param tierPercents     the percentage of the rate charged in each tier
+     * @param dailyCapCents    the maximum charged for each 24 hours of stay, in cents, or 0 for no cap
+     * @throws IllegalArgumentException If the tariff is inconsistent
+     */
+    public Tariff(long[] minuteRates, long[] tierStartMinutes, long[] tierPercents, long dailyCapCents) {
+        if (minuteRates.length != MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("A tariff needs one rate per minute of the day");
+        }
+        if (tierStartMinutes.length == 0 || tierStartMinutes.length != tierPercents.length || tierStartMinutes[0] != 0) {
+            throw new IllegalArgumentException("Tiers must start at minute 0 and have one percentage each");
+        }
+        if (dailyCapCents < 0) {
+            throw new IllegalArgumentException("Daily cap must not be negative: " + dailyCapCents);
+        }
+        this.minuteRates = minuteRates.clone();
+        this.prefix = new long[MINUTES_PER_DAY + 1];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (minuteRates[minute] < 0) {
+                throw new IllegalArgumentException("Rate must not be negative at minute " + minute);
+            }
+            prefix[minute + 1] = prefix[minute] + minuteRates[minute] * MILLIS_PER_MINUTE;
+        }
+        this.tierStarts = new long[tierStartMinutes.length];
+        for (int i = 0; i < tierStartMinutes.length; i++) {
+            if (i > 0 && tierStartMinutes[i] <= tierStartMinutes[i - 1]) {
+                throw new IllegalArgumentException("Tiers must be in increasing order");
+            }
+            if (tierPercents[i] < 0) {
+                throw new IllegalArgumentException("Tier percentage must not be negative: " + tierPercents[i]);
+            }
+            tierStarts[i] = tierStartMinutes[i] * MILLIS_PER_MINUTE;
+        }
+        this.tierPercents = tierPercents.clone();
+        this.dailyCapUnits = dailyCapCents * UNITS_PER_CENT;
+        this.flat = computeFlat();
+    }
+
+    /**
+     * Creates a tariff charging the same hourly rate at any time, with no tier and no cap.
+     *
+     * @param ratePerHourCents the hourly rate, in cents
+     * @return the tariff
+     */
+    public static Tariff flat(long ratePerHourCents) {
+        long[] minuteRates = new long[MINUTES_PER_DAY];
+        Arrays.fill(minuteRates, ratePerHourCents);
+        return new Tariff(minuteRates, new long[]{0}, new long[]{100}, 0);
+    }
+
+    /**
+     * Returns the cost of a stay.
+     * The times are local wall-clock times expressed in milliseconds, so that minute 0 of a day is midnight.
+     * Without a cap the cost takes one pair of lookups per tier; with a cap, the days before the last tier starts are
+     * priced one by one and every later full day costs the same.
+     *
+     * @param inTime  the local entry time, in milliseconds
+     * @param outTime the local exit time, in milliseconds, not before the entry time
+     * @return the cost, in units
+     */
+    public long cost(long inTime, long outTime) {
+        long duration = outTime - inTime;
+        if (dailyCapUnits == 0) {
+            return tieredCost(inTime, 0, duration);
+        }
+        long lastTierStart = tierStarts[tierStarts.length - 1];
+        long total = 0;
+        long elapsed = 0;
+        while (elapsed < duration && elapsed < lastTierStart) {
+            long end = Math.min(duration, elapsed + MILLIS_PER_DAY);
+            total += Math.min(dailyCapUnits, tieredCost(inTime, elapsed, end));
+            elapsed = end;
+        }
+        if (elapsed < duration) {
+            // Any 24 hours of the last tier cost the same: the whole day of bands at the last percentage
+            long fullDays = (duration - elapsed) / MILLIS_PER_DAY;
+            long dayCost = tierPercents[tierPercents.length - 1] * prefix[MINUTES_PER_DAY];
+            total += fullDays * Math.min(dailyCapUnits, dayCost);
+            elapsed += fullDays * MILLIS_PER_DAY;
+            if (elapsed < duration) {
+                total += Math.min(dailyCapUnits, tieredCost(inTime, elapsed, duration));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the cost of the part of a stay between two elapsed times, each tier weighted by its percentage.
+     */
+    private long tieredCost(long inTime, long from, long to) {
+        long total = 0;
+        for (int i = 0; i < tierStarts.length; i++) {
+            long tierEnd = i + 1 < tierStarts.length ? tierStarts[i + 1] : Long.MAX_VALUE;
+            long start = Math.max(from, tierStarts[i]);
+            long end = Math.min(to, tierEnd);
+            if (start < end) {
+                total += tierPercents[i] * (position(inTime + end) - position(inTime + start));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the cost of the bands from local time 0 to the given time, in cents per hour x milliseconds.
+     */
+    private long position(long time) {
+        long days = Math.floorDiv(time, MILLIS_PER_DAY);
+        long timeOfDay = Math.floorMod(time, MILLIS_PER_DAY);
+        int minute = (int) (timeOfDay / MILLIS_PER_MINUTE);
+        return days * prefix[MINUTES_PER_DAY] + prefix[minute] + minuteRates[minute] * (timeOfDay % MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * Returns the hourly rate charged at a minute of the day, before tiers.
+     *
+     * @param minuteOfDay the minute of the day, from 0 to 1439
+     * @return the rate, in cents per hour
+     */
+    public long getRate(int minuteOfDay) {
+        return minuteRates[minuteOfDay];
+    }
+
+    /**
+     * Tells whether the tariff charges the same rate at any time, with no tier and no cap.
+     *
+     * @return true for a flat tariff
+     */
+    public boolean isFlat() {
+        return flat;
+    }
+
+    private boolean computeFlat() {
+        if (tierPercents.length != 1 || tierPercents[0] != 100 || dailyCapUnits != 0) {
+            return false;
+        }
+        for (long rate : minuteRates) {
+            if (rate != minuteRates[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * The TicketColumns class holds a chunk of closed tickets as parallel primitive arrays, one per column,
+ * so that large numbers of tickets can be read and priced without creating a Ticket per row.
+ * Row i of the chunk is made of the i-th element of every array, for i below {@link #getSize()}.
+ */
+public class TicketColumns {
+
+    private final int[] ids;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final int[] parkingTypes;
+    private final boolean[] recurring;
+    private final long[] priceCents;
+    private int size;
+
+    /**
+     * Creates an empty chunk.
+     *
+     * @param capacity the maximum number of tickets of the chunk
+     */
+    public TicketColumns(int capacity) {
+        ids = new int[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+        parkingTypes = new int[capacity];
+        recurring = new boolean[capacity];
+        priceCents = new long[capacity];
+    }
+
+    /**
+     * Appends a ticket to the chunk.
+     *
+     * @param id          the ticket id
+     * @param inTime      the entry time, in epoch milliseconds
+     * @param outTime     the exit time, in epoch milliseconds
+     * @param parkingType the ordinal of the parking type
+     * @param isRecurring whether the vehicle had a ticket before this one
+     * @param price       the stored price, in cents
+     * @throws IllegalStateException If the chunk is full
+     */
+    public void add(int id, long inTime, long outTime, int parkingType, boolean isRecurring, long price) {
+        if (size == ids.length) {
+            throw new IllegalStateException("Ticket chunk is full");
+        }
+        ids[size] = id;
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        parkingTypes[size] = parkingType;
+        recurring[size] = isRecurring;
+        priceCents[size] = price;
+        size++;
+    }
+
+    /**
+     * Empties the chunk, keeping its arrays.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return ids.length;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public long[] getInTimes() {
+        return inTimes;
+    }
+
+    public long[] getOutTimes() {
+        return outTimes;
+    }
+
+    public int[] getParkingTypes() {
+        return parkingTypes;
+    }
+
+    public boolean[] getRecurring() {
+        return recurring;
+    }
+
+    public long[] getPriceCents() {
+        return priceCents;
+    }
+}
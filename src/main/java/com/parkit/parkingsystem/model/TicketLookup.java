@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * The TicketLookup class holds the open ticket of a vehicle together with the number of tickets ever issued
+ * to that vehicle, as returned by the single query run when a vehicle exits.
+ */
+public class TicketLookup {
+    private final Ticket ticket;
+    private final int nbTickets;
+
+    public TicketLookup(Ticket ticket, int nbTickets) {
+        this.ticket = ticket;
+        this.nbTickets = nbTickets;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public int getNbTickets() {
+        return nbTickets;
+    }
+}
@@ -1,16 +1,59 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Tariff;
 import com.parkit.parkingsystem.model.Ticket;
-
-import static com.parkit.parkingsystem.constants.Fare.MINIMUM_DURATION_FOR_CHARGE;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.parkit.parkingsystem.util.LatencyMetrics;
 
 /**
  * The FareCalculatorService class is responsible for calculating the fare for a parking ticket based on the
  * duration of parking and the type of vehicle.
+ * Prices come from the tariffs of a {@link TariffConfig}, compiled once into lookup tables.
  */
 public class FareCalculatorService {
 
+    /**
+     * Latency of the pricing of a ticket, reported by {@link LatencyMetrics}.
+     */
+    private static final LatencyHistogram CALCULATE_FARE_LATENCY =
+            LatencyMetrics.histogram("FareCalculatorService.calculateFare");
+
+    private final TariffConfig tariffConfig;
+
+    /**
+     * Hourly rate of each parking type by ordinal when every tariff is flat, used by the batch computation;
+     * null otherwise.
+     */
+    private final long[] flatRates;
+
+    /**
+     * Creates a fare calculator using the tariffs of the default tariff file.
+     */
+    public FareCalculatorService() {
+        this(TariffConfig.getDefault());
+    }
+
+    /**
+     * Creates a fare calculator using the given tariffs.
+     *
+     * @param tariffConfig the tariffs
+     */
+    public FareCalculatorService(TariffConfig tariffConfig) {
+        this.tariffConfig = tariffConfig;
+        long[] rates = new long[ParkingType.values().length];
+        for (ParkingType parkingType : ParkingType.values()) {
+            Tariff tariff = tariffConfig.getTariff(parkingType);
+            if (tariff == null || !tariff.isFlat()) {
+                rates = null;
+                break;
+            }
+            rates[parkingType.ordinal()] = tariff.getRate(0);
+        }
+        this.flatRates = rates;
+    }
+
     /**
      * Calculates the fare for a parking ticket based on the duration of parking and the type of vehicle.
      *
@@ -20,39 +63,126 @@ public class FareCalculatorService {
      * @throws IllegalArgumentException If the parking type is unknown
      */
     public void calculateFare(Ticket ticket, boolean discount) {
-        if ((ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime()))) {
-            throw new IllegalArgumentException("Out time provided is incorrect:" + ticket.getOutTime().toString());
-        }
-
-        long inTimeMillis = ticket.getInTime().getTime();
-        long outTimeMillis = ticket.getOutTime().getTime();
-        double duration = (double) (outTimeMillis - inTimeMillis) / (60 * 60 * 1000);
-
-        // Check if the duration is less than 30 minutes"
-        if (duration < MINIMUM_DURATION_FOR_CHARGE) {
-            ticket.setPrice(0.0);
-        } else {
-            // Apply the 5% discount if the discount parameter is true
-            double fareRate = (discount) ? 0.95 : 1.0;
-            double price;
-
-            switch (ticket.getParkingSpot().getParkingType()) {
-                case CAR: {
-                    price = duration * Fare.CAR_RATE_PER_HOUR * fareRate;
-                    price = Math.round(price * 100.0) / 100.0;
-                    ticket.setPrice(price);
-                    break;
-                }
-                case BIKE: {
-                    price = duration * Fare.BIKE_RATE_PER_HOUR * fareRate;
-                    price = Math.round(price * 100.0) / 100.0;
-                    ticket.setPrice(price);
-                    break;
-                }
-                default:
-                    throw new IllegalArgumentException("Unknown Parking Type");
+        long startNanos = System.nanoTime();
+        try {
+            if ((ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime()))) {
+                throw new IllegalArgumentException("Out time provided is incorrect:" + ticket.getOutTime().toString());
             }
+
+            long priceInCents = calculateFareCents(ticket.getInTime().getTime(), ticket.getOutTime().getTime(),
+                    ticket.getParkingSpot().getParkingType(), discount);
+            ticket.setPrice(priceInCents / 100.0);
+        } finally {
+            CALCULATE_FARE_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Calculates the fare of a stay in integer cents.
+     * The computation is exact: the tariff returns the cost of the stay in cents per hour x milliseconds, which is
+     * multiplied by the discount percentage, then divided once, rounding half up. The bands are looked up in the
+     * local time of the tariff zone at entry, which then applies to the whole stay. It allocates nothing, so it can
+     * be called in bulk.
+     *
+     * @param inTimeMillis  the entry time, in epoch milliseconds
+     * @param outTimeMillis the exit time, in epoch milliseconds
+     * @param parkingType   the type of the parking spot
+     * @param discount      A boolean value indicating whether the recurring user discount should be applied
+     * @return the fare in cents
+     * @throws IllegalArgumentException If the out time is before the in time
+     * @throws IllegalArgumentException If the parking type is unknown
+     */
+    public long calculateFareCents(long inTimeMillis, long outTimeMillis, ParkingType parkingType, boolean discount) {
+        if (outTimeMillis < inTimeMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect:" + outTimeMillis);
         }
+
+        // Check if the duration is less than the free duration, 30 minutes by default
+        if (outTimeMillis - inTimeMillis < tariffConfig.getFreeMillis()) {
+            return 0;
+        }
+
+        Tariff tariff = tariffConfig.getTariff(parkingType);
+        if (tariff == null) {
+            throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        long offset = tariffConfig.getOffsetMillis(inTimeMillis);
+        long cost = tariff.cost(inTimeMillis + offset, outTimeMillis + offset);
+
+        // Apply the recurring user discount, 5% by default, if the discount parameter is true
+        long ratePercent = discount ? tariffConfig.getRecurringUserPercent() : 100;
+        return roundedDivision(cost * ratePercent, Tariff.UNITS_PER_CENT * 100);
+    }
+
+    /**
+     * Calculates the fares of many stays in integer cents, from parallel primitive arrays, so that large numbers of
+     * tickets can be priced without creating a Ticket per row. Row i gives the same fare as
+     * {@link #calculateFareCents(long, long, ParkingType, boolean)}.
+     * When every tariff is flat, the rows are priced by a loop without branches or lookups other than the rate of
+     * the type, which the JIT compiles to conditional moves; otherwise each row goes through its tariff table.
+     *
+     * @param inTimes      the entry times, in epoch milliseconds
+     * @param outTimes     the exit times, in epoch milliseconds
+     * @param parkingTypes the ordinals of the parking types
+     * @param recurring    whether the recurring user discount applies to each row
+     * @param cents        receives the fare of each row, in cents
+     * @param from         the first row to price
+     * @param to           the row after the last one to price
+     * @throws IllegalArgumentException If an out time is before its in time
+     * @throws IllegalArgumentException If a parking type has no tariff
+     */
+    public void calculateFareCents(long[] inTimes, long[] outTimes, int[] parkingTypes, boolean[] recurring,
+                                   long[] cents, int from, int to) {
+        // Validate first, so the pricing loops do not branch on errors
+        long shortestDuration = Long.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            shortestDuration = Math.min(shortestDuration, outTimes[i] - inTimes[i]);
+        }
+        if (shortestDuration < 0) {
+            throw new IllegalArgumentException("Out time provided is incorrect in a batch of fares");
+        }
+
+        long freeMillis = tariffConfig.getFreeMillis();
+        long recurringPercent = tariffConfig.getRecurringUserPercent();
+        if (flatRates != null) {
+            long[] rates = flatRates;
+            long divisor = Tariff.MILLIS_PER_HOUR * 100;
+            long half = divisor / 2;
+            for (int i = from; i < to; i++) {
+                long duration = outTimes[i] - inTimes[i];
+                long percent = recurring[i] ? recurringPercent : 100;
+                long charged = duration < freeMillis ? 0 : duration;
+                cents[i] = (charged * rates[parkingTypes[i]] * percent + half) / divisor;
+            }
+            return;
+        }
+
+        ParkingType[] types = ParkingType.values();
+        for (int i = from; i < to; i++) {
+            cents[i] = calculateFareCents(inTimes[i], outTimes[i], types[parkingTypes[i]], recurring[i]);
+        }
+    }
+
+    /**
+     * Calculates the fares of many stays in integer cents, from parallel primitive arrays.
+     *
+     * @param inTimes      the entry times, in epoch milliseconds
+     * @param outTimes     the exit times, in epoch milliseconds
+     * @param parkingTypes the ordinals of the parking types
+     * @param recurring    whether the recurring user discount applies to each row
+     * @param cents        receives the fare of each row, in cents
+     * @see #calculateFareCents(long[], long[], int[], boolean[], long[], int, int)
+     */
+    public void calculateFareCents(long[] inTimes, long[] outTimes, int[] parkingTypes, boolean[] recurring,
+                                   long[] cents) {
+        calculateFareCents(inTimes, outTimes, parkingTypes, recurring, cents, 0, inTimes.length);
+    }
+
+    /**
+     * Divides two positive numbers, rounding half up.
+     */
+    private static long roundedDivision(long dividend, long divisor) {
+        return (dividend + divisor / 2) / divisor;
     }
 
     // Method without the discount parameter
@@ -0,0 +1,284 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The GateRuntime class runs the entry and exit lanes of the facility concurrently on top of a
+ * {@link ParkingService}.
+ * Each lane has a bounded queue of gate events, handled one at a time and in order, as vehicles pass a barrier one
+ * after another; different lanes run in parallel. A lane with waiting events is scheduled on the executor, handles at
+ * most a quantum of events, then goes back to the end of the executor's queue, so a busy lane cannot starve the
+ * others. When the JDK provides virtual threads every scheduling gets its own virtual thread, with a quantum of one
+ * event; otherwise a bounded pool of platform threads is used. Spot allocation stays correct under contention because
+ * the service claims spots atomically.
+ */
+public class GateRuntime {
+
+    /**
+     * Default number of events waiting in a lane before new ones are rejected.
+     */
+    public static final int DEFAULT_LANE_CAPACITY = 64;
+
+    /**
+     * Default number of events a lane handles before yielding its platform thread to the other lanes.
+     */
+    public static final int DEFAULT_QUANTUM = 4;
+
+    private static final Logger logger = LogManager.getLogger("GateRuntime");
+
+    private final ParkingService parkingService;
+    private final Lane[] lanes;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int quantum;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a runtime with the default lane capacity, preferring virtual threads.
+     *
+     * @param parkingService the service handling the vehicles
+     * @param laneCount      the number of lanes
+     */
+    public GateRuntime(ParkingService parkingService, int laneCount) {
+        this(parkingService, laneCount, DEFAULT_LANE_CAPACITY, Runtime.getRuntime().availableProcessors() * 2, true);
+    }
+
+    /**
+     * Creates a runtime.
+     *
+     * @param parkingService    the service handling the vehicles
+     * @param laneCount         the number of lanes
+     * @param laneCapacity      the number of events waiting in a lane before new ones are rejected
+     * @param platformThreads   the number of platform threads when virtual threads are not used
+     * @param useVirtualThreads whether to use virtual threads when the JDK provides them
+     */
+    public GateRuntime(ParkingService parkingService, int laneCount, int laneCapacity, int platformThreads,
+                       boolean useVirtualThreads) {
+        this.parkingService = parkingService;
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualExecutor != null;
+        this.executor = virtualExecutor != null ? virtualExecutor : newPlatformExecutor(platformThreads);
+        this.quantum = virtualThreads ? 1 : DEFAULT_QUANTUM;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(laneCapacity);
+        }
+        logger.info("Gate runtime started with {} lanes on {}", laneCount,
+                virtualThreads ? "virtual threads" : platformThreads + " platform threads");
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task, or null if the JDK has no virtual threads.
+     * Looked up by reflection so the application still runs on JDKs without them.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception | LinkageError ex) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "gate-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Each lane is queued at most once, so the executor queue never holds more tasks than there are lanes
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                threadFactory);
+    }
+
+    /**
+     * Queues the entry of a vehicle on a lane.
+     *
+     * @param lane             the lane, from 0
+     * @param vehicleRegNumber the vehicle registration number
+     * @param parkingType      the type of the vehicle
+     * @return the result of the entry, completed exceptionally with a RejectedExecutionException if the lane is full
+     */
+    public CompletableFuture<EntryResult> submitEntry(int lane, String vehicleRegNumber, ParkingType parkingType) {
+        return submit(lane, () -> parkingService.enter(vehicleRegNumber, parkingType));
+    }
+
+    /**
+     * Queues the exit of a vehicle on a lane.
+     *
+     * @param lane             the lane, from 0
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the result of the exit, completed exceptionally with a RejectedExecutionException if the lane is full
+     */
+    public CompletableFuture<ExitResult> submitExit(int lane, String vehicleRegNumber) {
+        return submit(lane, () -> parkingService.exit(vehicleRegNumber));
+    }
+
+    private <T> CompletableFuture<T> submit(int laneNumber, Supplier<T> action) {
+        GateEvent<T> event = new GateEvent<>(action);
+        Lane lane = lanes[laneNumber];
+        if (!running) {
+            event.result.completeExceptionally(new RejectedExecutionException("Gate runtime is stopped"));
+        } else if (!lane.queue.offer(event)) {
+            lane.rejectedCount.incrementAndGet();
+            event.result.completeExceptionally(new RejectedExecutionException("Lane " + laneNumber + " is full"));
+        } else {
+            lane.schedule();
+        }
+        return event.result;
+    }
+
+    /**
+     * Stops accepting events, lets the queued ones finish and stops the threads.
+     *
+     * @param timeoutMillis the maximum time to wait for the queued events
+     * @return true if every queued event was handled in time
+     */
+    public boolean stop(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (Lane lane : lanes) {
+                while ((!lane.queue.isEmpty() || lane.scheduled.get()) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+            }
+            executor.shutdown();
+            return executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Tells whether gate events run on virtual threads.
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns the number of events handled by a lane.
+     */
+    public long getHandledCount(int lane) {
+        return lanes[lane].handledCount.get();
+    }
+
+    /**
+     * Returns the number of events rejected by a lane because its queue was full.
+     */
+    public long getRejectedCount(int lane) {
+        return lanes[lane].rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of events waiting in a lane.
+     */
+    public int getQueuedCount(int lane) {
+        return lanes[lane].queue.size();
+    }
+
+    /**
+     * An event waiting in a lane, with the future receiving its result.
+     */
+    private static final class GateEvent<T> {
+        private final Supplier<T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private GateEvent(Supplier<T> action) {
+            this.action = action;
+        }
+
+        /**
+         * Runs the action and counts it as handled before its result is published, so a caller woken by the
+         * future always sees the count.
+         */
+        private void handle(AtomicLong handledCount) {
+            T value;
+            try {
+                value = action.get();
+            } catch (Throwable t) {
+                handledCount.incrementAndGet();
+                result.completeExceptionally(t);
+                return;
+            }
+            handledCount.incrementAndGet();
+            result.complete(value);
+        }
+    }
+
+    /**
+     * A lane: its queue of events, and whether it is waiting in or running on the executor.
+     */
+    private final class Lane implements Runnable {
+        private final BlockingQueue<GateEvent<?>> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong handledCount = new AtomicLong();
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        private Lane(int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Queues the lane on the executor unless it is already there.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    scheduled.set(false);
+                    GateEvent<?> event;
+                    while ((event = queue.poll()) != null) {
+                        event.result.completeExceptionally(ex);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < quantum; i++) {
+                    GateEvent<?> event = queue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    event.handle(handledCount);
+                }
+            } finally {
+                scheduled.set(false);
+                // Events queued meanwhile, or beyond the quantum: back to the end of the executor's queue
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.InMemorySpotRepository;
+import com.parkit.parkingsystem.dao.InMemoryTicketRepository;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.parkit.parkingsystem.util.LatencyMetrics;
+import com.parkit.parkingsystem.util.ManagementBeans;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GateServer class serves the gate terminals over HTTP, on the server embedded in the JDK, on top of a
+ * {@link ParkingService}:
+ * <ul>
+ * <li>POST /entry with plate and type (CAR or BIKE) lets a vehicle in,</li>
+ * <li>POST /exit with plate lets a vehicle out,</li>
+ * <li>GET /quote with plate prices the stay of a parked vehicle without closing it,</li>
+ * <li>GET /occupancy counts the available spots of each type,</li>
+ * <li>GET /stats returns the number of requests and their latency per endpoint,</li>
+ * <li>GET /metrics returns the latency percentiles of every measured operation, down to the database calls.</li>
+ * </ul>
+ * Parameters come from the query string or from a form-encoded body; answers are JSON. Responses always carry their
+ * length, so terminals keep their connection open between requests. Requests are handled by a fixed pool of workers,
+ * in front of which a bounded number of requests wait; beyond that the server answers 503 at once rather than letting
+ * the queue and the response times grow. Bodies larger than {@value #MAX_BODY_BYTES} bytes are refused with 413.
+ */
+public class GateServer {
+
+    /**
+     * Default port, overridden by the parkit.server.port system property.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Default number of car spots and of bike spots of the in-memory lot, overridden by the parkit.memory.cars and
+     * parkit.memory.bikes system properties.
+     */
+    static final int DEFAULT_MEMORY_SPOTS = 100;
+
+    /**
+     * Default number of requests waiting for a worker, overridden by the parkit.server.queueCapacity system property.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Largest request body read; gate terminals send a plate and a type, far below it.
+     */
+    public static final int MAX_BODY_BYTES = 4096;
+
+    /**
+     * Number of refused requests waiting to be answered 503; beyond it their connection is closed.
+     */
+    private static final int OVERLOAD_QUEUE_CAPACITY = 64;
+
+    /**
+     * True on the thread answering the requests refused by the workers.
+     */
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static final Logger logger = LogManager.getLogger("GateServer");
+
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+
+    private final ParkingService parkingService;
+    private final HttpServer httpServer;
+    private final ExecutorService workers;
+    private final ExecutorService overload;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    /**
+     * Creates a server, not started yet, with {@value #DEFAULT_QUEUE_CAPACITY} requests waiting at most.
+     *
+     * @param parkingService the service handling the vehicles
+     * @param address        the address to listen on, with port 0 for any free port
+     * @param workerCount    the number of threads handling requests
+     * @throws IOException if the address cannot be bound
+     */
+    public GateServer(ParkingService parkingService, InetSocketAddress address, int workerCount) throws IOException {
+        this(parkingService, address, workerCount, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a server, not started yet.
+     *
+     * @param parkingService the service handling the vehicles
+     * @param address        the address to listen on, with port 0 for any free port
+     * @param workerCount    the number of threads handling requests
+     * @param queueCapacity  the number of requests waiting for a worker, beyond which requests are answered 503;
+     *                       0 answers 503 as soon as every worker is busy
+     * @throws IOException if the address cannot be bound
+     */
+    public GateServer(ParkingService parkingService, InetSocketAddress address, int workerCount, int queueCapacity)
+            throws IOException {
+        this.parkingService = parkingService;
+        this.httpServer = HttpServer.create(address, 0);
+        this.overload = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(OVERLOAD_QUEUE_CAPACITY), runnable -> daemon(() -> {
+                    SHEDDING.set(Boolean.TRUE);
+                    runnable.run();
+                }, "http-overload"));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> daemon(runnable, "http-worker-" + threadNumber.incrementAndGet());
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity)
+                : new SynchronousQueue<>();
+        // The JDK server closes the connection if the overload thread refuses the request too
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS, queue, threadFactory,
+                (runnable, executor) -> overload.execute(runnable));
+        httpServer.setExecutor(workers);
+        addEndpoint("/entry", POST, this::entry);
+        addEndpoint("/exit", POST, this::exit);
+        addEndpoint("/quote", GET, this::quote);
+        addEndpoint("/occupancy", GET, parameters -> occupancy());
+        addEndpoint("/stats", GET, parameters -> new Response(200, statsJson()));
+        addEndpoint("/metrics", GET, parameters -> new Response(200, metricsJson()));
+    }
+
+    /**
+     * Starts the server with the DAOs of the database, the way {@link InteractiveShell#loadInterface()} starts the
+     * console (see {@link ParkingBootstrap}), and stops it when the JVM shuts down. The port, the number of workers and
+     * the number of requests waiting for them are read from the parkit.server.port, parkit.server.workers and
+     * parkit.server.queueCapacity system properties.
+     * With parkit.repository=memory the server runs without database, for instance on an edge box next to the
+     * gates: see {@link #launchInMemory()}.
+     */
+    public static void launch() {
+        if ("memory".equals(System.getProperty("parkit.repository"))) {
+            launchInMemory();
+            return;
+        }
+        ParkingBootstrap bootstrap = ParkingBootstrap.start(null);
+        if (bootstrap == null) {
+            logger.error("Server not started");
+            return;
+        }
+        serve(bootstrap.getParkingService(), bootstrap::shutdown);
+    }
+
+    /**
+     * Starts the server on in-memory repositories, with parkit.memory.cars car spots and parkit.memory.bikes bike
+     * spots, all free. Tickets only live as long as the process; the gate event journal, when kept
+     * (parkit.events.journalDir), is the durable record of the entries and exits.
+     */
+    static void launchInMemory() {
+        InMemorySpotRepository spotRepository = new InMemorySpotRepository(
+                Integer.getInteger("parkit.memory.cars", DEFAULT_MEMORY_SPOTS),
+                Integer.getInteger("parkit.memory.bikes", DEFAULT_MEMORY_SPOTS));
+        ParkingService parkingService = new ParkingService(spotRepository, new InMemoryTicketRepository());
+        GateEventJournal eventJournal = ParkingBootstrap.startEventJournal(parkingService);
+        ManagementBeans.register("type=GateTraffic", parkingService.getTraffic());
+        logger.info("Running on in-memory repositories, {} car and {} bike spots",
+                spotRepository.countAvailableSlots(ParkingType.CAR), spotRepository.countAvailableSlots(ParkingType.BIKE));
+        serve(parkingService, () -> {
+            if (eventJournal != null) {
+                eventJournal.close();
+            }
+        });
+    }
+
+    /**
+     * Starts a server for the given service, which releases its resources once the server stops.
+     *
+     * @param parkingService the service letting vehicles in and out
+     * @param release        closes what the service uses, run at shutdown or if the server cannot start
+     */
+    private static void serve(ParkingService parkingService, Runnable release) {
+        try {
+            GateServer gateServer = new GateServer(parkingService,
+                    new InetSocketAddress(Integer.getInteger("parkit.server.port", DEFAULT_PORT)),
+                    Integer.getInteger("parkit.server.workers", Runtime.getRuntime().availableProcessors() * 2),
+                    Integer.getInteger("parkit.server.queueCapacity", DEFAULT_QUEUE_CAPACITY));
+            gateServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                gateServer.stop(1);
+                release.run();
+                logger.info("Latencies:\n" + LatencyMetrics.dump());
+            }, "gate-server-shutdown"));
+        } catch (IOException e) {
+            logger.error("Unable to start gate server", e);
+            release.run();
+        }
+    }
+
+    public void start() {
+        httpServer.start();
+        logger.info("Gate server listening on port {}", getPort());
+    }
+
+    /**
+     * Stops accepting connections, waits for the requests in progress and stops the workers.
+     *
+     * @param delaySeconds the maximum time to wait for the requests in progress
+     */
+    public void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        workers.shutdown();
+        overload.shutdown();
+        logger.info("Gate server stopped");
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Returns the statistics of an endpoint, or null if there is no such endpoint.
+     *
+     * @param path the path of the endpoint, such as /entry
+     */
+    public EndpointStats getStats(String path) {
+        return stats.get(path);
+    }
+
+    private Response entry(Map<String, String> parameters) {
+        ParkingType parkingType;
+        try {
+            parkingType = ParkingType.valueOf(parameters.getOrDefault("type", "").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new Response(400, "{\"status\":\"INVALID_TYPE\"}");
+        }
+        EntryResult result = parkingService.enter(parameters.get("plate"), parkingType);
+        StringBuilder json = new StringBuilder("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.isEntered()) {
+            json.append(",\"spot\":").append(result.getParkingSpot().getId())
+                    .append(",\"type\":\"").append(parkingType).append('"')
+                    .append(",\"inTime\":").append(result.getTicket().getInTime().getTime())
+                    .append(",\"recurringUser\":").append(result.isRecurringUser());
+        }
+        return new Response(httpStatus(result.getStatus()), json.append('}').toString());
+    }
+
+    private Response exit(Map<String, String> parameters) {
+        return exitResponse(parkingService.exit(parameters.get("plate")));
+    }
+
+    private Response quote(Map<String, String> parameters) {
+        return exitResponse(parkingService.quote(parameters.get("plate")));
+    }
+
+    private Response exitResponse(ExitResult result) {
+        StringBuilder json = new StringBuilder("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.getStatus() == ExitResult.Status.EXITED || result.getStatus() == ExitResult.Status.QUOTED) {
+            Ticket ticket = result.getTicket();
+            json.append(",\"spot\":").append(ticket.getParkingSpot().getId())
+                    .append(",\"inTime\":").append(ticket.getInTime().getTime())
+                    .append(",\"outTime\":").append(ticket.getOutTime().getTime())
+                    .append(",\"fare\":").append(String.format(Locale.ROOT, "%.2f", result.getFare()))
+                    .append(",\"recurringUser\":").append(result.isRecurringUser());
+        }
+        return new Response(httpStatus(result.getStatus()), json.append('}').toString());
+    }
+
+    private Response occupancy() {
+        StringBuilder json = new StringBuilder("{");
+        for (ParkingType parkingType : ParkingType.values()) {
+            int available = parkingService.getAvailableSpots(parkingType);
+            if (available < 0) {
+                return new Response(500, "{\"status\":\"ERROR\"}");
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(parkingType).append("\":{\"available\":").append(available).append('}');
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private String statsJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            EndpointStats endpointStats = entry.getValue();
+            json.append('"').append(entry.getKey()).append("\":{\"requests\":").append(endpointStats.getRequestCount())
+                    .append(",\"errors\":").append(endpointStats.getErrorCount())
+                    .append(",\"meanMicros\":").append(endpointStats.getMeanMicros())
+                    .append(",\"p99Micros\":").append(endpointStats.getP99Micros())
+                    .append(",\"maxMicros\":").append(endpointStats.getMaxMicros()).append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String metricsJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (LatencyHistogram histogram : LatencyMetrics.getHistograms()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(histogram.getName()).append("\":{\"count\":").append(histogram.getCount())
+                    .append(",\"meanMicros\":").append(micros(histogram.getMeanNanos()))
+                    .append(",\"p50Micros\":").append(micros(histogram.getPercentileNanos(50)))
+                    .append(",\"p90Micros\":").append(micros(histogram.getPercentileNanos(90)))
+                    .append(",\"p99Micros\":").append(micros(histogram.getPercentileNanos(99)))
+                    .append(",\"p999Micros\":").append(micros(histogram.getPercentileNanos(99.9)))
+                    .append(",\"maxMicros\":").append(micros(histogram.getMaxNanos())).append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static int httpStatus(EntryResult.Status status) {
+        switch (status) {
+            case ENTERED:
+                return 200;
+            case INVALID_PLATE:
+                return 400;
+            case NO_SPOT_AVAILABLE:
+                return 409;
+            default:
+                return 500;
+        }
+    }
+
+    private static int httpStatus(ExitResult.Status status) {
+        switch (status) {
+            case EXITED:
+            case QUOTED:
+                return 200;
+            case INVALID_PLATE:
+                return 400;
+            case NO_OPEN_TICKET:
+                return 404;
+            default:
+                return 500;
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void addEndpoint(String path, String method, Action action) {
+        EndpointStats endpointStats = new EndpointStats(path);
+        stats.put(path, endpointStats);
+        httpServer.createContext(path, new Endpoint(method, action, endpointStats));
+    }
+
+    /**
+     * Reads the parameters of the query string and of a form-encoded body.
+     *
+     * @throws RequestTooLargeException if the body is larger than {@value #MAX_BODY_BYTES} bytes
+     */
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null && Long.parseLong(contentLength.trim()) > MAX_BODY_BYTES) {
+            throw new RequestTooLargeException();
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[512];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                // A chunked body carries no length, so it is counted as it comes
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    throw new RequestTooLargeException();
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        if (body.size() > 0) {
+            parseParameters(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void parseParameters(String encoded, Map<String, String> parameters)
+            throws UnsupportedEncodingException {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+    }
+
+    /**
+     * Thrown when a request body exceeds {@link #MAX_BODY_BYTES}.
+     */
+    private static final class RequestTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * The work of an endpoint, from the request parameters to the response.
+     */
+    private interface Action {
+        Response handle(Map<String, String> parameters);
+    }
+
+    /**
+     * A response: its HTTP status and JSON body.
+     */
+    private static final class Response {
+        private final int status;
+        private final String json;
+
+        private Response(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Checks the method, runs the action, writes the response and records its latency.
+     */
+    private static final class Endpoint implements HttpHandler {
+        private final String method;
+        private final Action action;
+        private final EndpointStats endpointStats;
+
+        private Endpoint(String method, Action action, EndpointStats endpointStats) {
+            this.method = method;
+            this.action = action;
+            this.endpointStats = endpointStats;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            Response response;
+            try {
+                if (SHEDDING.get()) {
+                    response = new Response(503, "{\"status\":\"OVERLOADED\"}");
+                } else if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    response = new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+                } else {
+                    response = action.handle(readParameters(exchange));
+                }
+            } catch (RequestTooLargeException e) {
+                response = new Response(413, "{\"status\":\"REQUEST_TOO_LARGE\"}");
+            } catch (Exception e) {
+                logger.error("Error handling " + exchange.getRequestURI(), e);
+                response = new Response(500, "{\"status\":\"ERROR\"}");
+            }
+            try {
+                byte[] body = response.json.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                // A known length keeps the connection open for the next request
+                exchange.sendResponseHeaders(response.status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+                endpointStats.record(System.nanoTime() - start, response.status >= 500);
+            }
+        }
+    }
+
+    /**
+     * The EndpointStats class counts the requests of an endpoint and keeps their latency in a histogram of its own,
+     * so that two servers of the same JVM never mix their figures.
+     */
+    public static final class EndpointStats {
+        private final LongAdder errorCount = new LongAdder();
+        private final LatencyHistogram latency;
+
+        private EndpointStats(String path) {
+            this.latency = new LatencyHistogram("GateServer " + path);
+        }
+
+        private void record(long nanos, boolean error) {
+            if (error) {
+                errorCount.increment();
+            }
+            latency.record(nanos);
+        }
+
+        public long getRequestCount() {
+            return latency.getCount();
+        }
+
+        /**
+         * Returns the number of requests answered with a server error.
+         */
+        public long getErrorCount() {
+            return errorCount.sum();
+        }
+
+        public long getMeanMicros() {
+            return latency.getMeanNanos() / 1000;
+        }
+
+        /**
+         * Returns the latency below which 99% of the requests were answered.
+         */
+        public long getP99Micros() {
+            return latency.getPercentileNanos(99) / 1000;
+        }
+
+        public long getMaxMicros() {
+            return latency.getMaxNanos() / 1000;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.util.RateCounter;
+
+/**
+ * The GateTraffic class counts the entries, exits and vehicles turned away by a {@link ParkingService}, in total and
+ * over the last minute.
+ */
+public class GateTraffic implements GateTrafficMXBean {
+
+    private final RateCounter entries = new RateCounter();
+    private final RateCounter exits = new RateCounter();
+    private final RateCounter noSpots = new RateCounter();
+
+    void markEntry() {
+        entries.mark();
+    }
+
+    void markExit() {
+        exits.mark();
+    }
+
+    void markNoSpot() {
+        noSpots.mark();
+    }
+
+    @Override
+    public long getEntryCount() {
+        return entries.getTotal();
+    }
+
+    @Override
+    public long getEntriesLastMinute() {
+        return entries.getLastMinute();
+    }
+
+    @Override
+    public long getExitCount() {
+        return exits.getTotal();
+    }
+
+    @Override
+    public long getExitsLastMinute() {
+        return exits.getLastMinute();
+    }
+
+    @Override
+    public long getNoSpotCount() {
+        return noSpots.getTotal();
+    }
+
+    @Override
+    public long getNoSpotLastMinute() {
+        return noSpots.getLastMinute();
+    }
+}
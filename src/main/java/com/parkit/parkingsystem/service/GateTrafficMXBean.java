@@ -0,0 +1,22 @@
+package com.parkit.parkingsystem.service;
+
+/**
+ * The GateTrafficMXBean interface is the JMX view of the vehicles let in and out by a {@link ParkingService}.
+ */
+public interface GateTrafficMXBean {
+
+    long getEntryCount();
+
+    long getEntriesLastMinute();
+
+    long getExitCount();
+
+    long getExitsLastMinute();
+
+    /**
+     * Returns the number of vehicles turned away because no spot of their type was free.
+     */
+    long getNoSpotCount();
+
+    long getNoSpotLastMinute();
+}
@@ -1,8 +1,7 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.LatencyMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -27,9 +26,12 @@ public class InteractiveShell {
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingBootstrap bootstrap = ParkingBootstrap.start(inputReaderUtil);
+        if (bootstrap == null) {
+            System.out.println("\nUnable to start: the database schema could not be updated");
+            return;
+        }
+        ParkingService parkingService = bootstrap.getParkingService();
 
         while (continueApp) {
             loadMenu();
@@ -45,6 +47,8 @@ public class InteractiveShell {
                 }
                 case 3: {
                     System.out.println("\nExiting from the system!");
+                    bootstrap.shutdown();
+                    logger.info("Latencies:\n" + LatencyMetrics.dump());
                     continueApp = false;
                     break;
                 }
@@ -0,0 +1,196 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.Occupancy;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketCaches;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.ManagementBeans;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The ParkingBootstrap class starts a {@link ParkingService} on the database, the same way for the console
+ * ({@link InteractiveShell}) and for the gate server ({@link GateServer}): it brings the schema up to date, warms the
+ * in-memory indexes, starts the journals and the occupancy reconciliation, and publishes the JMX beans.
+ * {@link #shutdown()} releases all of it in order.
+ */
+final class ParkingBootstrap {
+
+    private static final Logger logger = LogManager.getLogger("ParkingBootstrap");
+
+    /**
+     * Default time between two checks of the occupancy counters against the parking table.
+     */
+    private static final long DEFAULT_RECONCILE_MILLIS = 60000;
+
+    /**
+     * Maximum time spent writing journaled tickets to the database when shutting down.
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final ParkingService parkingService;
+    private final TicketWriteBehind ticketWriteBehind;
+    private final GateEventJournal eventJournal;
+
+    private ParkingBootstrap(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, ParkingService parkingService,
+                             TicketWriteBehind ticketWriteBehind, GateEventJournal eventJournal) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.parkingService = parkingService;
+        this.ticketWriteBehind = ticketWriteBehind;
+        this.eventJournal = eventJournal;
+    }
+
+    /**
+     * Starts the parking service on the database. Nothing is started if the schema cannot be brought up to date,
+     * since the DAOs read and write the columns added by the migrations.
+     *
+     * @param inputReaderUtil the console the service reads from, or null for a service without console
+     * @return the started service and its resources, or null if the schema could not be migrated
+     */
+    static ParkingBootstrap start(InputReaderUtil inputReaderUtil) {
+        if (!new SchemaMigrator(new DataBaseConfig()).migrate()) {
+            logger.error("Database schema could not be brought up to date");
+            DataBaseConfig.shutdownPools();
+            return null;
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        TicketDAO ticketDAO = new TicketDAO();
+        // Warm the in-memory indexes so the first vehicles do not pay for loading them
+        parkingSpotDAO.reloadAvailabilityIndex();
+        startOccupancyReconciliation(parkingSpotDAO);
+        ticketDAO.reloadCaches();
+        TicketWriteBehind ticketWriteBehind = startTicketWriteBehind(ticketDAO);
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        GateEventJournal eventJournal = startEventJournal(parkingService);
+        registerManagementBeans(parkingService, parkingSpotDAO, ticketDAO);
+        return new ParkingBootstrap(parkingSpotDAO, ticketDAO, parkingService, ticketWriteBehind, eventJournal);
+    }
+
+    ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    /**
+     * Stops the reconciliation, writes the spot changes made offline, closes the event journal, writes the journaled
+     * tickets and closes the connection pools.
+     */
+    void shutdown() {
+        parkingSpotDAO.stopOccupancyReconciliation();
+        if (!parkingSpotDAO.writeOfflineChanges()) {
+            logger.warn("{} parking spot changes made offline are lost", parkingSpotDAO.getOfflineChangeCount());
+        }
+        if (eventJournal != null) {
+            eventJournal.close();
+        }
+        if (ticketWriteBehind != null) {
+            ticketWriteBehind.stop(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        DataBaseConfig.shutdownPools();
+    }
+
+    /**
+     * Starts the ticket journal. When the parkit.offline.enabled system property is true, it serves as the offline
+     * buffer of the DAO, which journals tickets there while the database is unreachable; offline mode is off by
+     * default. When the parkit.ticket.writeBehind system property is true, the DAO switches to write-behind mode and
+     * journals every ticket. The journal directory, batch size and latency bound are read from the
+     * parkit.ticket.journalDir, parkit.ticket.flushSize and parkit.ticket.flushLatencyMillis system properties.
+     *
+     * @param ticketDAO the DAO to give the journal to
+     * @return the started journal, or null if neither mode is enabled or the journal could not be started
+     */
+    private static TicketWriteBehind startTicketWriteBehind(TicketDAO ticketDAO) {
+        boolean writeBehind = Boolean.getBoolean("parkit.ticket.writeBehind");
+        boolean offlineMode = Boolean.getBoolean("parkit.offline.enabled");
+        if (!writeBehind && !offlineMode) {
+            return null;
+        }
+        TicketWriteBehind ticketWriteBehind = new TicketWriteBehind(new DataBaseConfig(),
+                new File(System.getProperty("parkit.ticket.journalDir", "journal")),
+                Integer.getInteger("parkit.ticket.flushSize", TicketWriteBehind.DEFAULT_FLUSH_SIZE),
+                Long.getLong("parkit.ticket.flushLatencyMillis", TicketWriteBehind.DEFAULT_MAX_FLUSH_LATENCY_MILLIS));
+        try {
+            ticketWriteBehind.start();
+            if (writeBehind) {
+                ticketDAO.setWriteBehind(ticketWriteBehind);
+                logger.info("Ticket write-behind mode enabled");
+            }
+            if (offlineMode) {
+                ticketDAO.setOfflineBuffer(ticketWriteBehind);
+            }
+            return ticketWriteBehind;
+        } catch (IOException e) {
+            logger.error("Unable to start ticket journal, tickets are written synchronously and not buffered offline",
+                    e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts checking the occupancy counters against the parking table every parkit.occupancy.reconcileMillis
+     * milliseconds, one minute by default; 0 disables the check.
+     *
+     * @param parkingSpotDAO the DAO keeping the counters
+     */
+    private static void startOccupancyReconciliation(ParkingSpotDAO parkingSpotDAO) {
+        long periodMillis = Long.getLong("parkit.occupancy.reconcileMillis", DEFAULT_RECONCILE_MILLIS);
+        if (periodMillis > 0) {
+            parkingSpotDAO.startOccupancyReconciliation(periodMillis);
+        }
+    }
+
+    /**
+     * Publishes over JMX the caches of the DAOs, the occupancy of each parking type and the gate traffic.
+     * The connection pools publish themselves when created.
+     *
+     * @param parkingService the service letting vehicles in and out
+     * @param parkingSpotDAO the DAO keeping the occupancy counters
+     * @param ticketDAO      the DAO keeping the ticket caches
+     */
+    private static void registerManagementBeans(ParkingService parkingService, ParkingSpotDAO parkingSpotDAO,
+                                                TicketDAO ticketDAO) {
+        ManagementBeans.register("type=GateTraffic", parkingService.getTraffic());
+        ManagementBeans.register("type=TicketCaches", new TicketCaches(ticketDAO));
+        for (ParkingType parkingType : ParkingType.values()) {
+            ManagementBeans.register("type=Occupancy,parkingType=" + parkingType, new Occupancy(parkingSpotDAO,
+                    parkingType));
+        }
+    }
+
+    /**
+     * Opens the gate event journal when the parkit.events.journalDir system property names its directory.
+     * The segment size and sync interval are read from the parkit.events.recordsPerSegment and
+     * parkit.events.syncIntervalMillis system properties.
+     *
+     * @param parkingService the service recording its entries and exits
+     * @return the opened journal, or null if no journal is kept or it could not be opened
+     */
+    static GateEventJournal startEventJournal(ParkingService parkingService) {
+        String directory = System.getProperty("parkit.events.journalDir");
+        if (directory == null) {
+            return null;
+        }
+        GateEventJournal eventJournal = new GateEventJournal(new File(directory),
+                Integer.getInteger("parkit.events.recordsPerSegment", GateEventJournal.DEFAULT_RECORDS_PER_SEGMENT),
+                Long.getLong("parkit.events.syncIntervalMillis", GateEventJournal.DEFAULT_SYNC_INTERVAL_MILLIS));
+        try {
+            eventJournal.open();
+            parkingService.setEventJournal(eventJournal);
+            return eventJournal;
+        } catch (IOException e) {
+            logger.error("Unable to open gate event journal, entries and exits are not journaled", e);
+            return null;
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.parkit.parkingsystem.service;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.SpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingEvent;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketLookup;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.parkit.parkingsystem.util.LatencyMetrics;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 
 import static com.parkit.parkingsystem.constants.TestConstants.IN_TIME_TEST;
@@ -18,6 +28,8 @@ import static com.parkit.parkingsystem.constants.TestConstants.OUT_TIME_TEST;
 /**
  * This class represents a parking service that manages the parking spots and tickets.
  * The ParkingService class is responsible for handling the incoming and exiting vehicles in a parking lot.
+ * Gate controllers call {@link #enter(String, ParkingType)} and {@link #exit(String)}, which neither read the console
+ * nor print to it; the process methods are the console client used by the interactive shell.
  */
 public class ParkingService {
 
@@ -27,6 +39,17 @@ public class ParkingService {
      */
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
+    /**
+     * The audit channel: one structured line per entry and exit, written asynchronously to its own file.
+     */
+    private static final Logger auditLogger = LogManager.getLogger("Audit");
+
+    private static final LatencyHistogram ENTER_LATENCY = LatencyMetrics.histogram("ParkingService.enter");
+    private static final LatencyHistogram ENTER_ASYNC_LATENCY = LatencyMetrics.histogram("ParkingService.enterAsync");
+    private static final LatencyHistogram EXIT_LATENCY = LatencyMetrics.histogram("ParkingService.exit");
+    private static final LatencyHistogram EXIT_ASYNC_LATENCY = LatencyMetrics.histogram("ParkingService.exitAsync");
+    private static final LatencyHistogram QUOTE_LATENCY = LatencyMetrics.histogram("ParkingService.quote");
+
     /**
      * The FareCalculatorService class provides methods to calculate the parking fare based on the parking duration.
      */
@@ -39,78 +62,430 @@ public class ParkingService {
     private final InputReaderUtil inputReaderUtil;
 
     /**
-     * The ParkingSpotDAO class is responsible for accessing and updating parking spot information in the database.
+     * The parking spots, kept in the database by a {@link com.parkit.parkingsystem.dao.ParkingSpotDAO} or in memory.
+     */
+    private final SpotRepository parkingSpotDAO;
+
+    /**
+     * The tickets, kept in the database by a {@link com.parkit.parkingsystem.dao.TicketDAO} or in memory.
+     */
+    private final TicketRepository ticketDAO;
+
+    /**
+     * Local record of the vehicles passing the gates, or null if none is kept.
      */
-    private final ParkingSpotDAO parkingSpotDAO;
+    private volatile GateEventJournal eventJournal;
 
     /**
-     * The TicketDAO class provides methods for saving, updating, and retrieving parking tickets from the database.
+     * Entries, exits and vehicles turned away, published over JMX.
      */
-    private final TicketDAO ticketDAO;
+    private final GateTraffic traffic = new GateTraffic();
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+    public ParkingService(InputReaderUtil inputReaderUtil, SpotRepository parkingSpotDAO, TicketRepository ticketDAO) {
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
     }
 
     /**
-     * Processes the incoming vehicle.
+     * Creates a parking service without console, for gate controllers using {@link #enter(String, ParkingType)}
+     * and {@link #exit(String)}.
      *
-     * @param test A boolean indicating whether the method is being called for a test or not.
+     * @param parkingSpotDAO the parking spots
+     * @param ticketDAO      the tickets
      */
-    public void processIncomingVehicle(boolean test) {
+    public ParkingService(SpotRepository parkingSpotDAO, TicketRepository ticketDAO) {
+        this(null, parkingSpotDAO, ticketDAO);
+    }
+
+    /**
+     * Records every entry and exit in an event journal, kept locally whatever the state of the database.
+     *
+     * @param eventJournal the opened journal, or null to stop recording
+     */
+    public void setEventJournal(GateEventJournal eventJournal) {
+        this.eventJournal = eventJournal;
+    }
+
+    public GateTraffic getTraffic() {
+        return traffic;
+    }
+
+    /**
+     * Lets a vehicle in: claims the lowest available spot of its type and issues a ticket.
+     * Safe to call from several gates at once.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param parkingType      the type of the vehicle
+     * @return the spot and ticket, or the reason the vehicle cannot enter
+     */
+    public EntryResult enter(String vehicleRegNumber, ParkingType parkingType) {
+        return enter(vehicleRegNumber, parkingType, false);
+    }
+
+    /**
+     * Lets a vehicle in.
+     *
+     * @param test A boolean indicating whether the in time is the fixed one of the integration tests.
+     */
+    private EntryResult enter(String vehicleRegNumber, ParkingType parkingType, boolean test) {
+        long startNanos = System.nanoTime();
         try {
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if (parkingSpot == null || parkingSpot.getId() <= 0) {
-                System.out.println("\nThe ParkingSpot object is Null or its ID is not valid.");
-                return;
+            if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+                return EntryResult.refused(EntryResult.Status.INVALID_PLATE);
             }
+            try {
+                // Lookup and reservation of the spot happen in one step so concurrent gates never share a spot
+                int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(parkingType);
+                if (parkingNumber <= 0) {
+                    traffic.markNoSpot();
+                    return EntryResult.refused(EntryResult.Status.NO_SPOT_AVAILABLE);
+                }
+                ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
 
-            String vehicleRegNumber = getVehicleRegNumber();
-            if (vehicleRegNumber.isEmpty()) {
-                System.out.println("\nUnable to retrieve the vehicle's registration number.");
-                return;
+                int nbTickets = ticketDAO.getNbTicket(vehicleRegNumber);
+
+                Ticket ticket = newTicket(vehicleRegNumber, parkingSpot, test ? IN_TIME_TEST[nbTickets] : new Date());
+                if (!ticketDAO.saveTicket(ticket)) {
+                    releaseSpot(parkingSpot);
+                    return EntryResult.refused(EntryResult.Status.SAVE_FAILED);
+                }
+                recordEvent(ParkingEvent.Kind.ENTRY, ticket);
+                return new EntryResult(EntryResult.Status.ENTERED, parkingSpot, ticket, nbTickets > 0);
+            } catch (Exception e) {
+                logger.error("Unable to process incoming vehicle", e);
+                return EntryResult.refused(EntryResult.Status.ERROR);
             }
+        } finally {
+            ENTER_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Lets a vehicle in without blocking the caller. The spot claim and the count of the earlier tickets do not
+     * depend on each other, so they run at the same time on the I/O executor; the ticket is saved once both are
+     * done. The entry therefore takes two database round trips instead of three.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param parkingType      the type of the vehicle
+     * @param ioExecutor       the executor running the database calls
+     * @return the spot and ticket, or the reason the vehicle cannot enter; never completed exceptionally
+     */
+    public CompletableFuture<EntryResult> enterAsync(String vehicleRegNumber, ParkingType parkingType,
+                                                     Executor ioExecutor) {
+        if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(EntryResult.refused(EntryResult.Status.INVALID_PLATE));
+        }
+        long startNanos = System.nanoTime();
+        try {
+            CompletableFuture<Integer> claim = CompletableFuture.supplyAsync(
+                    () -> parkingSpotDAO.claimNextAvailableSlot(parkingType), ioExecutor);
+            CompletableFuture<Integer> count = CompletableFuture.supplyAsync(
+                    () -> ticketDAO.getNbTicket(vehicleRegNumber), ioExecutor);
+            return claim.handle(ParkingService::valueOrNull)
+                    .thenCombine(count.handle(ParkingService::valueOrNull), (parkingNumber, nbTickets) -> {
+                        if (parkingNumber == null) {
+                            return CompletableFuture.completedFuture(EntryResult.refused(EntryResult.Status.ERROR));
+                        }
+                        if (parkingNumber <= 0) {
+                            traffic.markNoSpot();
+                            return CompletableFuture.completedFuture(
+                                    EntryResult.refused(EntryResult.Status.NO_SPOT_AVAILABLE));
+                        }
+                        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+                        if (nbTickets == null) {
+                            // The spot was claimed but the vehicle cannot enter: give it back
+                            return CompletableFuture.supplyAsync(() -> {
+                                releaseSpot(parkingSpot);
+                                return EntryResult.refused(EntryResult.Status.ERROR);
+                            }, ioExecutor);
+                        }
+                        return CompletableFuture.supplyAsync(
+                                () -> saveEntry(vehicleRegNumber, parkingSpot, nbTickets), ioExecutor);
+                    })
+                    .thenCompose(result -> result)
+                    .exceptionally(e -> {
+                        logger.error("Unable to process incoming vehicle", e);
+                        return EntryResult.refused(EntryResult.Status.ERROR);
+                    })
+                    .whenComplete((result, e) -> ENTER_ASYNC_LATENCY.recordSince(startNanos));
+        } catch (Exception e) {
+            logger.error("Unable to process incoming vehicle", e);
+            return CompletableFuture.completedFuture(EntryResult.refused(EntryResult.Status.ERROR));
+        }
+    }
 
-            int nbTickets = ticketDAO.getNbTicket(vehicleRegNumber);
+    /**
+     * Returns the value of a completed step, or null after logging its failure.
+     */
+    private static <T> T valueOrNull(T value, Throwable error) {
+        if (error != null) {
+            logger.error("Unable to process incoming vehicle", error);
+            return null;
+        }
+        return value;
+    }
 
-            if (nbTickets > 0) {
-                System.out.println("\nWelcome back! As a regular user of our parking, you will get a 5% discount.");
+    /**
+     * Saves the ticket of a vehicle whose spot is claimed, giving the spot back if the ticket cannot be saved.
+     */
+    private EntryResult saveEntry(String vehicleRegNumber, ParkingSpot parkingSpot, int nbTickets) {
+        try {
+            Ticket ticket = newTicket(vehicleRegNumber, parkingSpot, new Date());
+            if (!ticketDAO.saveTicket(ticket)) {
+                releaseSpot(parkingSpot);
+                return EntryResult.refused(EntryResult.Status.SAVE_FAILED);
             }
+            recordEvent(ParkingEvent.Kind.ENTRY, ticket);
+            return new EntryResult(EntryResult.Status.ENTERED, parkingSpot, ticket, nbTickets > 0);
+        } catch (Exception e) {
+            logger.error("Unable to process incoming vehicle", e);
+            releaseSpot(parkingSpot);
+            return EntryResult.refused(EntryResult.Status.ERROR);
+        }
+    }
 
-            parkingSpot.setAvailable(false);
+    private static Ticket newTicket(String vehicleRegNumber, ParkingSpot parkingSpot, Date inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(null);
+        return ticket;
+    }
 
-            boolean isUpdated = parkingSpotDAO.updateParking(parkingSpot);
+    /**
+     * Counts an entry or exit, writes it to the audit log and appends it to the event journal, if one is kept.
+     * A journal failure is logged but does not stop the vehicle, whose ticket is already in the database.
+     */
+    private void recordEvent(ParkingEvent.Kind kind, Ticket ticket) {
+        if (kind == ParkingEvent.Kind.ENTRY) {
+            traffic.markEntry();
+        } else {
+            traffic.markExit();
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        long time = (kind == ParkingEvent.Kind.ENTRY ? ticket.getInTime() : ticket.getOutTime()).getTime();
+        long priceCents = Math.round(ticket.getPrice() * 100);
+        if (auditLogger.isInfoEnabled()) {
+            // Boxed through Unbox so that the audit line allocates nothing on the gate thread
+            auditLogger.info("event={} ticket={} plate={} spot={} type={} time={} priceCents={}", kind,
+                    Unbox.box(ticket.getId()), ticket.getVehicleRegNumber(), Unbox.box(parkingSpot.getId()),
+                    parkingSpot.getParkingType(), Unbox.box(time), Unbox.box(priceCents));
+        }
+        GateEventJournal journal = eventJournal;
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(kind, ticket.getVehicleRegNumber(), parkingSpot.getId(), parkingSpot.getParkingType(),
+                    time, priceCents);
+        } catch (Exception e) {
+            logger.error("Unable to journal " + kind + " of " + ticket.getVehicleRegNumber(), e);
+        }
+    }
 
-            if (!isUpdated) {
-                System.out.println("\nError while updating the ParkingSpot object");
-                return;
+    /**
+     * Gives a claimed spot back so it is not lost.
+     */
+    private void releaseSpot(ParkingSpot parkingSpot) {
+        try {
+            parkingSpot.setAvailable(true);
+            parkingSpotDAO.updateParking(parkingSpot);
+        } catch (Exception e) {
+            logger.error("Unable to release parking spot " + parkingSpot.getId(), e);
+        }
+    }
+
+    /**
+     * Lets a vehicle out: prices its open ticket, with the recurring user discount if it has earlier tickets,
+     * closes the ticket and releases the spot.
+     * Safe to call from several gates at once.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the closed ticket and its fare, or the reason the vehicle cannot leave
+     */
+    public ExitResult exit(String vehicleRegNumber) {
+        return exit(vehicleRegNumber, false);
+    }
+
+    /**
+     * Lets a vehicle out.
+     *
+     * @param test A boolean indicating whether the out time is the fixed one of the integration tests.
+     */
+    private ExitResult exit(String vehicleRegNumber, boolean test) {
+        long startNanos = System.nanoTime();
+        try {
+            if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+                return ExitResult.failed(ExitResult.Status.INVALID_PLATE, null);
             }
+            Ticket ticket = null;
+            try {
+                // Open ticket and visit count come back from a single query
+                TicketLookup ticketLookup = ticketDAO.getExitLookup(vehicleRegNumber);
+                if (ticketLookup == null) {
+                    return ExitResult.failed(ExitResult.Status.NO_OPEN_TICKET, null);
+                }
+                ticket = ticketLookup.getTicket();
+                // Check if it is not the first visit
+                int nbTickets = ticketLookup.getNbTickets();
+                boolean isRecurringUser = nbTickets > 1;
 
-            Ticket ticket = new Ticket();
-            ticket.setParkingSpot(parkingSpot);
-            ticket.setVehicleRegNumber(vehicleRegNumber);
-            ticket.setPrice(0);
+                // If test equals true, we change the value of outTime for integration tests
+                ticket.setOutTime(test ? OUT_TIME_TEST[(nbTickets - 1)] : new Date());
 
-            // If test equals true, we change the value of inTime for integration tests
-            if (test) {
-                ticket.setInTime(IN_TIME_TEST[nbTickets]);
-                ticket.setOutTime(null);
-            } else {
-                ticket.setInTime(new Date());
-                ticket.setOutTime(null);
+                // Apply discount if it's a regular user
+                fareCalculatorService.calculateFare(ticket, isRecurringUser);
+
+                if (!ticketDAO.updateTicket(ticket)) {
+                    return ExitResult.failed(ExitResult.Status.UPDATE_FAILED, ticket);
+                }
+                ParkingSpot parkingSpot = ticket.getParkingSpot();
+                parkingSpot.setAvailable(true);
+                parkingSpotDAO.updateParking(parkingSpot);
+                recordEvent(ParkingEvent.Kind.EXIT, ticket);
+                return new ExitResult(ExitResult.Status.EXITED, ticket, isRecurringUser);
+            } catch (Exception e) {
+                logger.error("Unable to process exiting vehicle", e);
+                return ExitResult.failed(ExitResult.Status.ERROR, ticket);
+            }
+        } finally {
+            EXIT_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Prices the stay of a parked vehicle as if it left now, without closing its ticket or releasing its spot.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the open ticket with the current out time and price, or the reason it cannot be priced
+     */
+    public ExitResult quote(String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+                return ExitResult.failed(ExitResult.Status.INVALID_PLATE, null);
             }
+            try {
+                TicketLookup ticketLookup = ticketDAO.getExitLookup(vehicleRegNumber);
+                if (ticketLookup == null) {
+                    return ExitResult.failed(ExitResult.Status.NO_OPEN_TICKET, null);
+                }
+                Ticket ticket = ticketLookup.getTicket();
+                boolean isRecurringUser = ticketLookup.getNbTickets() > 1;
+                ticket.setOutTime(new Date());
+                fareCalculatorService.calculateFare(ticket, isRecurringUser);
+                return new ExitResult(ExitResult.Status.QUOTED, ticket, isRecurringUser);
+            } catch (Exception e) {
+                logger.error("Unable to quote parking fare", e);
+                return ExitResult.failed(ExitResult.Status.ERROR, null);
+            }
+        } finally {
+            QUOTE_LATENCY.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Counts the available spots of a type.
+     *
+     * @param parkingType the type of the spots
+     * @return the number of available spots, or -1 if they could not be counted
+     */
+    public int getAvailableSpots(ParkingType parkingType) {
+        return parkingSpotDAO.countAvailableSlots(parkingType);
+    }
+
+    /**
+     * Lets a vehicle out without blocking the caller. The lookup, the ticket update and the spot release are separate
+     * stages on the I/O executor, and the fare is computed in between without holding an I/O thread. The ticket must
+     * be found before it is priced, and the spot is released only once the ticket is closed, so that a failed update
+     * never frees a spot still occupied; the spot release then overlaps with the journaling of the exit.
+     *
+     * @param vehicleRegNumber the vehicle registration number
+     * @param ioExecutor       the executor running the database calls
+     * @return the closed ticket and its fare, or the reason the vehicle cannot leave; never completed exceptionally
+     */
+    public CompletableFuture<ExitResult> exitAsync(String vehicleRegNumber, Executor ioExecutor) {
+        if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(ExitResult.failed(ExitResult.Status.INVALID_PLATE, null));
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> ticketDAO.getExitLookup(vehicleRegNumber), ioExecutor)
+                    .thenCompose(ticketLookup -> {
+                        if (ticketLookup == null) {
+                            return CompletableFuture.completedFuture(
+                                    ExitResult.failed(ExitResult.Status.NO_OPEN_TICKET, null));
+                        }
+                        Ticket ticket = ticketLookup.getTicket();
+                        boolean isRecurringUser = ticketLookup.getNbTickets() > 1;
+                        ticket.setOutTime(new Date());
+                        fareCalculatorService.calculateFare(ticket, isRecurringUser);
+                        return CompletableFuture.supplyAsync(() -> ticketDAO.updateTicket(ticket), ioExecutor)
+                                .thenCompose(updated -> {
+                                    if (!updated) {
+                                        return CompletableFuture.completedFuture(
+                                                ExitResult.failed(ExitResult.Status.UPDATE_FAILED, ticket));
+                                    }
+                                    CompletableFuture<Void> release = CompletableFuture.runAsync(
+                                            () -> releaseSpot(ticket.getParkingSpot()), ioExecutor);
+                                    recordEvent(ParkingEvent.Kind.EXIT, ticket);
+                                    return release.thenApply(
+                                            done -> new ExitResult(ExitResult.Status.EXITED, ticket, isRecurringUser));
+                                });
+                    })
+                    .exceptionally(e -> {
+                        logger.error("Unable to process exiting vehicle", e);
+                        return ExitResult.failed(ExitResult.Status.ERROR, null);
+                    })
+                    .whenComplete((result, e) -> EXIT_ASYNC_LATENCY.recordSince(startNanos));
+        } catch (Exception e) {
+            logger.error("Unable to process exiting vehicle", e);
+            return CompletableFuture.completedFuture(ExitResult.failed(ExitResult.Status.ERROR, null));
+        }
+    }
 
-            boolean isSaved = ticketDAO.saveTicket(ticket);
-            if (!isSaved) {
-                System.out.println("\nError while saving the ticket.");
+    /**
+     * Processes the incoming vehicle: reads its type and registration number from the console, lets it in and
+     * prints the outcome.
+     *
+     * @param test A boolean indicating whether the method is being called for a test or not.
+     */
+    public void processIncomingVehicle(boolean test) {
+        try {
+            ParkingType parkingType = getVehicleType();
+            // Turn the driver away before asking for the plate; the spot itself is only claimed once the plate is read
+            if (parkingSpotDAO.getNextAvailableSlot(parkingType) <= 0) {
+                traffic.markNoSpot();
+                System.out.println("\nNo parking spot is available for this type of vehicle.");
                 return;
             }
+            String vehicleRegNumber = getVehicleRegNumber();
 
-            System.out.println("\nThe Ticket has been successfully generated and stored in the database");
-            System.out.println("\nPlease park your vehicle in spot number:" + parkingSpot.getId());
-            System.out.println("\nRecorded in-time for vehicle number:" + vehicleRegNumber + " is:" + ticket.getInTime());
+            EntryResult result = enter(vehicleRegNumber, parkingType, test);
+            switch (result.getStatus()) {
+                case INVALID_PLATE:
+                    System.out.println("\nUnable to retrieve the vehicle's registration number.");
+                    break;
+                case NO_SPOT_AVAILABLE:
+                    System.out.println("\nNo parking spot is available for this type of vehicle.");
+                    break;
+                case SAVE_FAILED:
+                    System.out.println("\nError while saving the ticket.");
+                    break;
+                case ENTERED:
+                    if (result.isRecurringUser()) {
+                        System.out.println("\nWelcome back! As a regular user of our parking, you will get a 5% discount.");
+                    }
+                    System.out.println("\nThe Ticket has been successfully generated and stored in the database");
+                    System.out.println("\nPlease park your vehicle in spot number:" + result.getParkingSpot().getId());
+                    System.out.println("\nRecorded in-time for vehicle number:" + vehicleRegNumber + " is:" + result.getTicket().getInTime());
+                    break;
+                default:
+                    break;
+            }
         } catch (Exception e) {
             logger.error("Unable to process incoming vehicle", e);
         }
@@ -159,50 +534,21 @@ public class ParkingService {
     }
 
     /**
-     * Processes the exiting vehicle.
+     * Processes the exiting vehicle: reads its registration number from the console, lets it out and prints
+     * the outcome.
      *
      * @param test A boolean indicating whether the method is being called for a test or not.
      */
     public void processExitingVehicle(boolean test) {
         try {
-            boolean isRecurringUser;
             String vehicleRegNumber = getVehicleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            // Check if it is not the first visit
-            int nbTickets = ticketDAO.getNbTicket(vehicleRegNumber);
-            Date outTime;
 
-            if (ticket == null) {
+            ExitResult result = exit(vehicleRegNumber, test);
+            if (result.getStatus() == ExitResult.Status.NO_OPEN_TICKET) {
                 System.out.println("\nNo ticket found for vehicle " + vehicleRegNumber);
-                return;
-            } else {
-                // If test equals true, we change the value of inTime for integration tests
-                if (test) {
-                    outTime = OUT_TIME_TEST[(nbTickets - 1)];
-                } else {
-                    outTime = new Date();
-                }
-            }
-
-            if (nbTickets > 1) {
-
-                isRecurringUser = true;
+            } else if (result.isRecurringUser()) {
                 System.out.println("\nWelcome back! As a regular user of our parking, you will get a 5% discount.");
-            } else {
-                isRecurringUser = false;
             }
-
-            ticket.setOutTime(outTime);
-
-            // Apply discount if it's a regular user
-            fareCalculatorService.calculateFare(ticket, isRecurringUser);
-
-            if (ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-            }
-
         } catch (Exception e) {
             logger.error("Unable to process exiting vehicle", e);
         }
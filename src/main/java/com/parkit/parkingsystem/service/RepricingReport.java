@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.service;
+
+/**
+ * The RepricingReport class is the immutable outcome of a {@link RepricingService} run: how many tickets were
+ * read and changed, and the totals of their stored, current-tariff and new-tariff prices.
+ */
+public class RepricingReport {
+
+    private final long ticketCount;
+    private final long changedCount;
+    private final long mismatchCount;
+    private final long storedTotalCents;
+    private final long currentTotalCents;
+    private final long newTotalCents;
+    private final long elapsedMillis;
+    private final boolean completed;
+
+    public RepricingReport(long ticketCount, long changedCount, long mismatchCount, long storedTotalCents,
+                           long currentTotalCents, long newTotalCents, long elapsedMillis, boolean completed) {
+        this.ticketCount = ticketCount;
+        this.changedCount = changedCount;
+        this.mismatchCount = mismatchCount;
+        this.storedTotalCents = storedTotalCents;
+        this.currentTotalCents = currentTotalCents;
+        this.newTotalCents = newTotalCents;
+        this.elapsedMillis = elapsedMillis;
+        this.completed = completed;
+    }
+
+    /**
+     * Returns the number of closed tickets read.
+     */
+    public long getTicketCount() {
+        return ticketCount;
+    }
+
+    /**
+     * Returns the number of tickets whose stored price differs from the new-tariff price.
+     */
+    public long getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Returns the number of tickets whose stored price differs from the current-tariff price.
+     */
+    public long getMismatchCount() {
+        return mismatchCount;
+    }
+
+    public long getStoredTotalCents() {
+        return storedTotalCents;
+    }
+
+    public long getCurrentTotalCents() {
+        return currentTotalCents;
+    }
+
+    public long getNewTotalCents() {
+        return newTotalCents;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Tells whether every ticket was read, and written back unless in dry run.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "RepricingReport{tickets=" + ticketCount
+                + ", changed=" + changedCount
+                + ", mismatched=" + mismatchCount
+                + ", storedTotalCents=" + storedTotalCents
+                + ", currentTotalCents=" + currentTotalCents
+                + ", newTotalCents=" + newTotalCents
+                + ", elapsedMillis=" + elapsedMillis
+                + ", completed=" + completed + "}";
+    }
+}
@@ -0,0 +1,231 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.TicketColumns;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The RepricingService class recomputes the price of closed tickets after a tariff change.
+ * Tickets are streamed from the ticket table in chunks of primitive columns. Each chunk is priced with both the
+ * current and the new tariffs by a fork-join pool, split into leaves of a few thousand rows, while the next chunk is
+ * read and the previous one written back. Only the tickets whose stored price differs from the new price are
+ * updated, in JDBC batches.
+ */
+public class RepricingService {
+
+    /**
+     * Default number of tickets read per query.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    /**
+     * Default number of tickets priced by one fork-join leaf.
+     */
+    public static final int DEFAULT_LEAF_SIZE = 2048;
+
+    /**
+     * Default number of price updates sent to the database at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Upper bound of the out times when repricing every ticket: 9999-12-31, the largest MySQL DATETIME.
+     */
+    public static final long END_OF_TIME = 253402214400000L;
+
+    private static final Logger logger = LogManager.getLogger("RepricingService");
+
+    private final TicketRepository ticketDAO;
+    private final FareCalculatorService currentFares;
+    private final FareCalculatorService newFares;
+    private final ForkJoinPool forkJoinPool;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int leafSize = DEFAULT_LEAF_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean dryRun;
+
+    /**
+     * Creates a repricing service running on the common fork-join pool.
+     *
+     * @param ticketDAO    the tickets
+     * @param currentFares the fares of the tariffs the tickets were priced with
+     * @param newFares     the fares of the new tariffs
+     */
+    public RepricingService(TicketRepository ticketDAO, FareCalculatorService currentFares, FareCalculatorService newFares) {
+        this(ticketDAO, currentFares, newFares, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a repricing service.
+     *
+     * @param ticketDAO    the tickets
+     * @param currentFares the fares of the tariffs the tickets were priced with
+     * @param newFares     the fares of the new tariffs
+     * @param forkJoinPool the pool pricing the chunks
+     */
+    public RepricingService(TicketRepository ticketDAO, FareCalculatorService currentFares, FareCalculatorService newFares,
+                            ForkJoinPool forkJoinPool) {
+        this.ticketDAO = ticketDAO;
+        this.currentFares = currentFares;
+        this.newFares = newFares;
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Reprices every closed ticket.
+     *
+     * @return the report of the run
+     */
+    public RepricingReport reprice() {
+        return reprice(0, END_OF_TIME);
+    }
+
+    /**
+     * Reprices the tickets closed between two times.
+     *
+     * @param fromTime the earliest out time, included, in epoch milliseconds
+     * @param toTime   the latest out time, excluded, in epoch milliseconds
+     * @return the report of the run
+     */
+    public RepricingReport reprice(long fromTime, long toTime) {
+        long start = System.currentTimeMillis();
+        Chunk current = new Chunk(chunkSize);
+        Chunk next = new Chunk(chunkSize);
+        int[] changedIds = new int[chunkSize];
+        long[] changedCents = new long[chunkSize];
+        long ticketCount = 0;
+        long changedCount = 0;
+        long mismatchCount = 0;
+        long storedTotal = 0;
+        long currentTotal = 0;
+        long newTotal = 0;
+        boolean completed = true;
+
+        try {
+            int read = ticketDAO.readClosedTickets(0, fromTime, toTime, current.columns);
+            ForkJoinTask<Void> pricing = read > 0 ? forkJoinPool.submit(new PriceTask(current, 0, read)) : null;
+            completed &= read >= 0;
+            while (pricing != null) {
+                // Read the next chunk while the current one is being priced
+                int lastId = current.columns.getIds()[current.columns.getSize() - 1];
+                int nextRead = current.columns.getSize() == chunkSize
+                        ? ticketDAO.readClosedTickets(lastId, fromTime, toTime, next.columns) : 0;
+                completed &= nextRead >= 0;
+                pricing.join();
+                ForkJoinTask<Void> nextPricing = nextRead > 0 ? forkJoinPool.submit(new PriceTask(next, 0, nextRead)) : null;
+
+                // Collect the totals and changes of the priced chunk while the next one is being priced
+                int changes = 0;
+                long[] stored = current.columns.getPriceCents();
+                for (int i = 0; i < current.columns.getSize(); i++) {
+                    storedTotal += stored[i];
+                    currentTotal += current.currentCents[i];
+                    newTotal += current.newCents[i];
+                    if (stored[i] != current.currentCents[i]) {
+                        mismatchCount++;
+                    }
+                    if (stored[i] != current.newCents[i]) {
+                        changedIds[changes] = current.columns.getIds()[i];
+                        changedCents[changes] = current.newCents[i];
+                        changes++;
+                    }
+                }
+                ticketCount += current.columns.getSize();
+                changedCount += changes;
+                if (!dryRun && changes > 0 && !ticketDAO.updateTicketPrices(changedIds, changedCents, changes, batchSize)) {
+                    completed = false;
+                    if (nextPricing != null) {
+                        nextPricing.join();
+                    }
+                    break;
+                }
+
+                Chunk priced = current;
+                current = next;
+                next = priced;
+                pricing = nextPricing;
+            }
+        } catch (Exception ex) {
+            logger.error("Error repricing tickets", ex);
+            completed = false;
+        }
+
+        RepricingReport report = new RepricingReport(ticketCount, changedCount, mismatchCount, storedTotal,
+                currentTotal, newTotal, System.currentTimeMillis() - start, completed);
+        logger.info("Repricing finished: {}", report);
+        return report;
+    }
+
+    /**
+     * A chunk of tickets with the two prices computed for each.
+     */
+    private static final class Chunk {
+        private final TicketColumns columns;
+        private final long[] currentCents;
+        private final long[] newCents;
+
+        private Chunk(int capacity) {
+            columns = new TicketColumns(capacity);
+            currentCents = new long[capacity];
+            newCents = new long[capacity];
+        }
+    }
+
+    /**
+     * Prices a range of rows of a chunk, splitting it in halves down to the leaf size.
+     */
+    private final class PriceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        private PriceTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PriceTask(chunk, from, middle), new PriceTask(chunk, middle, to));
+                return;
+            }
+            TicketColumns columns = chunk.columns;
+            currentFares.calculateFareCents(columns.getInTimes(), columns.getOutTimes(), columns.getParkingTypes(),
+                    columns.getRecurring(), chunk.currentCents, from, to);
+            newFares.calculateFareCents(columns.getInTimes(), columns.getOutTimes(), columns.getParkingTypes(),
+                    columns.getRecurring(), chunk.newCents, from, to);
+        }
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setLeafSize(int leafSize) {
+        this.leafSize = leafSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * In dry run, prices are computed and reported but not written back.
+     *
+     * @param dryRun true to leave the ticket table unchanged
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+}
@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a thread-safe Bloom filter over strings.
+ * It answers "definitely never added" or "possibly added", using a fixed amount of memory whatever the number of
+ * strings added. Bits are set with compare-and-set, so readers and writers never block each other.
+ */
+public class BloomFilter {
+
+    /**
+     * The bits of the filter, 64 per word.
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * The number of bits of the filter.
+     */
+    private final long bitCount;
+
+    /**
+     * The number of bits set for each string.
+     */
+    private final int hashCount;
+
+    /**
+     * Creates a filter sized for the given number of strings and false positive probability.
+     *
+     * @param expectedInsertions         the number of strings expected to be added
+     * @param falsePositiveProbability   the wanted probability that an absent string is reported as possibly added
+     * @throws IllegalArgumentException if the parameters are out of range
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter parameters");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds a string to the filter.
+     *
+     * @param value the string to add
+     * @return true if the string was definitely not in the filter before this call
+     */
+    public boolean put(String value) {
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(hash1 + i * hash2);
+            int wordIndex = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = words.get(wordIndex)) & mask) == 0) {
+                if (words.compareAndSet(wordIndex, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Tells whether a string may have been added to the filter.
+     *
+     * @param value the string to test
+     * @return false if the string was definitely never added, true if it possibly was
+     */
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(hash1 + i * hash2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every string from the filter.
+     */
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0L);
+        }
+    }
+
+    private long bitIndex(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the string, finished with a mixing step so both halves are usable.
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class holds the latency histogram of every measured operation of the application, by operation name such as
+ * "TicketDAO.saveTicket". Classes look their histograms up once, in static fields, and record into them directly.
+ */
+public final class LatencyMetrics {
+
+    private static final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private LatencyMetrics() {
+    }
+
+    /**
+     * Returns the histogram of an operation, creating it on first use.
+     *
+     * @param name the name of the operation
+     * @return the histogram shared by every caller using that name
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Returns every histogram, sorted by operation name.
+     */
+    public static Collection<LatencyHistogram> getHistograms() {
+        Map<String, LatencyHistogram> sorted = new TreeMap<>(histograms);
+        return sorted.values();
+    }
+
+    /**
+     * Forgets the latencies recorded by every histogram.
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Formats the percentiles of every operation that recorded a latency, one line per operation, in microseconds.
+     *
+     * @return the table of percentiles
+     */
+    public static String dump() {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%-45s %10s %10s %10s %10s %10s %10s %10s",
+                "operation (us)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (LatencyHistogram histogram : getHistograms()) {
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            table.append(String.format(Locale.ROOT, "%n%-45s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f",
+                    histogram.getName(), count, micros(histogram.getMeanNanos()),
+                    micros(histogram.getPercentileNanos(50)), micros(histogram.getPercentileNanos(90)),
+                    micros(histogram.getPercentileNanos(99)), micros(histogram.getPercentileNanos(99.9)),
+                    micros(histogram.getMaxNanos())));
+        }
+        return table.toString();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
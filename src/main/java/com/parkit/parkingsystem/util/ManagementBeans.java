@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This class registers the JMX beans of the application in the platform MBean server, under the
+ * {@value #DOMAIN} domain, so they can be watched and tuned from jconsole or any JMX client.
+ */
+public final class ManagementBeans {
+
+    /**
+     * Domain of every bean of the application.
+     */
+    public static final String DOMAIN = "com.parkit.parkingsystem";
+
+    private static final Logger logger = LogManager.getLogger("ManagementBeans");
+
+    private ManagementBeans() {
+    }
+
+    /**
+     * Registers a bean, replacing any bean already registered under the same name.
+     *
+     * @param properties the key properties of the bean name, such as "type=GateTraffic"
+     * @param bean       an instance of a public interface whose name ends with MXBean
+     * @return true if the bean was registered, false otherwise
+     */
+    public static boolean register(String properties, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+            return true;
+        } catch (Exception e) {
+            logger.error("Unable to register JMX bean " + properties, e);
+            return false;
+        }
+    }
+
+    /**
+     * Unregisters a bean, if registered.
+     *
+     * @param properties the key properties of the bean name
+     */
+    public static void unregister(String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to unregister JMX bean " + properties, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts events and their rate over the last minute, in sixty one-second slots reused round-robin.
+ * Marking an event is a couple of atomic operations and never allocates. A slot is reset by the first event of its
+ * new second, so the rate may miss the odd event marked during that reset.
+ */
+public class RateCounter {
+
+    private static final int SLOT_COUNT = 60;
+
+    private final LongAdder total = new LongAdder();
+    private final AtomicLongArray slotSeconds = new AtomicLongArray(SLOT_COUNT);
+    private final AtomicLongArray slotCounts = new AtomicLongArray(SLOT_COUNT);
+
+    /**
+     * Counts one event.
+     */
+    public void mark() {
+        total.increment();
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % SLOT_COUNT);
+        long slotSecond = slotSeconds.get(slot);
+        if (slotSecond != second && slotSeconds.compareAndSet(slot, slotSecond, second)) {
+            slotCounts.set(slot, 0);
+        }
+        slotCounts.incrementAndGet(slot);
+    }
+
+    /**
+     * Returns the number of events counted since creation.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the number of events counted during the last 60 seconds.
+     */
+    public long getLastMinute() {
+        long now = System.currentTimeMillis() / 1000;
+        long count = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (now - slotSeconds.get(slot) < SLOT_COUNT) {
+                count += slotCounts.get(slot);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,2 @@
+/* Exit lookups, visit counts and replayed inserts all filter tickets by vehicle, most recent first */
+create index IDX_TICKET_VEHICLE_IN_TIME on ticket(VEHICLE_REG_NUMBER, IN_TIME);
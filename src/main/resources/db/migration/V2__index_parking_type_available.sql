@@ -0,0 +1,2 @@
+/* Next available spot of a type: covers the filter and the ordering on PARKING_NUMBER */
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
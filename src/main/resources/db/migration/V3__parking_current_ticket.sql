@@ -0,0 +1,4 @@
+/* Pointer from an occupied spot to its open ticket, so occupancy and open tickets are read by primary key.
+   The backfill only sets pointers from the ticket table, so it can run again if the script is interrupted */
+alter table parking add column CURRENT_TICKET_ID int NULL;
+update parking p set CURRENT_TICKET_ID = (select max(t.ID) from ticket t where t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null) where p.AVAILABLE = false;
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.CircuitBreaker;
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+
+/**
+ * This class contains unit tests for the CircuitBreaker class and its use by DataBaseConfig.
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    /**
+     * Tests that the breaker opens after the threshold of consecutive failures and refuses calls while open.
+     */
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 5000, now::get);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.tryAcquire(), "A success resets the count of failures");
+
+        breaker.recordFailure();
+        assertEquals("OPEN", breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getTripCount());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    /**
+     * Tests that a single trial call is let through once the open period is over, and that its outcome closes or
+     * reopens the breaker.
+     */
+    @Test
+    public void trialCallClosesOrReopens() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 5000, now::get);
+        breaker.recordFailure();
+
+        now.addAndGet(5000);
+        assertFalse(breaker.isOpen(), "The open period is over");
+        assertTrue(breaker.tryAcquire());
+        assertEquals("HALF_OPEN", breaker.getState());
+        assertFalse(breaker.tryAcquire(), "Only one trial call at a time");
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen(), "A failed trial reopens the breaker");
+
+        now.addAndGet(5000);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        assertEquals("CLOSED", breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(1, breaker.getTripCount());
+    }
+
+    /**
+     * Tests that once the breaker of a database is open, connection requests fail without reaching the database.
+     */
+    @Test
+    public void connectionRequestsFailFastOnceOpen() {
+        AtomicInteger attempts = new AtomicInteger();
+        // No minimum size, so that only connection requests reach the factory
+        ConnectionPool unreachable = new ConnectionPool(() -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Connection refused");
+        }, 0, ConnectionPool.DEFAULT_MAX_SIZE, 0, ConnectionPool.DEFAULT_BORROW_TIMEOUT_MILLIS, 1);
+        DataBaseConfig dataBaseConfig = new DataBaseConfig("jdbc:mysql://unreachable:3306/test", "root", "") {
+            @Override
+            protected ConnectionPool getPool() {
+                return unreachable;
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(SQLException.class, dataBaseConfig::getConnection);
+        }
+
+        assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, attempts.get());
+        assertTrue(dataBaseConfig.isOffline());
+        unreachable.close();
+    }
+}
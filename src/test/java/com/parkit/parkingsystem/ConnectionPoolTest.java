@@ -0,0 +1,223 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.PoolStats;
+
+/**
+ * This class contains unit tests for the ConnectionPool class.
+ * Physical connections are Mockito mocks, so no database is needed.
+ */
+public class ConnectionPoolTest {
+
+    /**
+     * Physical connections opened by the factory, in creation order.
+     */
+    private List<Connection> physicalConnections;
+
+    /**
+     * Factory handing out a fresh mocked connection on each call.
+     */
+    private ConnectionPool.ConnectionFactory factory;
+
+    /**
+     * Setup for each test. Resets the list of opened connections.
+     */
+    @BeforeEach
+    public void setUpPerTest() {
+        physicalConnections = new ArrayList<>();
+        factory = () -> {
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            physicalConnections.add(connection);
+            return connection;
+        };
+    }
+
+    /**
+     * Tests that a connection closed by the borrower is reused instead of opening a new one.
+     */
+    @Test
+    public void closedConnectionIsReused() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 2, 0, 100, 1);
+
+        pool.borrow().close();
+        pool.borrow().close();
+
+        assertEquals(1, physicalConnections.size(), "The pooled connection was not reused");
+        verify(physicalConnections.get(0), never()).close();
+        PoolStats stats = pool.getStats();
+        assertEquals(2, stats.getBorrowCount());
+        assertEquals(1, stats.getIdleConnections());
+        assertEquals(0, stats.getActiveConnections());
+    }
+
+    /**
+     * Tests that a borrower times out when every connection is in use.
+     */
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+
+        Connection first = pool.borrow();
+
+        assertThrows(SQLException.class, pool::borrow, "Expected SQLException when the pool is exhausted");
+        assertEquals(1, pool.getStats().getTimeoutCount());
+
+        first.close();
+        assertNotNull(pool.borrow(), "A connection should be available once the first one is returned");
+    }
+
+    /**
+     * Tests that closing a proxy twice only gives the connection back once.
+     */
+    @Test
+    public void doubleCloseReturnsConnectionOnce() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+
+        Connection connection = pool.borrow();
+        connection.close();
+        connection.close();
+
+        assertTrue(connection.isClosed(), "The returned proxy should report itself as closed");
+        assertThrows(SQLException.class, () -> connection.prepareStatement("select 1"),
+                "Expected SQLException when using a returned connection");
+        assertNotNull(pool.borrow());
+        assertThrows(SQLException.class, pool::borrow, "Only one permit should have been released");
+    }
+
+    /**
+     * Tests that an idle connection failing validation is discarded and replaced.
+     */
+    @Test
+    public void invalidIdleConnectionIsReplaced() throws Exception {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+
+        pool.borrow().close();
+        when(physicalConnections.get(0).isValid(anyInt())).thenReturn(false);
+        Thread.sleep(600);
+        pool.borrow();
+
+        assertEquals(2, physicalConnections.size(), "A new connection should replace the invalid one");
+        verify(physicalConnections.get(0)).close();
+        assertEquals(1, pool.getStats().getValidationFailureCount());
+    }
+
+    /**
+     * Tests that a connection left in a transaction is rolled back when returned.
+     */
+    @Test
+    public void openTransactionIsRolledBackOnReturn() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+
+        Connection connection = pool.borrow();
+        when(physicalConnections.get(0).getAutoCommit()).thenReturn(false);
+        connection.close();
+
+        verify(physicalConnections.get(0)).rollback();
+        verify(physicalConnections.get(0)).setAutoCommit(true);
+    }
+
+    /**
+     * Tests that the pool can be resized while connections are borrowed.
+     */
+    @Test
+    public void poolIsResizedWhileInUse() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+        Connection first = pool.borrow();
+
+        pool.setMaxSize(3);
+        Connection second = pool.borrow();
+        Connection third = pool.borrow();
+        assertThrows(SQLException.class, pool::borrow, "The pool should be full at its new size");
+
+        pool.setMaxSize(1);
+        second.close();
+        third.close();
+        assertEquals(1, pool.getTotalConnections(), "Connections above the new size should have been closed");
+        verify(physicalConnections.get(1)).close();
+        verify(physicalConnections.get(2)).close();
+        assertThrows(SQLException.class, pool::borrow, "The permits of returned connections should be taken back");
+
+        first.close();
+        assertNotNull(pool.borrow());
+        assertThrows(IllegalArgumentException.class, () -> pool.setMaxSize(0));
+    }
+
+    /**
+     * Tests that the pool opens its minimum number of connections once created, and lends them out.
+     */
+    @Test
+    public void poolIsFilledToMinimumSize() throws Exception {
+        ConnectionPool pool = new ConnectionPool(factory, 2, 4, 0, 50, 1);
+        // Generous: the first mocked connections of the run can take seconds to create on a loaded machine
+        long deadline = System.currentTimeMillis() + 30000;
+        while (pool.getIdleConnections() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, pool.getTotalConnections(), "The pool was not filled to its minimum size");
+        pool.borrow().close();
+        assertEquals(2, pool.getStats().getTotalConnections(), "An idle connection should have been lent out");
+        assertEquals(2, physicalConnections.size());
+        pool.close();
+    }
+
+    /**
+     * Tests that statement failures caused by the connection are reported, and SQL errors are not.
+     */
+    @Test
+    public void connectionFailuresOfStatementsAreReported() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+        List<SQLException> failures = new ArrayList<>();
+        pool.setConnectionFailureListener(failures::add);
+        Connection connection = pool.borrow();
+        PreparedStatement physicalStatement = mock(PreparedStatement.class);
+        when(physicalConnections.get(0).prepareStatement("select 1")).thenReturn(physicalStatement);
+        SQLException lostLink = new SQLException("Communications link failure", "08S01");
+        when(physicalStatement.executeQuery()).thenThrow(new SQLException("Syntax error", "42000"), lostLink);
+
+        PreparedStatement statement = connection.prepareStatement("select 1");
+        assertThrows(SQLException.class, statement::executeQuery);
+        assertTrue(failures.isEmpty(), "A SQL error is not a connection failure");
+        assertSame(lostLink, assertThrows(SQLException.class, statement::executeQuery));
+        assertEquals(1, failures.size());
+        assertSame(lostLink, failures.get(0));
+        connection.close();
+    }
+
+    /**
+     * Tests that the statements a borrower left open are closed when the connection is given back.
+     */
+    @Test
+    public void statementsLeftOpenAreClosedOnReturn() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(factory, 0, 1, 0, 50, 1);
+        Connection connection = pool.borrow();
+        PreparedStatement leaked = mock(PreparedStatement.class);
+        PreparedStatement closed = mock(PreparedStatement.class);
+        when(physicalConnections.get(0).prepareStatement("select 1")).thenReturn(leaked);
+        when(physicalConnections.get(0).prepareStatement("select 2")).thenReturn(closed);
+        when(closed.isClosed()).thenReturn(true);
+
+        connection.prepareStatement("select 1");
+        connection.prepareStatement("select 2").close();
+        connection.close();
+
+        verify(leaked).close();
+        verify(closed, times(1)).close();
+        verify(physicalConnections.get(0), never()).close();
+    }
+}
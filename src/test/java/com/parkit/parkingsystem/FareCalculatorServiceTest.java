@@ -4,11 +4,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.parkit.parkingsystem.config.TariffConfig;
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
@@ -281,4 +284,114 @@ public class FareCalculatorServiceTest {
 		assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket), "Expected IllegalArgumentException was not thrown for future in time for car");
 	}
 
+	/**
+	 * Test calculates the fare in cents for a car parked one hour.
+	 */
+	@Test
+	public void calculateFareCentsCar() {
+		long in = outTime.getTime() - ONE_HOUR_IN_MILLISECONDS;
+
+		assertEquals(Fare.CAR_RATE_CENTS_PER_HOUR, fareCalculatorService.calculateFareCents(in, outTime.getTime(), ParkingType.CAR, false));
+	}
+
+	/**
+	 * Test calculates the fare in cents with a discount, rounded half up to the cent.
+	 */
+	@Test
+	public void calculateFareCentsCarWithDiscount() {
+		long in = outTime.getTime() - FORTYFIVE_MINUTES_IN_MSEC;
+
+		// 0.75 h * 150 cents * 95% = 106.875 cents
+		assertEquals(107, fareCalculatorService.calculateFareCents(in, outTime.getTime(), ParkingType.CAR, true));
+	}
+
+	/**
+	 * Test calculates the fare in cents for a stay ending exactly on half a cent.
+	 */
+	@Test
+	public void calculateFareCentsRoundsHalfUp() {
+		long in = outTime.getTime() - (THIRTY_MINUTES_IN_MSEC + 18000);
+
+		// 30 minutes 18 seconds of bike parking = 50.5 cents
+		assertEquals(51, fareCalculatorService.calculateFareCents(in, outTime.getTime(), ParkingType.BIKE, false));
+	}
+
+	/**
+	 * Test calculates the fare in cents for less than 30 minutes, which is free.
+	 */
+	@Test
+	public void calculateFareCentsLessThan30Minutes() {
+		long in = outTime.getTime() - (THIRTY_MINUTES_IN_MSEC - 1);
+
+		assertEquals(0, fareCalculatorService.calculateFareCents(in, outTime.getTime(), ParkingType.CAR, false));
+	}
+
+	/**
+	 * Test calculates the fare in cents with an out time before the in time.
+	 */
+	@Test
+	public void calculateFareCentsWithFutureInTime() {
+		long in = outTime.getTime() + ONE_HOUR_IN_MILLISECONDS;
+
+		assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFareCents(in, outTime.getTime(), ParkingType.CAR, false));
+	}
+
+	/**
+	 * Checks that the batch computation gives, for each row, the fare of the single-stay computation.
+	 */
+	private void assertBatchMatchesSingleFares(FareCalculatorService service) {
+		Random random = new Random(42);
+		int rows = 10000;
+		long[] inTimes = new long[rows];
+		long[] outTimes = new long[rows];
+		int[] parkingTypes = new int[rows];
+		boolean[] recurring = new boolean[rows];
+		for (int i = 0; i < rows; i++) {
+			inTimes[i] = 1700000000000L + random.nextInt(365) * 24L * ONE_HOUR_IN_MILLISECONDS + random.nextInt(ONE_HOUR_IN_MILLISECONDS * 24);
+			outTimes[i] = inTimes[i] + random.nextInt(ONE_HOUR_IN_MILLISECONDS * 72);
+			parkingTypes[i] = random.nextInt(ParkingType.values().length);
+			recurring[i] = random.nextBoolean();
+		}
+		long[] cents = new long[rows];
+
+		service.calculateFareCents(inTimes, outTimes, parkingTypes, recurring, cents);
+
+		for (int i = 0; i < rows; i++) {
+			assertEquals(service.calculateFareCents(inTimes[i], outTimes[i], ParkingType.values()[parkingTypes[i]], recurring[i]), cents[i]);
+		}
+	}
+
+	/**
+	 * Test calculates a batch of fares with the flat default tariffs.
+	 */
+	@Test
+	public void calculateFareCentsBatchFlat() {
+		assertBatchMatchesSingleFares(fareCalculatorService);
+	}
+
+	/**
+	 * Test calculates a batch of fares with a night band, which takes the per-row path.
+	 */
+	@Test
+	public void calculateFareCentsBatchWithBands() {
+		Properties properties = new Properties();
+		properties.setProperty("timeZone", "Europe/Paris");
+		properties.setProperty("car.ratePerHourCents", "150");
+		properties.setProperty("car.bands", "20:00-08:00@50");
+		properties.setProperty("bike.ratePerHourCents", "100");
+
+		assertBatchMatchesSingleFares(new FareCalculatorService(TariffConfig.parse(properties)));
+	}
+
+	/**
+	 * Test calculates a batch of fares containing an out time before its in time.
+	 */
+	@Test
+	public void calculateFareCentsBatchWithFutureInTime() {
+		long[] inTimes = {0, ONE_HOUR_IN_MILLISECONDS};
+		long[] outTimes = {ONE_HOUR_IN_MILLISECONDS, 0};
+
+		assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFareCents(inTimes, outTimes, new int[2], new boolean[2], new long[2]));
+	}
+
 }
@@ -0,0 +1,156 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.JournalSnapshot;
+import com.parkit.parkingsystem.model.ParkingEvent;
+
+/**
+ * This class contains unit tests for the GateEventJournal class, with segments of four records written to a
+ * temporary directory.
+ */
+public class GateEventJournalTest {
+
+    /**
+     * Directory holding the segment files of each test.
+     */
+    @TempDir
+    Path journalDirectory;
+
+    private GateEventJournal openJournal() throws IOException {
+        GateEventJournal journal = new GateEventJournal(journalDirectory.toFile(), 4, 10);
+        journal.open();
+        return journal;
+    }
+
+    /**
+     * Tests that events spread over several segments are read back in order and continue after a reopen.
+     */
+    @Test
+    public void eventsAreReadBackAcrossSegmentsAndReopens() throws IOException {
+        GateEventJournal journal = openJournal();
+        for (int i = 1; i <= 6; i++) {
+            assertEquals(i, journal.append(ParkingEvent.Kind.ENTRY, "CAR-" + i, i, ParkingType.CAR, 1000L * i, 0));
+        }
+        journal.close();
+
+        journal = openJournal();
+        assertEquals(6, journal.getLastSequence());
+        assertEquals(7, journal.append(ParkingEvent.Kind.EXIT, "CAR-2", 2, ParkingType.CAR, 9000, 150));
+        journal.close();
+
+        List<ParkingEvent> events = new ArrayList<>();
+        assertEquals(7, GateEventJournal.replay(journalDirectory.toFile(), events::add));
+        assertEquals(2, journalDirectory.toFile().listFiles().length);
+        for (int i = 0; i < 7; i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+        }
+        ParkingEvent exit = events.get(6);
+        assertEquals(ParkingEvent.Kind.EXIT, exit.getKind());
+        assertEquals("CAR-2", exit.getVehicleRegNumber());
+        assertEquals(9000, exit.getTime());
+        assertEquals(150, exit.getPriceCents());
+    }
+
+    /**
+     * Tests that the snapshot holds the vehicles still parked.
+     */
+    @Test
+    public void snapshotRebuildsOccupancy() throws IOException {
+        GateEventJournal journal = openJournal();
+        journal.append(ParkingEvent.Kind.ENTRY, "AB123", 1, ParkingType.CAR, 1000, 0);
+        journal.append(ParkingEvent.Kind.ENTRY, "CD456", 4, ParkingType.BIKE, 2000, 0);
+        journal.append(ParkingEvent.Kind.EXIT, "AB123", 1, ParkingType.CAR, 3000, 150);
+        journal.append(ParkingEvent.Kind.ENTRY, "EF789", 1, ParkingType.CAR, 4000, 0);
+        journal.close();
+
+        JournalSnapshot snapshot = GateEventJournal.readSnapshot(journalDirectory.toFile());
+
+        assertEquals(4, snapshot.getLastSequence());
+        assertEquals(2, snapshot.getOpenEntries().size());
+        assertEquals(1, snapshot.getOpenEntries().get("EF789").getParkingNumber());
+        assertFalse(snapshot.getOpenEntries().containsKey("AB123"));
+        assertTrue(snapshot.isOccupied(1));
+        assertTrue(snapshot.isOccupied(4));
+        assertEquals(1, snapshot.countOccupied(ParkingType.CAR));
+        assertEquals(1, snapshot.countOccupied(ParkingType.BIKE));
+    }
+
+    /**
+     * Tests that a torn record ends the journal and is overwritten by the next append.
+     */
+    @Test
+    public void tornRecordIsDiscarded() throws IOException {
+        GateEventJournal journal = openJournal();
+        journal.append(ParkingEvent.Kind.ENTRY, "AB123", 1, ParkingType.CAR, 1000, 0);
+        journal.append(ParkingEvent.Kind.ENTRY, "CD456", 2, ParkingType.CAR, 2000, 0);
+        journal.close();
+        File segment = journalDirectory.toFile().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(GateEventJournal.RECORD_SIZE + 40);
+            file.write('X');
+        }
+
+        assertEquals(1, GateEventJournal.replay(journalDirectory.toFile(), event -> { }));
+        journal = openJournal();
+        assertEquals(2, journal.append(ParkingEvent.Kind.ENTRY, "GH000", 2, ParkingType.CAR, 3000, 0));
+        journal.close();
+
+        List<ParkingEvent> events = new ArrayList<>();
+        GateEventJournal.replay(journalDirectory.toFile(), events::add);
+        assertEquals(2, events.size());
+        assertEquals("GH000", events.get(1).getVehicleRegNumber());
+    }
+
+    /**
+     * Tests that truncating deletes only the segments entirely before the sequence and that appends continue.
+     */
+    @Test
+    public void truncateDeletesOlderSegments() throws IOException {
+        GateEventJournal journal = openJournal();
+        for (int i = 1; i <= 10; i++) {
+            journal.append(ParkingEvent.Kind.ENTRY, "CAR-" + i, i, ParkingType.CAR, 1000L * i, 0);
+        }
+
+        assertEquals(1, journal.truncateBefore(6));
+        List<ParkingEvent> events = new ArrayList<>();
+        assertEquals(6, GateEventJournal.replay(journalDirectory.toFile(), events::add));
+        assertEquals(5, events.get(0).getSequence());
+
+        assertEquals(1, journal.truncateBefore(100), "the segment being written must be kept");
+        assertEquals(11, journal.append(ParkingEvent.Kind.EXIT, "CAR-9", 9, ParkingType.CAR, 11000, 150));
+        journal.close();
+
+        events.clear();
+        assertEquals(3, GateEventJournal.replay(journalDirectory.toFile(), events::add));
+        assertEquals(9, events.get(0).getSequence());
+        assertEquals(11, events.get(2).getSequence());
+    }
+
+    /**
+     * Tests that a registration number too long for a record is refused.
+     */
+    @Test
+    public void tooLongPlateIsRefused() throws IOException {
+        GateEventJournal journal = openJournal();
+        try {
+            assertThrows(IllegalArgumentException.class, () -> journal.append(ParkingEvent.Kind.ENTRY,
+                    "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123", 1, ParkingType.CAR, 1000, 0));
+            assertEquals(0, journal.getLastSequence());
+        } finally {
+            journal.close();
+        }
+    }
+}
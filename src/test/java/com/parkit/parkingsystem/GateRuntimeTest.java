@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemorySpotRepository;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateRuntime;
+import com.parkit.parkingsystem.service.ParkingService;
+
+/**
+ * This class contains unit tests for the GateRuntime class: concurrent lanes sharing a lot of spots kept in memory.
+ */
+public class GateRuntimeTest {
+
+    private GateRuntime gateRuntime;
+
+    @AfterEach
+    public void tearDownPerTest() {
+        if (gateRuntime != null) {
+            gateRuntime.stop(5000);
+        }
+    }
+
+    /**
+     * Tests that 16 lanes competing for 100 spots never get the same spot.
+     */
+    @Test
+    public void concurrentLanesNeverShareASpot() throws Exception {
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        gateRuntime = new GateRuntime(new ParkingService(new InMemorySpotRepository(100, 0), ticketDAO), 16);
+
+        List<CompletableFuture<EntryResult>> results = new ArrayList<>();
+        for (int vehicle = 0; vehicle < 30; vehicle++) {
+            for (int lane = 0; lane < 16; lane++) {
+                results.add(gateRuntime.submitEntry(lane, "P" + lane + "-" + vehicle, ParkingType.CAR));
+            }
+        }
+
+        Set<Integer> spots = new HashSet<>();
+        int refused = 0;
+        for (CompletableFuture<EntryResult> result : results) {
+            EntryResult entry = result.get(5, TimeUnit.SECONDS);
+            if (entry.isEntered()) {
+                assertTrue(spots.add(entry.getParkingSpot().getId()), "Spot given twice");
+            } else {
+                assertEquals(EntryResult.Status.NO_SPOT_AVAILABLE, entry.getStatus());
+                refused++;
+            }
+        }
+        assertEquals(100, spots.size());
+        assertEquals(16 * 30 - 100, refused);
+    }
+
+    /**
+     * Tests that the events of a lane run in order while several lanes share two threads.
+     */
+    @Test
+    public void eventsOfALaneRunInOrder() throws Exception {
+        List<String> entered = Collections.synchronizedList(new ArrayList<>());
+        ParkingService parkingService = new ParkingService(null, null) {
+            @Override
+            public EntryResult enter(String vehicleRegNumber, ParkingType parkingType) {
+                entered.add(vehicleRegNumber);
+                return EntryResult.refused(EntryResult.Status.NO_SPOT_AVAILABLE);
+            }
+        };
+        gateRuntime = new GateRuntime(parkingService, 4, 100, 2, false);
+
+        List<CompletableFuture<EntryResult>> results = new ArrayList<>();
+        for (int vehicle = 0; vehicle < 50; vehicle++) {
+            for (int lane = 0; lane < 4; lane++) {
+                results.add(gateRuntime.submitEntry(lane, lane + ":" + vehicle, ParkingType.CAR));
+            }
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        for (int lane = 0; lane < 4; lane++) {
+            List<String> laneOrder = new ArrayList<>();
+            for (String plate : entered) {
+                if (plate.startsWith(lane + ":")) {
+                    laneOrder.add(plate);
+                }
+            }
+            assertEquals(50, laneOrder.size());
+            for (int vehicle = 0; vehicle < 50; vehicle++) {
+                assertEquals(lane + ":" + vehicle, laneOrder.get(vehicle));
+            }
+            assertEquals(50, gateRuntime.getHandledCount(lane));
+        }
+    }
+
+    /**
+     * Tests that a full lane rejects new events instead of queueing them without bound.
+     */
+    @Test
+    public void fullLaneRejectsEvents() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.getExitLookup(anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        gateRuntime = new GateRuntime(new ParkingService(new InMemorySpotRepository(1, 0), ticketDAO), 1, 2, 1, false);
+
+        CompletableFuture<?> blocked = gateRuntime.submitExit(0, "A");
+        // Wait for the first exit to leave the queue
+        while (gateRuntime.getQueuedCount(0) > 0) {
+            Thread.sleep(1);
+        }
+        gateRuntime.submitExit(0, "B");
+        gateRuntime.submitExit(0, "C");
+        CompletableFuture<?> rejected = gateRuntime.submitExit(0, "D");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertEquals(1, gateRuntime.getRejectedCount(0));
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+    }
+}
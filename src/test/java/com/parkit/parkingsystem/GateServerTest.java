@@ -0,0 +1,194 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.ParkingService;
+
+/**
+ * This class contains unit tests for the GateServer class, sending HTTP requests to a server on a free local port
+ * backed by a mocked ParkingService.
+ */
+@ExtendWith(MockitoExtension.class)
+public class GateServerTest {
+
+    @Mock
+    private ParkingService parkingService;
+
+    private GateServer gateServer;
+
+    @BeforeEach
+    public void setUpPerTest() throws IOException {
+        gateServer = new GateServer(parkingService, new InetSocketAddress("127.0.0.1", 0), 2);
+        gateServer.start();
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        gateServer.stop(0);
+    }
+
+    /**
+     * Sends a request and returns the status code followed by the body.
+     */
+    private String send(String method, String path, String form) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + gateServer.getPort() + path)
+                .openConnection();
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[512];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return status + " " + new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests an entry sent as a form.
+     */
+    @Test
+    public void entryReturnsSpot() throws IOException {
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(1000));
+        ParkingSpot parkingSpot = new ParkingSpot(3, ParkingType.CAR, false);
+        when(parkingService.enter("AB 123", ParkingType.CAR))
+                .thenReturn(new EntryResult(EntryResult.Status.ENTERED, parkingSpot, ticket, true));
+
+        assertEquals("200 {\"status\":\"ENTERED\",\"spot\":3,\"type\":\"CAR\",\"inTime\":1000,\"recurringUser\":true}",
+                send("POST", "/entry", "plate=AB+123&type=car"));
+    }
+
+    /**
+     * Tests that refusals are mapped to HTTP errors and that an unknown vehicle type never reaches the service.
+     */
+    @Test
+    public void entryRefusals() throws IOException {
+        when(parkingService.enter("AB123", ParkingType.BIKE))
+                .thenReturn(EntryResult.refused(EntryResult.Status.NO_SPOT_AVAILABLE));
+
+        assertEquals("409 {\"status\":\"NO_SPOT_AVAILABLE\"}", send("POST", "/entry?plate=AB123&type=BIKE", null));
+        assertEquals("400 {\"status\":\"INVALID_TYPE\"}", send("POST", "/entry?plate=AB123&type=TRUCK", null));
+        assertEquals("405 {\"status\":\"METHOD_NOT_ALLOWED\"}", send("GET", "/entry?plate=AB123&type=CAR", null));
+        verify(parkingService, times(1)).enter(anyString(), any(ParkingType.class));
+    }
+
+    /**
+     * Tests an exit, a quote and a vehicle without an open ticket.
+     */
+    @Test
+    public void exitAndQuote() throws IOException {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, true));
+        ticket.setInTime(new Date(0));
+        ticket.setOutTime(new Date(3600000));
+        ticket.setPrice(1.5);
+        when(parkingService.exit("AB123")).thenReturn(new ExitResult(ExitResult.Status.EXITED, ticket, false));
+        when(parkingService.quote("AB123")).thenReturn(new ExitResult(ExitResult.Status.QUOTED, ticket, false));
+        when(parkingService.quote("ZZ999")).thenReturn(ExitResult.failed(ExitResult.Status.NO_OPEN_TICKET, null));
+
+        String priced = "{\"spot\":2,\"inTime\":0,\"outTime\":3600000,\"fare\":1.50,\"recurringUser\":false}";
+        assertEquals("200 {\"status\":\"EXITED\"," + priced.substring(1), send("POST", "/exit", "plate=AB123"));
+        assertEquals("200 {\"status\":\"QUOTED\"," + priced.substring(1), send("GET", "/quote?plate=AB123", null));
+        assertEquals("404 {\"status\":\"NO_OPEN_TICKET\"}", send("GET", "/quote?plate=ZZ999", null));
+    }
+
+    /**
+     * Tests the occupancy and the request statistics.
+     */
+    @Test
+    public void occupancyAndStats() throws IOException {
+        when(parkingService.getAvailableSpots(ParkingType.CAR)).thenReturn(2);
+        when(parkingService.getAvailableSpots(ParkingType.BIKE)).thenReturn(0);
+
+        assertEquals("200 {\"CAR\":{\"available\":2},\"BIKE\":{\"available\":0}}", send("GET", "/occupancy", null));
+        send("GET", "/occupancy", null);
+
+        assertEquals(2, gateServer.getStats("/occupancy").getRequestCount());
+        assertEquals(0, gateServer.getStats("/occupancy").getErrorCount());
+        assertEquals(0, gateServer.getStats("/entry").getRequestCount());
+        assertTrue(send("GET", "/stats", null).contains("\"/occupancy\":{\"requests\":2,\"errors\":0,"));
+    }
+
+    /**
+     * Tests that a body larger than the limit is refused without reaching the service.
+     */
+    @Test
+    public void largeBodyIsRefused() throws IOException {
+        StringBuilder form = new StringBuilder("plate=AB123&padding=");
+        while (form.length() <= 10240) {
+            form.append('x');
+        }
+
+        assertEquals("413 {\"status\":\"REQUEST_TOO_LARGE\"}", send("POST", "/exit", form.toString()));
+        verify(parkingService, never()).exit(anyString());
+    }
+
+    /**
+     * Tests that a request arriving while the only worker is busy and no request may wait is answered 503.
+     */
+    @Test
+    public void requestIsShedWhenWorkersAreBusy() throws Exception {
+        gateServer.stop(0);
+        gateServer = new GateServer(parkingService, new InetSocketAddress("127.0.0.1", 0), 1, 0);
+        gateServer.start();
+        CountDownLatch exiting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(parkingService.exit("AB123")).thenAnswer(invocation -> {
+            exiting.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return ExitResult.failed(ExitResult.Status.NO_OPEN_TICKET, null);
+        });
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> busy = client.submit(() -> send("POST", "/exit", "plate=AB123"));
+            assertTrue(exiting.await(10, TimeUnit.SECONDS));
+
+            assertEquals("503 {\"status\":\"OVERLOADED\"}", send("GET", "/occupancy", null));
+            release.countDown();
+            assertEquals("404 {\"status\":\"NO_OPEN_TICKET\"}", busy.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            client.shutdownNow();
+        }
+        verify(parkingService, never()).getAvailableSpots(any(ParkingType.class));
+    }
+}
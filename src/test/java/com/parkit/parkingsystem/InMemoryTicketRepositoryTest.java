@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryTicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketColumns;
+import com.parkit.parkingsystem.model.TicketLookup;
+
+/**
+ * This class contains unit tests for the InMemoryTicketRepository class.
+ */
+public class InMemoryTicketRepositoryTest {
+
+    private InMemoryTicketRepository repository;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        repository = new InMemoryTicketRepository();
+    }
+
+    private static Ticket ticket(String plate, int parkingNumber, long inTime, Long outTime, double price) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(plate);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(outTime == null ? null : new Date(outTime));
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    /**
+     * Tests that an open ticket is found by plate and by spot until it is closed.
+     */
+    @Test
+    public void openTicketIsFoundUntilClosed() {
+        Ticket ticket = ticket("ABCDEF", 2, 1000, null, 0);
+        assertTrue(repository.saveTicket(ticket));
+        assertEquals(1, ticket.getId());
+
+        TicketLookup lookup = repository.getExitLookup("ABCDEF");
+        assertNotNull(lookup);
+        assertEquals(1, lookup.getNbTickets());
+        assertEquals(2, lookup.getTicket().getParkingSpot().getId());
+        assertEquals(1, repository.getCurrentTicket(2).getId());
+
+        ticket.setOutTime(new Date(5000));
+        ticket.setPrice(1.5);
+        assertTrue(repository.updateTicket(ticket));
+
+        assertNull(repository.getExitLookup("ABCDEF"));
+        assertNull(repository.getCurrentTicket(2));
+        Ticket stored = repository.getTicket("ABCDEF");
+        assertEquals(1.5, stored.getPrice());
+        assertEquals(5000, stored.getOutTime().getTime());
+        assertEquals(1, repository.getNbTicket("ABCDEF"));
+    }
+
+    /**
+     * Tests that stored tickets cannot be changed through the objects passed in or returned.
+     */
+    @Test
+    public void ticketsAreCopied() {
+        Ticket ticket = ticket("ABCDEF", 1, 1000, null, 0);
+        repository.saveTicket(ticket);
+
+        ticket.setPrice(9);
+        repository.getTicket("ABCDEF").setPrice(8);
+
+        assertEquals(0, repository.getTicket("ABCDEF").getPrice());
+    }
+
+    /**
+     * Tests that unknown tickets are neither updated nor found.
+     */
+    @Test
+    public void unknownTicketIsNotUpdated() {
+        Ticket ticket = ticket("ABCDEF", 1, 1000, 2000L, 1);
+        ticket.setId(42);
+
+        assertFalse(repository.updateTicket(ticket));
+        assertNull(repository.getTicket("ABCDEF"));
+        assertEquals(0, repository.getNbTicket("ABCDEF"));
+    }
+
+    /**
+     * Tests that closed tickets are read in id order, in chunks, with their recurring flag, and repriced.
+     */
+    @Test
+    public void closedTicketsAreReadAndRepriced() {
+        repository.saveTicket(ticket("ABCDEF", 1, 1000, 2000L, 1.5));
+        repository.saveTicket(ticket("GHIJKL", 2, 1500, 9000L, 3));
+        repository.saveTicket(ticket("ABCDEF", 1, 3000, 4000L, 1.5));
+        repository.saveTicket(ticket("MNOPQR", 3, 5000, null, 0));
+
+        TicketColumns columns = new TicketColumns(2);
+        assertEquals(2, repository.readClosedTickets(0, 0, 5000, columns));
+        assertArrayEquals(new int[]{1, 3}, Arrays.copyOf(columns.getIds(), 2));
+        assertFalse(columns.getRecurring()[0]);
+        assertTrue(columns.getRecurring()[1]);
+        assertEquals(150, columns.getPriceCents()[1]);
+        assertEquals(0, repository.readClosedTickets(3, 0, 5000, columns));
+
+        assertTrue(repository.updateTicketPrices(new int[]{1, 3}, new long[]{175, 200}, 2, 100));
+        repository.readClosedTickets(0, 0, 5000, columns);
+        assertEquals(175, columns.getPriceCents()[0]);
+        assertEquals(200, columns.getPriceCents()[1]);
+    }
+}
@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.util.IntObjectHashMap;
+
+/**
+ * This class contains unit tests for the IntObjectHashMap class.
+ */
+public class IntObjectHashMapTest {
+
+    /**
+     * Tests that values are stored, replaced and removed by key.
+     */
+    @Test
+    public void putGetRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(-7, "minus seven"));
+        assertEquals("one", map.put(1, "uno"));
+
+        assertEquals("uno", map.get(1));
+        assertEquals("minus seven", map.get(-7));
+        assertNull(map.get(2));
+        assertEquals(2, map.size());
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * Tests that random puts and removes, growing the table and moving entries back, match a HashMap.
+     */
+    @Test
+    public void matchesHashMap() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
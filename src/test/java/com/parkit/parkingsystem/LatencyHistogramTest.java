@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.util.LatencyHistogram;
+
+/**
+ * This class contains unit tests for the LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Tests that percentiles are exact for small values and within the bucket precision for large ones.
+     */
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getPercentileNanos(50));
+        assertEquals(99, histogram.getPercentileNanos(99));
+        assertEquals(100, histogram.getPercentileNanos(100));
+        assertEquals(100, histogram.getMaxNanos());
+        assertEquals(50, histogram.getMeanNanos());
+
+        for (long value : new long[] {1_000, 123_456, 7_654_321, 3_000_000_000L}) {
+            histogram.reset();
+            histogram.record(value);
+            histogram.record(value * 2);
+            long reported = histogram.getPercentileNanos(50);
+            assertTrue(reported >= value && reported <= value * 1.04, value + " reported as " + reported);
+        }
+    }
+
+    /**
+     * Tests that out of range latencies are clamped and an empty histogram reports zero.
+     */
+    @Test
+    public void outOfRangeLatenciesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, histogram.getPercentileNanos(100));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, histogram.getMaxNanos());
+    }
+
+    /**
+     * Tests that no latency is lost when several threads record at once.
+     */
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i % 500 + 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(500, histogram.getMaxNanos());
+    }
+}
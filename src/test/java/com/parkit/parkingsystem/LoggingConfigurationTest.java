@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.RollingRandomAccessFileAppender;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfig;
+import org.apache.logging.log4j.core.async.AsyncQueueFullPolicyFactory;
+import org.apache.logging.log4j.core.async.DefaultAsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the log4j2.properties shipped with the application.
+ */
+public class LoggingConfigurationTest {
+
+    /**
+     * Tests that the audit channel is an async logger, kept out of the console, that waits rather than drops events
+     * when its ring buffer is full.
+     */
+    @Test
+    public void auditChannelIsAsynchronous() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        LoggerConfig audit = context.getConfiguration().getLoggerConfig("Audit");
+
+        assertEquals("Audit", audit.getName());
+        assertTrue(audit instanceof AsyncLoggerConfig);
+        assertFalse(audit.isAdditive());
+        assertFalse(audit.isIncludeLocation());
+        assertEquals(1, audit.getAppenders().size());
+        Appender appender = audit.getAppenders().values().iterator().next();
+        assertTrue(appender instanceof RollingRandomAccessFileAppender);
+        assertTrue(AsyncQueueFullPolicyFactory.create() instanceof DefaultAsyncQueueFullPolicy);
+    }
+
+    /**
+     * Tests that the per-call connection logs are not written by default.
+     */
+    @Test
+    public void connectionLogsAreOffByDefault() {
+        assertFalse(LogManager.getLogger("DataBaseConfig").isDebugEnabled());
+        assertTrue(LogManager.getLogger("DataBaseConfig").isInfoEnabled());
+    }
+}
@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.Occupancy;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotAvailabilityIndex;
+import com.parkit.parkingsystem.service.GateTraffic;
+import com.parkit.parkingsystem.util.ManagementBeans;
+
+/**
+ * This class contains unit tests for the JMX beans, read back through the platform MBean server as jconsole would.
+ */
+public class ManagementBeansTest {
+
+    @AfterEach
+    public void unregisterBeans() {
+        ManagementBeans.unregister("type=GateTraffic,test=true");
+        ManagementBeans.unregister("type=Occupancy,parkingType=CAR,test=true");
+    }
+
+    /**
+     * Tests that the occupancy of a parking type is published from the live counters.
+     */
+    @Test
+    public void occupancyIsPublished() throws Exception {
+        SpotAvailabilityIndex index = new SpotAvailabilityIndex();
+        for (int i = 1; i <= 4; i++) {
+            index.setAvailable(ParkingType.CAR, i, true);
+        }
+        index.takeLowestAvailable(ParkingType.CAR);
+        OccupancyCounters counters = index.getCounters();
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        when(parkingSpotDAO.getOccupancyCounters()).thenReturn(counters);
+
+        assertTrue(ManagementBeans.register("type=Occupancy,parkingType=CAR,test=true",
+                new Occupancy(parkingSpotDAO, ParkingType.CAR)));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ManagementBeans.DOMAIN + ":type=Occupancy,parkingType=CAR,test=true");
+        assertEquals("CAR", server.getAttribute(name, "ParkingType"));
+        assertEquals(4L, server.getAttribute(name, "Total"));
+        assertEquals(3L, server.getAttribute(name, "Available"));
+        assertEquals(25.0, server.getAttribute(name, "OccupancyPercent"));
+    }
+
+    /**
+     * Tests that registering a bean twice under the same name replaces the first one.
+     */
+    @Test
+    public void registeringAgainReplacesTheBean() throws Exception {
+        assertTrue(ManagementBeans.register("type=GateTraffic,test=true", new GateTraffic()));
+        assertTrue(ManagementBeans.register("type=GateTraffic,test=true", new GateTraffic()));
+
+        ObjectName name = new ObjectName(ManagementBeans.DOMAIN + ":type=GateTraffic,test=true");
+        assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "EntryCount"));
+    }
+}
@@ -0,0 +1,228 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.ParkingService;
+
+/**
+ * This class contains unit tests for the offline mode of the DAOs: gates keep working while the database is down,
+ * and the changes reach the database once it recovers.
+ */
+public class OfflineModeTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private DataBaseConfig dataBaseConfig;
+    private Connection connection;
+    private PreparedStatement parkingUpdates;
+    private PreparedStatement ticketUpdatesByVehicle;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private TicketWriteBehind offlineBuffer;
+
+    /**
+     * Setup for each test. Loads three free car spots and no ticket from a simulated database.
+     */
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = mock(DataBaseConfig.class);
+        connection = mock(Connection.class);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> emptyQuery());
+        PreparedStatement spots = mock(PreparedStatement.class);
+        ResultSet spotRows = mock(ResultSet.class);
+        when(spots.executeQuery()).thenReturn(spotRows);
+        when(spotRows.next()).thenReturn(true, true, true, false);
+        when(spotRows.getInt(1)).thenReturn(1, 2, 3);
+        when(spotRows.getBoolean(2)).thenReturn(true);
+        when(spotRows.getString(3)).thenReturn("CAR");
+        when(connection.prepareStatement(DBConstants.GET_PARKING_SPOTS)).thenReturn(spots);
+        parkingUpdates = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.UPDATE_PARKING_SPOT)).thenReturn(parkingUpdates);
+        ticketUpdatesByVehicle = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET_BY_VEHICLE)).thenReturn(ticketUpdatesByVehicle);
+
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(parkingSpotDAO.reloadAvailabilityIndex());
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.reloadCaches());
+        offlineBuffer = new TicketWriteBehind(dataBaseConfig, journalDirectory.toFile(), 10, 10);
+        offlineBuffer.start();
+        ticketDAO.setOfflineBuffer(offlineBuffer);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        offlineBuffer.stop(100);
+    }
+
+    private static PreparedStatement emptyQuery() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(mock(ResultSet.class));
+        return statement;
+    }
+
+    private void databaseDown() throws Exception {
+        when(dataBaseConfig.isOffline()).thenReturn(true);
+        when(dataBaseConfig.getConnection()).thenThrow(new SQLException("Database unavailable, circuit breaker open"));
+    }
+
+    private void databaseUp() throws Exception {
+        reset(dataBaseConfig);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+    }
+
+    /**
+     * Tests that a vehicle enters and leaves while the database is down, and that its ticket and spot are written
+     * once the database is back.
+     */
+    @Test
+    public void gatesWorkOfflineAndCatchUp() throws Exception {
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        databaseDown();
+
+        EntryResult entry = parkingService.enter("ABCDEF", ParkingType.CAR);
+        assertTrue(entry.isEntered());
+        assertEquals(1, entry.getParkingSpot().getId());
+        assertEquals(2, parkingService.getAvailableSpots(ParkingType.CAR));
+        ExitResult exit = parkingService.exit("ABCDEF");
+        assertTrue(exit.isExited());
+
+        assertEquals(3, parkingService.getAvailableSpots(ParkingType.CAR));
+        assertEquals(1, parkingSpotDAO.getOfflineChangeCount());
+        assertEquals(2, offlineBuffer.getPendingCount());
+        verify(connection, never()).commit();
+
+        databaseUp();
+        assertTrue(parkingSpotDAO.writeOfflineChanges());
+        assertEquals(0, parkingSpotDAO.getOfflineChangeCount());
+        verify(parkingUpdates).setBoolean(1, true);
+        verify(parkingUpdates).setInt(2, 1);
+        verify(parkingUpdates).executeBatch();
+        assertTrue(offlineBuffer.awaitFlushed(5000), "The buffered tickets were not written in time");
+        verify(ticketUpdatesByVehicle).setString(3, "ABCDEF");
+        verify(ticketUpdatesByVehicle).addBatch();
+    }
+
+    /**
+     * Tests that a ticket journaled offline and written once the database is back is found through the spot's current
+     * ticket pointer, and closed by id.
+     */
+    @Test
+    public void ticketJournaledOfflineIsClosedByIdOnceWritten() throws Exception {
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        databaseDown();
+        EntryResult entry = parkingService.enter("ABCDEF", ParkingType.CAR);
+        assertTrue(entry.isEntered());
+        assertEquals(0, entry.getTicket().getId());
+
+        databaseUp();
+        assertTrue(offlineBuffer.awaitFlushed(5000), "The buffered ticket was not written in time");
+        PreparedStatement currentTicket = mock(PreparedStatement.class);
+        ResultSet currentTicketRow = mock(ResultSet.class);
+        when(connection.prepareStatement(DBConstants.GET_CURRENT_TICKET)).thenReturn(currentTicket);
+        when(currentTicket.executeQuery()).thenReturn(currentTicketRow);
+        when(currentTicketRow.next()).thenReturn(true);
+        when(currentTicketRow.getInt(1)).thenReturn(7);
+        when(currentTicketRow.getString(2)).thenReturn("ABCDEF");
+        when(currentTicketRow.getTimestamp(4))
+                .thenReturn(new Timestamp((entry.getTicket().getInTime().getTime() + 500) / 1000 * 1000));
+        when(currentTicketRow.getString(6)).thenReturn("CAR");
+        PreparedStatement ticketUpdates = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(ticketUpdates);
+        when(ticketUpdates.executeUpdate()).thenReturn(1);
+        when(connection.prepareStatement(DBConstants.UPDATE_PARKING_SPOT)).thenReturn(parkingUpdates);
+        when(parkingUpdates.executeUpdate()).thenReturn(1);
+
+        ExitResult exit = parkingService.exit("ABCDEF");
+
+        assertTrue(exit.isExited());
+        assertEquals(7, exit.getTicket().getId());
+        verify(currentTicket).setInt(1, 1);
+        verify(ticketUpdates).setInt(3, 7);
+        assertEquals(0, offlineBuffer.getPendingCount());
+    }
+
+    /**
+     * Tests that a vehicle entered before the database went down can leave while it is down.
+     */
+    @Test
+    public void vehicleParkedOnlineLeavesOffline() throws Exception {
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        PreparedStatement saves = mock(PreparedStatement.class);
+        ResultSet generatedKeys = mock(ResultSet.class);
+        when(connection.prepareStatement(eq(DBConstants.SAVE_TICKET), anyInt())).thenReturn(saves);
+        when(connection.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)).thenReturn(parkingUpdates);
+        when(parkingUpdates.executeUpdate()).thenReturn(1);
+        when(saves.executeUpdate()).thenReturn(1);
+        when(saves.getGeneratedKeys()).thenReturn(generatedKeys);
+        when(generatedKeys.next()).thenReturn(true);
+        when(generatedKeys.getInt(1)).thenReturn(42);
+        assertTrue(parkingService.enter("ABCDEF", ParkingType.CAR).isEntered());
+
+        databaseDown();
+        ExitResult exit = parkingService.exit("ABCDEF");
+
+        assertTrue(exit.isExited());
+        assertEquals(42, exit.getTicket().getId());
+        assertEquals(1, offlineBuffer.getPendingCount());
+        assertEquals(1, parkingSpotDAO.getOfflineChangeCount());
+    }
+
+    /**
+     * Tests that a ticket saved in write-behind mode leaves from the open ticket index, its update being written by
+     * plate and in time, and cannot be closed a second time once the database goes down.
+     */
+    @Test
+    public void journaledTicketClosedOnlineDoesNotLeaveTwice() throws Exception {
+        TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig,
+                Files.createDirectory(journalDirectory.resolve("write-behind")).toFile(), 10, 10);
+        writeBehind.start();
+        try {
+            ticketDAO.setWriteBehind(writeBehind);
+            ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+            when(connection.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)).thenReturn(parkingUpdates);
+            when(parkingUpdates.executeUpdate()).thenReturn(1);
+            EntryResult entry = parkingService.enter("ABCDEF", ParkingType.CAR);
+            assertTrue(entry.isEntered());
+            assertEquals(0, entry.getTicket().getId());
+
+            assertTrue(parkingService.exit("ABCDEF").isExited());
+            assertTrue(writeBehind.awaitFlushed(5000), "The ticket was not written in time");
+            verify(connection, never()).prepareStatement(DBConstants.GET_OPEN_TICKET_WITH_COUNT);
+            verify(ticketUpdatesByVehicle).setString(3, "ABCDEF");
+
+            databaseDown();
+            assertFalse(parkingService.exit("ABCDEF").isExited(), "The closed ticket should not be closed again");
+            assertEquals(0, parkingSpotDAO.getOfflineChangeCount());
+        } finally {
+            writeBehind.stop(100);
+        }
+    }
+}
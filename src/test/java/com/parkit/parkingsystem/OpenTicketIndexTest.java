@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OpenTicketIndex;
+
+/**
+ * This class contains unit tests for the OpenTicketIndex class.
+ */
+public class OpenTicketIndexTest {
+
+    /**
+     * Tests that the most recent open ticket of a vehicle is kept.
+     */
+    @Test
+    public void mostRecentTicketIsKept() {
+        OpenTicketIndex index = new OpenTicketIndex();
+
+        index.put("ABCDEF", new OpenTicketIndex.OpenTicket(2, 3, ParkingType.CAR, 2000));
+        index.put("ABCDEF", new OpenTicketIndex.OpenTicket(1, 1, ParkingType.CAR, 1000));
+
+        assertEquals(2, index.get("ABCDEF").getTicketId());
+        assertEquals(3, index.get("ABCDEF").getParkingNumber());
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Tests that closing a ticket only removes the entry of that ticket.
+     */
+    @Test
+    public void closingOtherTicketKeepsEntry() {
+        OpenTicketIndex index = new OpenTicketIndex();
+        index.put("ABCDEF", new OpenTicketIndex.OpenTicket(2, 3, ParkingType.CAR, 2000));
+
+        index.remove("ABCDEF", 1, 1000);
+        assertNotNull(index.get("ABCDEF"), "The open ticket should not be removed by another ticket");
+
+        index.remove("ABCDEF", 2, 2000);
+        assertNull(index.get("ABCDEF"), "The closed ticket should be removed");
+    }
+
+    /**
+     * Tests that an entry without id is removed by the ticket with the same in time.
+     */
+    @Test
+    public void closingJournaledTicketRemovesEntry() {
+        OpenTicketIndex index = new OpenTicketIndex();
+        index.put("ABCDEF", new OpenTicketIndex.OpenTicket(0, 3, ParkingType.CAR, 2000));
+
+        index.remove("ABCDEF", 1, 1000);
+        assertNotNull(index.get("ABCDEF"), "The open ticket should not be removed by an older ticket");
+
+        index.remove("ABCDEF", 5, 2000);
+        assertNull(index.get("ABCDEF"), "The journaled ticket should be removed once closed with its id");
+    }
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem;
+
+import static com.parkit.parkingsystem.constants.Fare.CAR_RATE_PER_HOUR;
+import static com.parkit.parkingsystem.constants.TestConstants.NUMBER_OF_TICKETS;
+import static com.parkit.parkingsystem.constants.TestConstants.OUT_TIME_TEST;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemorySpotRepository;
+import com.parkit.parkingsystem.dao.InMemoryTicketRepository;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+/**
+ * This class runs the scenarios of the database integration tests on the in-memory repositories: parking a car,
+ * letting it out and the discount of recurring users, without any database.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ParkingServiceInMemoryTest {
+
+    @Mock
+    private InputReaderUtil inputReaderUtil;
+
+    private InMemorySpotRepository spotRepository;
+    private InMemoryTicketRepository ticketRepository;
+    private ParkingService parkingService;
+
+    /**
+     * Setup for each test. Creates the lot of the default data set: 1 to 3 for cars, 4 and 5 for bikes.
+     */
+    @BeforeEach
+    public void setUpPerTest() {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        spotRepository = new InMemorySpotRepository(3, 2);
+        ticketRepository = new InMemoryTicketRepository();
+        parkingService = new ParkingService(inputReaderUtil, spotRepository, ticketRepository);
+    }
+
+    /**
+     * Tests that an entering car gets a ticket and takes the first car spot.
+     */
+    @Test
+    public void testParkingACar() {
+        parkingService.processIncomingVehicle(true);
+
+        Ticket ticket = ticketRepository.getTicket("ABCDEF");
+        assertNotNull(ticket, "The ticket was not saved.");
+        assertEquals(1, ticket.getParkingSpot().getId());
+        assertEquals(2, spotRepository.countAvailableSlots(ParkingType.CAR));
+        assertEquals(1, ticketRepository.getCurrentTicket(1).getId());
+    }
+
+    /**
+     * Tests that an exiting car is charged for its stay and frees its spot.
+     */
+    @Test
+    public void testParkingLotExit() {
+        parkingService.processIncomingVehicle(true);
+        parkingService.processExitingVehicle(true);
+
+        Ticket ticket = ticketRepository.getTicket("ABCDEF");
+        assertEquals(Math.round(4 * CAR_RATE_PER_HOUR * 100.0) / 100.0, ticket.getPrice());
+        assertEquals(OUT_TIME_TEST[0].getTime(), ticket.getOutTime().getTime());
+        assertEquals(3, spotRepository.countAvailableSlots(ParkingType.CAR));
+        assertNull(ticketRepository.getCurrentTicket(1));
+    }
+
+    /**
+     * Tests that recurring users get the 5% discount from their second visit.
+     */
+    @Test
+    public void testParkingLotExitRecurringUser() {
+        double expectedTicketPrice = Math.round(4 * CAR_RATE_PER_HOUR * 100.0) / 100.0;
+        double expectedReducedTicketPrice = Math.round(0.95 * 4 * CAR_RATE_PER_HOUR * 100.0) / 100.0;
+
+        for (int i = 0; i < NUMBER_OF_TICKETS; i++) {
+            parkingService.processIncomingVehicle(true);
+            parkingService.processExitingVehicle(true);
+
+            double price = ticketRepository.getTicket("ABCDEF").getPrice();
+            assertEquals(i == 0 ? expectedTicketPrice : expectedReducedTicketPrice, price);
+        }
+        assertEquals(NUMBER_OF_TICKETS, ticketRepository.getNbTicket("ABCDEF"));
+    }
+}
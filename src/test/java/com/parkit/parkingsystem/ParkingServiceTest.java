@@ -3,10 +3,15 @@ package com.parkit.parkingsystem;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,10 +20,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingEvent;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketLookup;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 
@@ -82,16 +92,13 @@ public class ParkingServiceTest {
         // Simulate the entry of the vehicle registration number
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
 
-        // Simulate the behavior of TicketDAO to return the ticket
-        when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+        // Simulate the behavior of TicketDAO to return the ticket with the number of tickets for the vehicle
+        when(ticketDAO.getExitLookup(anyString())).thenReturn(new TicketLookup(ticket, 1));
         when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
 
         // Simulate behavior of ParkingSpotDAO to return true for updateParking method
         when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
 
-        // Simulation of the behavior of TicketDAO to return the number of tickets for the vehicle
-        when(ticketDAO.getNbTicket(anyString())).thenReturn(1); // Simulation of a ticket for the vehicle
-
         // Creating a new instance of ParkingService with mocked dependencies
         parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
 
@@ -104,11 +111,10 @@ public class ParkingServiceTest {
         // Check that ParkingSpotDAO's updateParking method is called once
         verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
 
-        // Check that TicketDAO's getNbTicket method is called once
-        verify(ticketDAO, times(1)).getNbTicket(anyString());
-
-        // Verify that getIncomingTicket was called twice
-        verify(ticketDAO, times(1)).getTicket(anyString());
+        // Check that the ticket and the number of tickets are fetched by a single lookup
+        verify(ticketDAO, times(1)).getExitLookup(anyString());
+        verify(ticketDAO, never()).getTicket(anyString());
+        verify(ticketDAO, never()).getNbTicket(anyString());
 
         assertTrue(ticket.getParkingSpot().isAvailable(), "Parking Spot was not freed up by the system");
 
@@ -131,17 +137,23 @@ public class ParkingServiceTest {
         // Simulate the behavior of the input to return a vehicle registration number
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
 
+        // Simulate behavior of ParkingSpotDAO to claim the next available spot
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+
         // Simulate the behavior of TicketDAO to return the number of tickets for the vehicle
         when(ticketDAO.getNbTicket(eq("ABCDEF"))).thenReturn(0);
 
-        // Add a mock for the behavior of the call to updateParking in ParkingSpotDAO
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);// MODIFICATION ADD
+        // Simulate the behavior of TicketDAO to save the ticket
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 
         // Calling the method to be tested
         parkingService.processIncomingVehicle(false);
 
-        // Verifying that the updateParking method of ParkingSpotDAO is called once
-        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+        // Verifying that the spot is claimed once, in a single step
+        verify(parkingSpotDAO, times(1)).claimNextAvailableSlot(ParkingType.CAR);
+
+        // Verifying that no separate availability update is needed
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
 
         // Verify that TicketDAO's saveTicket method is called once
         verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
@@ -160,23 +172,17 @@ public class ParkingServiceTest {
         // Simulate the entry of the vehicle registration number
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
 
-        // Simulate the behavior of TicketDAO to return the ticket
-        when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+        // Simulate the behavior of TicketDAO to return the ticket with the number of tickets for the vehicle
+        when(ticketDAO.getExitLookup(anyString())).thenReturn(new TicketLookup(ticket, 1));
 
         // Simulating the behavior of TicketDAO to return false when calling the updateTicket method
         when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(false);
 
-        // Simulate the behavior of TicketDAO to return the number of tickets for the vehicle
-        when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
-
         // Calling the method to be tested
         parkingService.processExitingVehicle(false);
 
-        // Check that TicketDAO's getIncomingTicket method is called once with the correct vehicle registration number
-        verify(ticketDAO, times(1)).getTicket(eq("ABCDEF"));
-
-        // Check that TicketDAO's getNbTicket method is called once with the correct vehicle registration number
-        verify(ticketDAO, times(1)).getNbTicket(eq("ABCDEF"));
+        // Check that TicketDAO's getExitLookup method is called once with the correct vehicle registration number
+        verify(ticketDAO, times(1)).getExitLookup(eq("ABCDEF"));
 
         // Check that TicketDAO's updateTicket method is called once
         verify(ticketDAO, times(1)).updateTicket(any(Ticket.class));
@@ -286,6 +292,21 @@ public class ParkingServiceTest {
         verify(parkingSpotDAO, times(0)).updateParking(any(ParkingSpot.class));
     }
 
+    /**
+     * The testProcessIncomingVehicleWhenSpotIsTakenMeanwhile method tests the processIncomingVehicle method
+     * when the last free spot is claimed by another gate while the registration number is typed.
+     */
+    @Test
+    public void testProcessIncomingVehicleWhenSpotIsTakenMeanwhile() {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(-1);
+        parkingService.processIncomingVehicle(false);
+        verify(ticketDAO, times(0)).saveTicket(any(Ticket.class));
+        verify(parkingSpotDAO, times(0)).updateParking(any(ParkingSpot.class));
+    }
+
     /**
      * The testProcessIncomingVehicleWhenVehicleRegNumberIsEmpty method tests the processIncomingVehicle method
      * when the vehicle registration number is left blank or empty.
@@ -296,38 +317,35 @@ public class ParkingServiceTest {
         when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("");
         parkingService.processIncomingVehicle(false);
-        verify(parkingSpotDAO, times(0)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, times(0)).claimNextAvailableSlot(any(ParkingType.class));
     }
 
     /**
-     * The testProcessIncomingVehicleWhenParkingSpotUpdateFails method tests the processIncomingVehicle method
-     * when an update to the assigned parking spot fails.
+     * The testProcessIncomingVehicleWhenVehicleTypeIsInvalid method tests the processIncomingVehicle method
+     * when an invalid vehicle type is entered.
      */
     @Test
-    public void testProcessIncomingVehicleWhenParkingSpotUpdateFails() {
-        when(inputReaderUtil.readSelection()).thenReturn(1);
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
-        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(false);
+    public void testProcessIncomingVehicleWhenVehicleTypeIsInvalid() {
+        when(inputReaderUtil.readSelection()).thenReturn(3);
         parkingService.processIncomingVehicle(false);
-        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, times(0)).claimNextAvailableSlot(any(ParkingType.class));
         verify(ticketDAO, times(0)).saveTicket(any(Ticket.class));
     }
 
     /**
      * The testProcessIncomingVehicleWhenTicketSaveFails method tests the processIncomingVehicle method
-     * when saving the parking ticket fails.
+     * when saving the parking ticket fails: the claimed spot must be released.
      */
     @Test
     public void testProcessIncomingVehicleWhenTicketSaveFails() {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
         parkingService.processIncomingVehicle(false);
-        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
+        verify(parkingSpotDAO, times(1)).updateParking(argThat(spot -> spot.getId() == 1 && spot.isAvailable()));
     }
 
     /**
@@ -337,7 +355,7 @@ public class ParkingServiceTest {
     @Test
     public void testProcessExitingVehicleWhenTicketNotFound() {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(ticketDAO.getTicket("ABCDEF")).thenReturn(null);
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(null);
         parkingService.processExitingVehicle(false);
         verify(ticketDAO, times(0)).updateTicket(any(Ticket.class));
     }
@@ -349,12 +367,191 @@ public class ParkingServiceTest {
     @Test
     public void testProcessExitingVehicleWhenTicketUpdateFails() {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(new TicketLookup(ticket, 1));
         when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(false);
         parkingService.processExitingVehicle(false);
-        verify(ticketDAO, times(1)).getTicket("ABCDEF");
+        verify(ticketDAO, times(1)).getExitLookup("ABCDEF");
         verify(ticketDAO, times(1)).updateTicket(ticket);
     }
 
+    /**
+     * The enterReturnsSpotAndTicket method tests the headless entry of a recurring user.
+     */
+    @Test
+    public void enterReturnsSpotAndTicket() {
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE)).thenReturn(4);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(2);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        EntryResult result = new ParkingService(parkingSpotDAO, ticketDAO).enter("ABCDEF", ParkingType.BIKE);
+
+        assertEquals(EntryResult.Status.ENTERED, result.getStatus());
+        assertEquals(4, result.getParkingSpot().getId());
+        assertEquals("ABCDEF", result.getTicket().getVehicleRegNumber());
+        assertNotNull(result.getTicket().getInTime());
+        assertTrue(result.isRecurringUser());
+        verifyNoInteractions(inputReaderUtil);
+    }
 
+    /**
+     * The enterWithoutPlateOrSpot method tests the headless entry refusals.
+     */
+    @Test
+    public void enterWithoutPlateOrSpot() {
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(0);
+
+        assertEquals(EntryResult.Status.INVALID_PLATE, parkingService.enter(" ", ParkingType.CAR).getStatus());
+        assertEquals(EntryResult.Status.NO_SPOT_AVAILABLE, parkingService.enter("ABCDEF", ParkingType.CAR).getStatus());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
+    /**
+     * The exitReturnsFare method tests the headless exit of a recurring user after one hour.
+     */
+    @Test
+    public void exitReturnsFare() {
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(new TicketLookup(ticket, 2));
+        when(ticketDAO.updateTicket(ticket)).thenReturn(true);
+
+        ExitResult result = new ParkingService(parkingSpotDAO, ticketDAO).exit("ABCDEF");
+
+        assertEquals(ExitResult.Status.EXITED, result.getStatus());
+        assertTrue(result.isRecurringUser());
+        assertEquals(1.5 * 0.95, result.getFare(), 0.01);
+        assertTrue(result.getParkingSpot().isAvailable());
+        verify(parkingSpotDAO).updateParking(ticket.getParkingSpot());
+        verifyNoInteractions(inputReaderUtil);
+    }
+
+    /**
+     * The exitWithoutOpenTicket method tests the headless exit of a vehicle that is not parked.
+     */
+    @Test
+    public void exitWithoutOpenTicket() {
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(null);
+
+        ExitResult result = parkingService.exit("ABCDEF");
+
+        assertEquals(ExitResult.Status.NO_OPEN_TICKET, result.getStatus());
+        assertNull(result.getTicket());
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    /**
+     * The enterAsyncOverlapsClaimAndCount method tests that the asynchronous entry runs the spot claim and the
+     * ticket count at the same time: the claim only returns once the count has started.
+     */
+    @Test
+    public void enterAsyncOverlapsClaimAndCount() throws Exception {
+        CountDownLatch countStarted = new CountDownLatch(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenAnswer(invocation ->
+                countStarted.await(5, TimeUnit.SECONDS) ? 3 : 0);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenAnswer(invocation -> {
+            countStarted.countDown();
+            return 0;
+        });
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        ExecutorService ioExecutor = Executors.newFixedThreadPool(2);
+        try {
+            EntryResult result = parkingService.enterAsync("ABCDEF", ParkingType.CAR, ioExecutor)
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(EntryResult.Status.ENTERED, result.getStatus());
+            assertEquals(3, result.getParkingSpot().getId());
+            assertFalse(result.isRecurringUser());
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+
+    /**
+     * The enterAsyncReleasesSpotWhenCountFails method tests that a spot claimed by an asynchronous entry is given
+     * back when the ticket count fails.
+     */
+    @Test
+    public void enterAsyncReleasesSpotWhenCountFails() throws Exception {
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(3);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenThrow(new IllegalStateException("Connection lost"));
+        ExecutorService ioExecutor = Executors.newFixedThreadPool(2);
+        try {
+            EntryResult result = parkingService.enterAsync("ABCDEF", ParkingType.CAR, ioExecutor)
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(EntryResult.Status.ERROR, result.getStatus());
+            verify(parkingSpotDAO).updateParking(argThat(spot -> spot.getId() == 3 && spot.isAvailable()));
+            verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+
+    /**
+     * The exitAsyncReturnsFare method tests the asynchronous exit of a first-time user after one hour.
+     */
+    @Test
+    public void exitAsyncReturnsFare() throws Exception {
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(new TicketLookup(ticket, 1));
+        when(ticketDAO.updateTicket(ticket)).thenReturn(true);
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        try {
+            ExitResult result = parkingService.exitAsync("ABCDEF", ioExecutor).get(5, TimeUnit.SECONDS);
+
+            assertEquals(ExitResult.Status.EXITED, result.getStatus());
+            assertEquals(1.5, result.getFare(), 0.01);
+            verify(parkingSpotDAO).updateParking(ticket.getParkingSpot());
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+
+    /**
+     * The exitAsyncKeepsSpotWhenUpdateFails method tests that the asynchronous exit does not release the spot of a
+     * ticket that could not be closed.
+     */
+    @Test
+    public void exitAsyncKeepsSpotWhenUpdateFails() throws Exception {
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(new TicketLookup(ticket, 1));
+        when(ticketDAO.updateTicket(ticket)).thenReturn(false);
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        try {
+            ExitResult result = parkingService.exitAsync("ABCDEF", ioExecutor).get(5, TimeUnit.SECONDS);
+
+            assertEquals(ExitResult.Status.UPDATE_FAILED, result.getStatus());
+            verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+
+    /**
+     * The quoteLeavesTicketOpen method tests that a quote prices the stay without closing the ticket or releasing
+     * the spot.
+     */
+    @Test
+    public void quoteLeavesTicketOpen() {
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(new TicketLookup(ticket, 1));
+
+        ExitResult result = parkingService.quote("ABCDEF");
+
+        assertEquals(ExitResult.Status.QUOTED, result.getStatus());
+        assertEquals(1.5, result.getFare(), 0.01);
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    /**
+     * The exitIsJournaled method tests that an exit is appended to the event journal with its fare.
+     */
+    @Test
+    public void exitIsJournaled() throws Exception {
+        GateEventJournal eventJournal = mock(GateEventJournal.class);
+        parkingService.setEventJournal(eventJournal);
+        when(ticketDAO.getExitLookup("ABCDEF")).thenReturn(new TicketLookup(ticket, 1));
+        when(ticketDAO.updateTicket(ticket)).thenReturn(true);
+
+        parkingService.exit("ABCDEF");
+
+        verify(eventJournal).append(ParkingEvent.Kind.EXIT, "ABCDEF", 1, ParkingType.CAR,
+                ticket.getOutTime().getTime(), 150);
+    }
 }
@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Tariff;
+import com.parkit.parkingsystem.model.TicketColumns;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.RepricingReport;
+import com.parkit.parkingsystem.service.RepricingService;
+
+/**
+ * This class contains unit tests for the RepricingService class, with a mocked ticket table of five closed
+ * one-hour tickets read two at a time.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RepricingServiceTest {
+
+    private static final long HOUR = Tariff.MILLIS_PER_HOUR;
+
+    /**
+     * Stored price of each ticket, in cents: tickets 1 to 4 are cars, ticket 5 a bike; ticket 4 was mispriced.
+     */
+    private static final long[] STORED_CENTS = {150, 150, 143, 999, 100};
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private ForkJoinPool forkJoinPool;
+
+    private RepricingService repricingService;
+
+    /**
+     * Prices updated by the service, by ticket id.
+     */
+    private final Map<Integer, Long> updatedCents = new HashMap<>();
+
+    /**
+     * Setup for each test. New tariffs double the car rate and keep the bike rate.
+     */
+    @BeforeEach
+    public void setUpPerTest() {
+        when(ticketDAO.readClosedTickets(anyInt(), anyLong(), anyLong(), any(TicketColumns.class))).thenAnswer(invocation -> {
+            int afterId = invocation.getArgument(0);
+            TicketColumns columns = invocation.getArgument(3);
+            columns.clear();
+            for (int id = afterId + 1; id <= STORED_CENTS.length && columns.getSize() < columns.getCapacity(); id++) {
+                ParkingType parkingType = id == 5 ? ParkingType.BIKE : ParkingType.CAR;
+                columns.add(id, id * HOUR, (id + 1) * HOUR, parkingType.ordinal(), id == 3, STORED_CENTS[id - 1]);
+            }
+            return columns.getSize();
+        });
+
+        Properties properties = new Properties();
+        properties.setProperty("car.ratePerHourCents", "300");
+        properties.setProperty("bike.ratePerHourCents", "100");
+        forkJoinPool = new ForkJoinPool(2);
+        repricingService = new RepricingService(ticketDAO, new FareCalculatorService(TariffConfig.flat()),
+                new FareCalculatorService(TariffConfig.parse(properties)), forkJoinPool);
+        repricingService.setChunkSize(2);
+        repricingService.setLeafSize(1);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        forkJoinPool.shutdown();
+    }
+
+    private void recordUpdates(boolean result) {
+        when(ticketDAO.updateTicketPrices(any(int[].class), any(long[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int[] ids = invocation.getArgument(0);
+            long[] cents = invocation.getArgument(1);
+            int count = invocation.getArgument(2);
+            for (int i = 0; i < count; i++) {
+                updatedCents.put(ids[i], cents[i]);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Tests that every chunk is priced and only the changed prices are written back.
+     */
+    @Test
+    public void repriceWritesChangedPrices() {
+        recordUpdates(true);
+
+        RepricingReport report = repricingService.reprice();
+
+        assertTrue(report.isCompleted());
+        assertEquals(5, report.getTicketCount());
+        assertEquals(4, report.getChangedCount());
+        assertEquals(1, report.getMismatchCount());
+        assertEquals(150 + 150 + 143 + 150 + 100, report.getCurrentTotalCents());
+        assertEquals(300 + 300 + 285 + 300 + 100, report.getNewTotalCents());
+        assertEquals(300L, updatedCents.get(1));
+        assertEquals(285L, updatedCents.get(3));
+        assertEquals(300L, updatedCents.get(4));
+        assertFalse(updatedCents.containsKey(5));
+        verify(ticketDAO, times(3)).readClosedTickets(anyInt(), anyLong(), anyLong(), any(TicketColumns.class));
+    }
+
+    /**
+     * Tests that a dry run reports the changes without writing them.
+     */
+    @Test
+    public void dryRunWritesNothing() {
+        repricingService.setDryRun(true);
+
+        RepricingReport report = repricingService.reprice();
+
+        assertTrue(report.isCompleted());
+        assertEquals(4, report.getChangedCount());
+        verify(ticketDAO, never()).updateTicketPrices(any(int[].class), any(long[].class), anyInt(), anyInt());
+    }
+
+    /**
+     * Tests that the run stops when prices cannot be written back.
+     */
+    @Test
+    public void repriceStopsWhenUpdateFails() {
+        recordUpdates(false);
+
+        RepricingReport report = repricingService.reprice();
+
+        assertFalse(report.isCompleted());
+        assertEquals(2, report.getTicketCount());
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.dao.SpotAvailabilityIndex;
+
+/**
+ * This class contains unit tests for the SpotAvailabilityIndex class.
+ */
+public class SpotAvailabilityIndexTest {
+
+    /**
+     * Index loaded with the spots of the default data set: 1 to 3 for cars, 4 and 5 for bikes.
+     */
+    private SpotAvailabilityIndex index;
+
+    /**
+     * Setup for each test. Loads the default spots, all free.
+     */
+    @BeforeEach
+    public void setUpPerTest() {
+        index = new SpotAvailabilityIndex();
+        for (int i = 1; i <= 3; i++) {
+            index.setAvailable(ParkingType.CAR, i, true);
+        }
+        index.setAvailable(ParkingType.BIKE, 4, true);
+        index.setAvailable(ParkingType.BIKE, 5, true);
+    }
+
+    /**
+     * Tests that the lowest free spot of each type is returned.
+     */
+    @Test
+    public void lowestAvailableSpotPerType() {
+        assertEquals(1, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(4, index.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    /**
+     * Tests that occupied spots are skipped and that -1 is returned once every spot is taken.
+     */
+    @Test
+    public void occupiedSpotsAreSkipped() {
+        index.setAvailable(ParkingType.CAR, 1, false);
+        assertEquals(2, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(2, index.countAvailable(ParkingType.CAR));
+
+        index.setAvailable(ParkingType.CAR, 2, false);
+        index.setAvailable(ParkingType.CAR, 3, false);
+        assertEquals(-1, index.getLowestAvailable(ParkingType.CAR), "No car spot should be available");
+
+        index.setAvailable(ParkingType.CAR, 2, true);
+        assertEquals(2, index.getLowestAvailable(ParkingType.CAR));
+        assertTrue(index.isAvailable(2));
+        assertFalse(index.isAvailable(3));
+    }
+
+    /**
+     * Tests that a spot whose type changes is moved to the bitset of its new type.
+     */
+    @Test
+    public void spotTypeChangeMovesSpot() {
+        index.setAvailable(ParkingType.BIKE, 1, true);
+
+        assertEquals(2, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(1, index.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    /**
+     * Tests that clearing the index forgets every spot.
+     */
+    @Test
+    public void clearForgetsEverySpot() {
+        index.clear();
+
+        assertEquals(-1, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(0, index.countAvailable(ParkingType.BIKE));
+    }
+
+    /**
+     * Tests that the occupancy counters follow every change of the index.
+     */
+    @Test
+    public void countersFollowTheIndex() {
+        OccupancyCounters counters = index.getCounters();
+        assertEquals(3, counters.getTotal(ParkingType.CAR));
+        assertEquals(3, counters.getAvailable(ParkingType.CAR));
+
+        index.takeLowestAvailable(ParkingType.CAR);
+        index.setAvailable(ParkingType.BIKE, 5, false);
+        index.setAvailable(ParkingType.BIKE, 5, false);
+        assertEquals(1, counters.getOccupied(ParkingType.CAR));
+        assertEquals(1, counters.getAvailable(ParkingType.BIKE));
+
+        // Spot 1 is taken as a car spot and becomes a free bike spot
+        index.setAvailable(ParkingType.BIKE, 1, true);
+        assertEquals(2, counters.getTotal(ParkingType.CAR));
+        assertEquals(2, counters.getAvailable(ParkingType.CAR));
+        assertEquals(3, counters.getTotal(ParkingType.BIKE));
+        assertEquals(2, counters.getAvailable(ParkingType.BIKE));
+
+        index.clear();
+        assertEquals(0, counters.getTotal(ParkingType.BIKE));
+    }
+
+    /**
+     * Tests that the counters stay exact when several threads take and free spots at once.
+     */
+    @Test
+    public void countersStayExactUnderContention() throws InterruptedException {
+        for (int i = 6; i <= 1000; i++) {
+            index.setAvailable(ParkingType.CAR, i, true);
+        }
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int spot = index.takeLowestAvailable(ParkingType.CAR);
+                    if (spot > 0 && i % 2 == 0) {
+                        index.setAvailable(ParkingType.CAR, spot, true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(index.countAvailable(ParkingType.CAR), index.getCounters().getAvailable(ParkingType.CAR));
+        assertEquals(998, index.getCounters().getTotal(ParkingType.CAR));
+    }
+}
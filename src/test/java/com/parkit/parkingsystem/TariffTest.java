@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Tariff;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+/**
+ * This class contains unit tests for the tariffs loaded by TariffConfig and compiled into Tariff lookup tables.
+ * Times are UTC epoch milliseconds, so that day 0 starts at midnight.
+ */
+public class TariffTest {
+
+    private static final long HOUR = Tariff.MILLIS_PER_HOUR;
+    private static final long DAY = Tariff.MILLIS_PER_DAY;
+
+    /**
+     * Car tariff: 1.50 per hour, 0.50 per hour from 22:00 to 07:00.
+     */
+    private Properties properties;
+
+    /**
+     * Setup for each test. Creates a car tariff with a night band.
+     */
+    @BeforeEach
+    public void setUpPerTest() {
+        properties = new Properties();
+        properties.setProperty("timeZone", "UTC");
+        properties.setProperty("car.ratePerHourCents", "150");
+        properties.setProperty("car.bands", "22:00-07:00@50");
+    }
+
+    private long cents(long inTime, long outTime) {
+        Tariff tariff = TariffConfig.parse(properties).getTariff(ParkingType.CAR);
+        return tariff.cost(inTime, outTime) / Tariff.UNITS_PER_CENT;
+    }
+
+    /**
+     * Tests that a band wrapping past midnight is charged on both sides of midnight.
+     */
+    @Test
+    public void nightBandWrapsPastMidnight() {
+        // 21:00 to 08:00: 1 hour at 1.50, 9 hours at 0.50, 1 hour at 1.50
+        assertEquals(150 + 450 + 150, cents(21 * HOUR, DAY + 8 * HOUR));
+    }
+
+    /**
+     * Tests that the cost of a stay is exact below the minute of the lookup table.
+     */
+    @Test
+    public void costIsExactWithinAMinute() {
+        Tariff tariff = TariffConfig.parse(properties).getTariff(ParkingType.CAR);
+
+        // 30 seconds either side of 22:00: 30 s at 150 and 30 s at 50 cents per hour
+        long inTime = 22 * HOUR - 30000;
+        assertEquals(30000 * 150 * 100 + 30000 * 50 * 100, tariff.cost(inTime, inTime + 60000));
+    }
+
+    /**
+     * Tests that elapsed-time tiers scale the rate of the stay.
+     */
+    @Test
+    public void tiersApplyFromTheirElapsedTime() {
+        properties.setProperty("car.bands", "");
+        properties.setProperty("car.tiers", "180@50");
+
+        // 3 hours at 1.50, then 1 hour at half price
+        assertEquals(450 + 75, cents(10 * HOUR, 14 * HOUR));
+    }
+
+    /**
+     * Tests that the daily cap limits each 24 hours of stay, for long stays too.
+     */
+    @Test
+    public void dailyCapLimitsEachDay() {
+        properties.setProperty("car.dailyCapCents", "1500");
+
+        // A full day costs 15 h at 1.50 plus 9 h at 0.50 = 27.00, capped at 15.00; the last 2 hours cost 3.00
+        assertEquals(3 * 1500 + 300, cents(10 * HOUR, 3 * DAY + 12 * HOUR));
+        assertEquals(1000 * 1500, cents(0, 1000 * DAY));
+    }
+
+    /**
+     * Tests that the default tariff file keeps the flat rates of the Fare constants.
+     */
+    @Test
+    public void defaultTariffsAreFlat() {
+        TariffConfig tariffConfig = TariffConfig.getDefault();
+
+        assertTrue(tariffConfig.getTariff(ParkingType.CAR).isFlat());
+        assertTrue(tariffConfig.getTariff(ParkingType.BIKE).isFlat());
+        assertEquals(150, tariffConfig.getTariff(ParkingType.CAR).getRate(0));
+        assertEquals(100, tariffConfig.getTariff(ParkingType.BIKE).getRate(0));
+    }
+
+    /**
+     * Tests the fare of a night stay with the recurring user discount, and a type without tariff.
+     */
+    @Test
+    public void fareCalculatorUsesTariffs() {
+        FareCalculatorService fareCalculatorService = new FareCalculatorService(TariffConfig.parse(properties));
+
+        // 2 hours at 0.50 with 5% discount
+        assertEquals(95, fareCalculatorService.calculateFareCents(DAY, DAY + 2 * HOUR, ParkingType.CAR, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> fareCalculatorService.calculateFareCents(0, HOUR, ParkingType.BIKE, false));
+    }
+
+    /**
+     * Tests that a malformed band is rejected.
+     */
+    @Test
+    public void malformedBandIsRejected() {
+        properties.setProperty("car.bands", "22:00@50");
+
+        assertThrows(IllegalArgumentException.class, () -> TariffConfig.parse(properties));
+    }
+
+    /**
+     * Tests that the cached offset of a zone with daylight saving time follows its transitions, in both directions.
+     */
+    @Test
+    public void offsetFollowsDaylightSavingTransitions() {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        TariffConfig config = new TariffConfig(new Tariff[0], 0, 100, paris);
+        // Summer time starts on 2026-03-29 at 01:00 UTC and ends on 2026-10-25 at 01:00 UTC
+        long springForward = Instant.parse("2026-03-29T01:00:00Z").toEpochMilli();
+        long fallBack = Instant.parse("2026-10-25T01:00:00Z").toEpochMilli();
+        long[] instants = {springForward - 1, springForward, springForward + DAY, fallBack - 1, fallBack,
+                springForward - DAY, fallBack + 1, springForward - 1};
+
+        for (long instant : instants) {
+            long expected = paris.getRules().getOffset(Instant.ofEpochMilli(instant)).getTotalSeconds() * 1000L;
+            assertEquals(expected, config.getOffsetMillis(instant), "Wrong offset at " + Instant.ofEpochMilli(instant));
+        }
+        assertEquals(HOUR, config.getOffsetMillis(springForward - 1));
+        assertEquals(2 * HOUR, config.getOffsetMillis(springForward));
+    }
+}
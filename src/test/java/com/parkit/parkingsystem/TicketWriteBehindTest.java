@@ -0,0 +1,193 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * This class contains unit tests for the TicketWriteBehind class.
+ * The database is simulated with Mockito mocks and the journal is written to a temporary directory.
+ */
+public class TicketWriteBehindTest {
+
+    /**
+     * Directory holding the journal files of each test.
+     */
+    @TempDir
+    Path journalDirectory;
+
+    private DataBaseConfig dataBaseConfig;
+    private Connection connection;
+    private PreparedStatement saveStatement;
+    private PreparedStatement updateStatement;
+
+    /**
+     * Setup for each test. Simulates a working database.
+     */
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = mock(DataBaseConfig.class);
+        connection = mock(Connection.class);
+        saveStatement = mock(PreparedStatement.class);
+        updateStatement = mock(PreparedStatement.class);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET_IF_ABSENT)).thenReturn(saveStatement);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(updateStatement);
+    }
+
+    private Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setId(7);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    /**
+     * Tests that journaled mutations are written in a single committed batch.
+     */
+    @Test
+    public void mutationsAreWrittenInOneTransaction() throws Exception {
+        TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, journalDirectory.toFile(), 10, 5000);
+        writeBehind.start();
+
+        Ticket ticket = newTicket("ABCDEF");
+        writeBehind.save(ticket);
+        writeBehind.save(newTicket("GHIJKL"));
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+        writeBehind.update(ticket);
+
+        assertTrue(writeBehind.hasPendingSave("ABCDEF"));
+        assertTrue(writeBehind.awaitFlushed(5000), "The mutations were not written in time");
+
+        verify(saveStatement, times(2)).addBatch();
+        verify(updateStatement, times(1)).addBatch();
+        verify(connection, times(1)).commit();
+        assertFalse(writeBehind.hasPendingSave("ABCDEF"));
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(0, new File(journalDirectory.toFile(), "ticket.journal").length(), "The journal was not truncated");
+        writeBehind.stop(1000);
+    }
+
+    /**
+     * Tests that mutations the database refused are replayed by the next start.
+     */
+    @Test
+    public void unwrittenMutationsAreReplayedOnRestart() throws Exception {
+        DataBaseConfig unavailableDataBase = mock(DataBaseConfig.class);
+        when(unavailableDataBase.getConnection()).thenThrow(new SQLException("Database is down"));
+        TicketWriteBehind crashed = new TicketWriteBehind(unavailableDataBase, journalDirectory.toFile(), 10, 10);
+        crashed.start();
+        crashed.save(newTicket("ABCDEF"));
+        crashed.save(newTicket("GHIJKL"));
+        assertFalse(crashed.awaitFlushed(100));
+        crashed.stop(100);
+
+        TicketWriteBehind restarted = new TicketWriteBehind(dataBaseConfig, journalDirectory.toFile(), 10, 10);
+        restarted.start();
+
+        assertTrue(restarted.awaitFlushed(5000), "The replayed mutations were not written in time");
+        verify(saveStatement, times(2)).addBatch();
+        verify(saveStatement, times(2)).setString(eq(2), anyString());
+        verify(connection, times(1)).commit();
+        restarted.stop(1000);
+    }
+
+    /**
+     * Tests that mutations appended by concurrent gates, which share their journal syncs, are all written once.
+     */
+    @Test
+    public void concurrentAppendsAreAllWritten() throws Exception {
+        TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, journalDirectory.toFile(), 50, 10);
+        writeBehind.start();
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int gate = 0; gate < 8; gate++) {
+                String prefix = "GATE" + gate + "-";
+                results.add(gates.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        writeBehind.save(newTicket(prefix + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+
+            assertTrue(writeBehind.awaitFlushed(5000), "The mutations were not written in time");
+            verify(saveStatement, times(400)).addBatch();
+            assertEquals(0, writeBehind.getPendingCount());
+        } finally {
+            gates.shutdownNow();
+            writeBehind.stop(1000);
+        }
+    }
+
+    /**
+     * Tests that the journal is compacted to the unwritten mutations when it grows past the threshold, even though
+     * it is never fully written.
+     */
+    @Test
+    public void journalIsCompactedWhileMutationsArePending() throws Exception {
+        Semaphore commits = new Semaphore(0);
+        doAnswer(invocation -> {
+            commits.acquire();
+            return null;
+        }).when(connection).commit();
+        TicketWriteBehind writeBehind = new TicketWriteBehind(dataBaseConfig, journalDirectory.toFile(), 1, 10);
+        writeBehind.setCompactionThresholdBytes(0);
+        writeBehind.start();
+        File journal = new File(journalDirectory.toFile(), "ticket.journal");
+        try {
+            writeBehind.save(newTicket("AAAAAA"));
+            writeBehind.save(newTicket("BBBBBB"));
+            writeBehind.save(newTicket("CCCCCC"));
+            long recordLength = journal.length() / 3;
+
+            commits.release();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (writeBehind.getPendingCount() > 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(2, writeBehind.getPendingCount());
+            assertEquals(2 * recordLength, journal.length(), "The written mutation was not compacted away");
+            writeBehind.save(newTicket("DDDDDD"));
+            assertEquals(3 * recordLength, journal.length(), "Appends must go on in the compacted journal");
+        } finally {
+            commits.release(10);
+            assertTrue(writeBehind.awaitFlushed(5000), "The mutations were not written in time");
+            writeBehind.stop(1000);
+        }
+        assertEquals(0, journal.length());
+    }
+}
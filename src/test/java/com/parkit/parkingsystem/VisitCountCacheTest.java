@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.util.BloomFilter;
+
+/**
+ * This class contains unit tests for the VisitCountCache class and the BloomFilter in front of it.
+ */
+public class VisitCountCacheTest {
+
+    /**
+     * Cache with room for two exact counts.
+     */
+    private VisitCountCache visitCountCache;
+
+    /**
+     * Setup for each test. Creates an empty cache.
+     */
+    @BeforeEach
+    public void setUpPerTest() {
+        visitCountCache = new VisitCountCache(2, 1000, 0.01);
+    }
+
+    /**
+     * Tests that a never-seen plate is answered by the Bloom filter.
+     */
+    @Test
+    public void unknownPlateHasNoTicket() {
+        assertEquals(0, visitCountCache.getCount("ABCDEF"));
+        assertEquals(1, visitCountCache.getBloomNegativeCount());
+        assertEquals(0, visitCountCache.getMissCount());
+    }
+
+    /**
+     * Tests that saving tickets keeps the exact count up to date.
+     */
+    @Test
+    public void recordedTicketsAreCounted() {
+        visitCountCache.recordTicket("ABCDEF");
+        assertEquals(1, visitCountCache.getCount("ABCDEF"));
+
+        visitCountCache.recordTicket("ABCDEF");
+        assertEquals(2, visitCountCache.getCount("ABCDEF"));
+        assertEquals(2, visitCountCache.getHitCount());
+    }
+
+    /**
+     * Tests that a count read from the database before a ticket was recorded does not hide that ticket.
+     */
+    @Test
+    public void staleCountDoesNotOverwriteRecordedTicket() {
+        visitCountCache.recordTicket("ABCDEF");
+        visitCountCache.recordTicket("ABCDEF");
+
+        visitCountCache.putCount("ABCDEF", 1);
+
+        assertEquals(2, visitCountCache.getCount("ABCDEF"));
+    }
+
+    /**
+     * Tests that the least recently used count is evicted and must then be read from the database.
+     */
+    @Test
+    public void leastRecentlyUsedCountIsEvicted() {
+        visitCountCache.putCount("AAA", 3);
+        visitCountCache.putCount("BBB", 1);
+        visitCountCache.getCount("AAA");
+        visitCountCache.putCount("CCC", 5);
+
+        assertEquals(3, visitCountCache.getCount("AAA"));
+        assertEquals(VisitCountCache.UNKNOWN, visitCountCache.getCount("BBB"), "BBB should have been evicted");
+        assertEquals(1, visitCountCache.getMissCount());
+        assertEquals(2, visitCountCache.getSize());
+    }
+
+    /**
+     * Tests that a plate whose count was evicted is not reported as a first-timer on its next ticket.
+     */
+    @Test
+    public void evictedPlateIsNotCountedAsFirstTicket() {
+        visitCountCache.putCount("AAA", 3);
+        visitCountCache.putCount("BBB", 1);
+        visitCountCache.putCount("CCC", 1);
+
+        visitCountCache.recordTicket("AAA");
+
+        assertEquals(VisitCountCache.UNKNOWN, visitCountCache.getCount("AAA"));
+    }
+
+    /**
+     * Tests that the Bloom filter never forgets an added plate and rejects most absent ones.
+     */
+    @Test
+    public void bloomFilterHasNoFalseNegatives() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            bloomFilter.put("PLATE" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bloomFilter.mightContain("PLATE" + i));
+            if (bloomFilter.mightContain("OTHER" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, "Too many false positives: " + falsePositives);
+    }
+}
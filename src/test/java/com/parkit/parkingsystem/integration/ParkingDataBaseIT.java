@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.integration;
 
+import java.sql.Connection;
 import java.text.SimpleDateFormat;
 
 import static com.parkit.parkingsystem.constants.TestConstants.NUMBER_OF_TICKETS;
@@ -8,7 +9,11 @@ import static com.parkit.parkingsystem.constants.TestConstants.OUT_TIME_TEST;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
@@ -52,6 +57,7 @@ public class ParkingDataBaseIT {
         ticketDAO = new TicketDAO();
         ticketDAO.dataBaseConfig = dataBaseTestConfig;
         dataBasePrepareService = new DataBasePrepareService();
+        new SchemaMigrator(dataBaseTestConfig).migrate();
     }
 
     /**
@@ -62,6 +68,8 @@ public class ParkingDataBaseIT {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         dataBasePrepareService.clearDataBaseEntries();
+        parkingSpotDAO.reloadAvailabilityIndex();
+        ticketDAO.reloadCaches();
     }
 
     /**
@@ -174,7 +182,28 @@ public class ParkingDataBaseIT {
 
     }
 
+    /**
+     * This test method checks that the occupancy counters follow the entries and are corrected when the parking
+     * table is modified by another process.
+     */
+    @Test
+    public void testOccupancyCountersReconciliation() throws Exception {
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        OccupancyCounters counters = parkingSpotDAO.getOccupancyCounters();
+        parkingService.processIncomingVehicle();
+        assertEquals(1, counters.getOccupied(ParkingType.CAR));
 
-}
-
+        Connection connection = dataBaseTestConfig.getConnection();
+        try {
+            connection.prepareStatement("update parking set AVAILABLE = false where TYPE = 'BIKE'").execute();
+        } finally {
+            dataBaseTestConfig.closeConnection(connection);
+        }
+        assertEquals(0, counters.getOccupied(ParkingType.BIKE));
 
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+        assertEquals(counters.getTotal(ParkingType.BIKE), counters.getOccupied(ParkingType.BIKE));
+        assertEquals(1, counters.getOccupied(ParkingType.CAR));
+        assertTrue(counters.getLastReconciledMillis() > 0);
+    }
+}
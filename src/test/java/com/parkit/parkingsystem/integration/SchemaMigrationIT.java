@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+
+/**
+ * This class checks the schema migrations against a database of their own, so that reverting the schema does not
+ * disturb the other integration tests. The schema is created as it was before the first migration, seeded with a
+ * large ticket history, then migrated; the execution plans of the hot ticket queries must use the new indexes.
+ */
+public class SchemaMigrationIT {
+
+    /**
+     * Size of the seeded ticket history.
+     */
+    private static final int NUMBER_OF_SEEDED_TICKETS = 200000;
+    private static final int NUMBER_OF_SEEDED_VEHICLES = 20000;
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig("test_migration");
+
+    /**
+     * Creates the schema the migrations start from and seeds the ticket table.
+     */
+    @BeforeAll
+    public static void setUp() throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("drop table if exists schema_version, ticket, parking");
+            statement.execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL,"
+                    + " TYPE varchar(10) NOT NULL)");
+            statement.execute("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL,"
+                    + " VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL,"
+                    + " OUT_TIME DATETIME, FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))");
+            statement.execute("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR'),"
+                    + "(2,true,'CAR'),(3,true,'CAR'),(4,true,'BIKE'),(5,true,'BIKE')");
+
+            for (int first = 0; first < NUMBER_OF_SEEDED_TICKETS; first += ROWS_PER_INSERT) {
+                StringBuilder sql = new StringBuilder(DBConstants.SAVE_TICKET.substring(0, DBConstants.SAVE_TICKET.indexOf("values")));
+                sql.append("values");
+                for (int i = first; i < first + ROWS_PER_INSERT; i++) {
+                    sql.append(i == first ? "" : ",")
+                            .append("(").append(i % 5 + 1)
+                            .append(",'V").append(i % NUMBER_OF_SEEDED_VEHICLES).append("'")
+                            .append(",1.5, TIMESTAMP('2023-01-01') + INTERVAL ").append(i).append(" MINUTE")
+                            .append(", TIMESTAMP('2023-01-01') + INTERVAL ").append(i + 60).append(" MINUTE)");
+                }
+                statement.execute(sql.toString());
+            }
+        }
+    }
+
+    /**
+     * Drops the database of the test.
+     */
+    @AfterAll
+    public static void tearDown() throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("drop database test_migration");
+        }
+    }
+
+    /**
+     * Applies the migrations and checks that the ticket queries use the new index.
+     */
+    @Test
+    public void migrationsIndexHotQueries() throws Exception {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataBaseTestConfig);
+        assertTrue(schemaMigrator.migrate(), "The migrations failed");
+        assertEquals(SchemaMigrator.getLatestVersion(), schemaMigrator.getCurrentVersion());
+
+        assertTrue(usesIndex(DBConstants.GET_NB_TICKET, "IDX_TICKET_VEHICLE_IN_TIME"), "Ticket count does not use the index");
+
+        // Running the migrations again must not apply anything
+        assertTrue(schemaMigrator.migrate());
+
+        // Every version recorded as not applied, as after scripts failing halfway: the statements that already took
+        // effect are skipped and the others run again
+        try (Connection con = dataBaseTestConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("delete from schema_version");
+        }
+        assertTrue(schemaMigrator.migrate(), "Running partly applied migrations again failed");
+        assertEquals(SchemaMigrator.getLatestVersion(), schemaMigrator.getCurrentVersion());
+    }
+
+    private boolean usesIndex(String sql, String indexName) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection(); PreparedStatement ps = con.prepareStatement("explain " + sql)) {
+            ps.setString(1, "V1");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (indexName.equalsIgnoreCase(rs.getString("key"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -19,17 +19,20 @@ public class DataBaseTestConfig extends DataBaseConfig {
     private static final Logger logger = LogManager.getLogger("DataBaseTestConfig");
 
     /**
-     * Retrieves a database connection.
+     * Creates a configuration pointing at the test database. Connections are pooled like in production.
+     */
+    public DataBaseTestConfig() {
+        this("test");
+    }
+
+    /**
+     * Creates a configuration pointing at another database of the test server, created on the first connection if
+     * it does not exist. Connections are pooled like in production.
      *
-     * @return the database connection
-     * @throws ClassNotFoundException if the MySQL JDBC driver is not found
-     * @throws SQLException if a database access error occurs
+     * @param database the name of the database
      */
-    public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/test","root","rootroot");
+    public DataBaseTestConfig(String database) {
+        super("jdbc:mysql://localhost:3306/" + database + "?createDatabaseIfNotExist=true", "root", "rootroot");
     }
 
     /**
@@ -32,7 +32,7 @@ public class DataBasePrepareService {
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            connection.prepareStatement("update parking set available = true, CURRENT_TICKET_ID = null").execute();
 
             //clear ticket entries;
             connection.prepareStatement("truncate table ticket").execute();